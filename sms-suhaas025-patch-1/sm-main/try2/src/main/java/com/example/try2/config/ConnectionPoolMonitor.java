@@ -1,7 +1,8 @@
 package com.example.try2.config;
 
+import com.example.try2.monitoring.MetricsHistory;
+import com.example.try2.monitoring.MetricsSample;
 import com.zaxxer.hikari.HikariDataSource;
-import com.zaxxer.hikari.HikariPoolMXBean;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -14,26 +15,33 @@ import java.lang.management.MemoryMXBean;
 import java.lang.management.MemoryUsage;
 import java.text.NumberFormat;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
- * Connection pool monitor that periodically logs the status of the HikariCP connection pool
+ * Connection pool monitor that periodically logs a summary of the HikariCP connection pool
  * along with basic JVM memory usage metrics.
- * This implementation doesn't rely on Spring Boot Actuator.
+ * Continuous figures (1s resolution) are kept by {@link MetricsHistory} and published through
+ * Micrometer; this class only condenses the last logging window into peaks so short
+ * saturation spikes are visible in the log as well.
  */
 @Component
 public class ConnectionPoolMonitor {
 
     private static final Logger logger = LoggerFactory.getLogger(ConnectionPoolMonitor.class);
     private static final NumberFormat FORMATTER = NumberFormat.getInstance();
+    private static final int WINDOW_SECONDS = 300;
     
     @Autowired
     private DataSource dataSource;
 
+    @Autowired
+    private MetricsHistory metricsHistory;
+
     /**
      * Logs connection pool metrics every 5 minutes
      */
-    @Scheduled(fixedRate = 300000) // 5 minutes
+    @Scheduled(fixedRate = WINDOW_SECONDS * 1000)
     public void monitorConnectionPool() {
         try {
             // Log database connection pool stats
@@ -48,38 +56,42 @@ public class ConnectionPoolMonitor {
     
     private void logPoolMetrics() {
         try {
-            if (dataSource instanceof HikariDataSource) {
-                HikariDataSource hikariDataSource = (HikariDataSource) dataSource;
-                HikariPoolMXBean poolMXBean = hikariDataSource.getHikariPoolMXBean();
+            if (dataSource.isWrapperFor(HikariDataSource.class)) {
+                HikariDataSource hikariDataSource = dataSource.unwrap(HikariDataSource.class);
+                List<MetricsSample> window = metricsHistory.getHistory(WINDOW_SECONDS);
                 
-                if (poolMXBean != null) {
-                    // Collect and log pool metrics
+                if (!window.isEmpty()) {
+                    // Condense the window into current values and peaks
+                    MetricsSample latest = window.get(window.size() - 1);
+                    int peakActive = window.stream().mapToInt(MetricsSample::getPoolActive).max().orElse(0);
+                    int peakWaiting = window.stream().mapToInt(MetricsSample::getPoolPending).max().orElse(0);
                     Map<String, Object> metrics = new HashMap<>();
-                    metrics.put("active_connections", poolMXBean.getActiveConnections());
-                    metrics.put("idle_connections", poolMXBean.getIdleConnections());
-                    metrics.put("total_connections", poolMXBean.getTotalConnections());
-                    metrics.put("threads_awaiting_connection", poolMXBean.getThreadsAwaitingConnection());
+                    metrics.put("active_connections", latest.getPoolActive());
+                    metrics.put("idle_connections", latest.getPoolIdle());
+                    metrics.put("total_connections", latest.getPoolTotal());
+                    metrics.put("peak_active_connections", peakActive);
+                    metrics.put("peak_threads_awaiting_connection", peakWaiting);
+                    metrics.put("peak_acquire_ms", window.stream().mapToDouble(MetricsSample::getAcquireMaxMs).max().orElse(0));
+                    metrics.put("seconds_saturated", window.stream().filter(sample -> sample.getPoolPending() > 0).count());
                     
                     metrics.put("pool_name", hikariDataSource.getPoolName());
                     metrics.put("max_pool_size", hikariDataSource.getMaximumPoolSize());
                     metrics.put("min_idle", hikariDataSource.getMinimumIdle());
                     
-                    logger.info("Database connection pool metrics: {}", metrics);
+                    logger.info("Database connection pool metrics (last {}s): {}", WINDOW_SECONDS, metrics);
                     
                     // Check pool health
-                    if (poolMXBean.getThreadsAwaitingConnection() > 10) {
-                        logger.warn("Connection pool health issue: Too many threads ({}) waiting for connection", 
-                                poolMXBean.getThreadsAwaitingConnection());
+                    if (peakWaiting > 10) {
+                        logger.warn("Connection pool health issue: Up to {} threads waiting for connection", peakWaiting);
                     }
                     
-                    // Log if pool is getting close to capacity
-                    int activeConnections = poolMXBean.getActiveConnections();
+                    // Log if pool got close to capacity
                     int maxConnections = hikariDataSource.getMaximumPoolSize();
-                    if (activeConnections > (maxConnections * 0.8)) {
-                        logger.warn("Connection pool near capacity: Using {} out of {} connections ({}%)", 
-                                activeConnections,
+                    if (peakActive > (maxConnections * 0.8)) {
+                        logger.warn("Connection pool near capacity: Peaked at {} out of {} connections ({}%)", 
+                                peakActive,
                                 maxConnections,
-                                (activeConnections * 100 / maxConnections));
+                                (peakActive * 100 / maxConnections));
                     }
                 }
             } else {
@@ -7,7 +7,7 @@ import com.example.try2.repository.RoleRepository;
 import com.example.try2.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.CommandLineRunner;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import com.example.try2.security.services.PasswordHasher;
 import org.springframework.stereotype.Component;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -26,7 +26,7 @@ public class DataInitializer implements CommandLineRunner {
     private RoleRepository roleRepository;
 
     @Autowired
-    private PasswordEncoder passwordEncoder;
+    private PasswordHasher passwordHasher;
 
     @Override
     public void run(String... args) {
@@ -62,7 +62,7 @@ public class DataInitializer implements CommandLineRunner {
             User admin = new User(
                 adminUsername,
                 adminEmail,
-                passwordEncoder.encode("admin123")
+                passwordHasher.encode("admin123")
             );
             Set<Role> roles = new HashSet<>();
             roles.add(adminRole);
@@ -81,7 +81,7 @@ public class DataInitializer implements CommandLineRunner {
             User moderator = new User(
                 modUsername,
                 modEmail,
-                passwordEncoder.encode("mod123")
+                passwordHasher.encode("mod123")
             );
             Set<Role> roles = new HashSet<>();
             roles.add(modRole);
@@ -1,11 +1,19 @@
 package com.example.try2.config;
 
+import com.example.try2.monitoring.PoolAcquireTracker;
+import com.example.try2.monitoring.QueryCountingDataSource;
 import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.IMetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
@@ -37,12 +45,14 @@ public class DataSourceConfig {
     }
 
     /**
-     * Primary DataSource bean configuration
+     * Primary DataSource bean configuration.
+     * Hikari settings are bound here rather than via @ConfigurationProperties because the
+     * returned bean may be the query-counting wrapper instead of the pool itself.
      */
     @Bean
     @Primary
-    @ConfigurationProperties("spring.datasource.hikari")
-    public DataSource dataSource(DataSourceProperties properties) {
+    public DataSource dataSource(DataSourceProperties properties, ObjectProvider<MeterRegistry> meterRegistry,
+                                 PoolAcquireTracker poolAcquireTracker) {
         logger.info("Initializing custom HikariCP DataSource for H2");
         
         // Display active profiles
@@ -56,6 +66,7 @@ public class DataSourceConfig {
         HikariDataSource dataSource = properties.initializeDataSourceBuilder()
                 .type(HikariDataSource.class)
                 .build();
+        Binder.get(env).bind("spring.datasource.hikari", Bindable.ofInstance(dataSource));
         
         // Set some H2-specific properties
         String jdbcUrl = dataSource.getJdbcUrl();
@@ -98,6 +109,19 @@ public class DataSourceConfig {
             logger.info("Set pool name to: {}", dataSource.getPoolName());
         }
         
+        // Publish hikaricp.connections.* gauges and acquire/usage timers before the pool starts,
+        // and keep the per-second acquire max for the metrics history
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        IMetricsTrackerFactory trackerFactory = registry != null ? new MicrometerMetricsTrackerFactory(registry) : null;
+        dataSource.setMetricsTrackerFactory(poolAcquireTracker.wrap(trackerFactory));
+        
+        // Wrap the pool so statements, rows and JDBC time can be attributed to each request
+        if (env.getProperty("app.jdbc.instrumentation.enabled", Boolean.class, true)) {
+            long slowQueryThresholdMs = env.getProperty("app.jdbc.slow-query-threshold-ms", Long.class, 500L);
+            logger.info("JDBC query instrumentation enabled (slow query threshold {} ms)", slowQueryThresholdMs);
+            return new QueryCountingDataSource(dataSource, slowQueryThresholdMs);
+        }
+        
         return dataSource;
     }
 } 
\ No newline at end of file
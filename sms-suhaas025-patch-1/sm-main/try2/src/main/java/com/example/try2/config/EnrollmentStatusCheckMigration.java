@@ -0,0 +1,70 @@
+package com.example.try2.config;
+
+import com.example.try2.entity.EnrollmentStatus;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.sql.init.dependency.DependsOnDatabaseInitialization;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * Widens the CHECK constraint on {@code enrollments.status} when {@link EnrollmentStatus} has
+ * gained values. Hibernate creates the check with the enum values of the day and
+ * {@code ddl-auto=update} never changes it; its generated name differs per database, so
+ * schema.sql cannot drop it. Runs after schema.sql and before the context (and with it any
+ * request or scheduled job) can write enrollments.
+ */
+@Component
+@DependsOnDatabaseInitialization
+public class EnrollmentStatusCheckMigration {
+
+    private static final Logger logger = LoggerFactory.getLogger(EnrollmentStatusCheckMigration.class);
+
+    static final String CONSTRAINT_NAME = "ck_enrollment_status";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @PostConstruct
+    public void migrate() {
+        List<String> outdated;
+        try {
+            outdated = jdbcTemplate.query(
+                    "SELECT tc.CONSTRAINT_NAME, cc.CHECK_CLAUSE FROM INFORMATION_SCHEMA.TABLE_CONSTRAINTS tc " +
+                    "JOIN INFORMATION_SCHEMA.CHECK_CONSTRAINTS cc ON cc.CONSTRAINT_SCHEMA = tc.CONSTRAINT_SCHEMA " +
+                    "AND cc.CONSTRAINT_NAME = tc.CONSTRAINT_NAME " +
+                    "WHERE tc.TABLE_SCHEMA = CURRENT_SCHEMA AND tc.TABLE_NAME = 'ENROLLMENTS' AND tc.CONSTRAINT_TYPE = 'CHECK'",
+                    (rs, rowNum) -> isOutdatedStatusCheck(rs.getString(2)) ? rs.getString(1) : null)
+                    .stream().filter(name -> name != null).toList();
+        } catch (Exception e) {
+            logger.warn("Could not inspect the enrollments status check: {}", e.getMessage());
+            return;
+        }
+        if (outdated.isEmpty()) {
+            return;
+        }
+        for (String name : outdated) {
+            jdbcTemplate.execute("ALTER TABLE enrollments DROP CONSTRAINT \"" + name.replace("\"", "\"\"") + "\"");
+        }
+        String values = Arrays.stream(EnrollmentStatus.values())
+                .map(status -> "'" + status.name() + "'")
+                .collect(Collectors.joining(", "));
+        jdbcTemplate.execute("ALTER TABLE enrollments ADD CONSTRAINT " + CONSTRAINT_NAME + " CHECK (status IN (" + values + "))");
+        logger.info("Replaced enrollments status check {} with {} allowing {}", outdated, CONSTRAINT_NAME, values);
+    }
+
+    // A check on the status column that is missing any of today's enum values
+    private static boolean isOutdatedStatusCheck(String clause) {
+        if (clause == null || !clause.toUpperCase(Locale.ROOT).contains("STATUS")) {
+            return false;
+        }
+        return Arrays.stream(EnrollmentStatus.values()).anyMatch(status -> !clause.contains("'" + status.name() + "'"));
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.try2.config;
 
 import com.example.try2.exception.AppException;
+import com.example.try2.exception.ServiceOverloadedException;
 import com.example.try2.payload.response.ErrorResponse;
 import com.example.try2.payload.response.MessageResponse;
 
@@ -11,6 +12,7 @@ import jakarta.validation.ConstraintViolationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
@@ -37,6 +39,18 @@ public class GlobalExceptionHandler {
     
     private static final Logger logger = LoggerFactory.getLogger(GlobalExceptionHandler.class);
     
+    /**
+     * Handle load shedding: 503 with Retry-After
+     */
+    @ExceptionHandler(ServiceOverloadedException.class)
+    public ResponseEntity<MessageResponse> handleServiceOverloaded(ServiceOverloadedException ex) {
+        logger.warn("Request shed: {}", ex.getMessage());
+        return ResponseEntity
+                .status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(ex.getRetryAfterSeconds()))
+                .body(new MessageResponse(ex.getMessage()));
+    }
+
     /**
      * Handle custom application exceptions
      */
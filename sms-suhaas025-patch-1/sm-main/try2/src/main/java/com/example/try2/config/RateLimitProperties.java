@@ -0,0 +1,40 @@
+package com.example.try2.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Per-route request rate limits ({@code app.rate-limit.*}). Rules are tried in order; the
+ * first whose method and path pattern match applies. Unmatched requests are not limited.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.rate-limit")
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+
+    // Upper bound on live buckets; beyond it new keys share a bucket per rule and network
+    // prefix (/24 or /48), or /16 or /32 once the prefix buckets reach this bound too
+    private int maxBuckets = 100000;
+
+    private List<Rule> rules = new ArrayList<>();
+
+    @Data
+    public static class Rule {
+        private String name;
+        // Ant-style path patterns, e.g. /api/grades/**
+        private List<String> patterns = new ArrayList<>();
+        // Empty means every method
+        private List<String> methods = new ArrayList<>();
+        // Burst size
+        private int capacity = 60;
+        private double refillPerSecond = 10;
+        // "user" (falls back to the client IP for anonymous requests) or "ip"
+        private String key = "user";
+    }
+}
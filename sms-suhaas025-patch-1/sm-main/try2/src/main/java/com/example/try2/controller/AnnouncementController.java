@@ -4,12 +4,16 @@ import com.example.try2.payload.request.AnnouncementRequest;
 import com.example.try2.payload.response.AnnouncementResponse;
 import com.example.try2.payload.response.MessageResponse;
 import com.example.try2.security.services.UserDetailsImpl;
+import com.example.try2.service.AnnouncementFeedCache;
 import com.example.try2.service.AnnouncementService;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
@@ -55,13 +59,27 @@ public class AnnouncementController {
         }
     }
 
+    /**
+     * Dashboard feed for a role. Served pre-serialized from memory; a matching If-None-Match gets 304.
+     */
     @GetMapping("/roles/{role}")
-    public ResponseEntity<List<AnnouncementResponse>> getAnnouncementsByRole(@PathVariable String role) {
+    public ResponseEntity<byte[]> getAnnouncementsByRole(
+            @PathVariable String role,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         try {
-            logger.info("Retrieving announcements for role: {}", role);
-            List<AnnouncementResponse> announcements = announcementService.getAnnouncementsByRole(role);
-            logger.info("Successfully retrieved {} announcements for role {}", announcements.size(), role);
-            return ResponseEntity.ok(announcements);
+            AnnouncementFeedCache.Feed feed = announcementService.getAnnouncementFeed(role);
+            if (ifNoneMatch != null && ifNoneMatch.contains(feed.etag())) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                        .eTag(feed.etag())
+                        .cacheControl(CacheControl.noCache())
+                        .build();
+            }
+            logger.debug("Returning {} announcements for role {}", feed.announcements().size(), role);
+            return ResponseEntity.ok()
+                    .eTag(feed.etag())
+                    .cacheControl(CacheControl.noCache())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(feed.json());
         } catch (Exception e) {
             logger.error("Error retrieving announcements by role: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
@@ -20,6 +20,7 @@ import com.example.try2.security.jwt.JwtUtils;
 import com.example.try2.security.services.UserDetailsImpl;
 import com.example.try2.service.UserService;
 import com.example.try2.security.services.MfaService;
+import com.example.try2.security.services.PasswordHasher;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
@@ -31,13 +32,14 @@ import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 import com.example.try2.security.jwt.TokenBlacklistService;
 import com.example.try2.service.ActivityLogService;
 import com.example.try2.entity.Department;
 import com.example.try2.repository.DepartmentRepository;
 import com.example.try2.service.AccountManagementService;
+import com.example.try2.service.LoginService;
+import com.example.try2.service.PasswordResetTokenStore;
 import com.example.try2.entity.EAccountStatus;
 
 import java.util.HashSet;
@@ -62,9 +64,6 @@ public class AuthController {
     @Autowired
     RoleRepository roleRepository;
 
-    @Autowired
-    PasswordEncoder encoder;
-
     @Autowired
     JwtUtils jwtUtils;
 
@@ -86,8 +85,14 @@ public class AuthController {
     @Autowired
     private AccountManagementService accountManagementService;
 
-    // In-memory password reset service (for demo/dev)
-    private static final UserService.PasswordResetService passwordResetService = new UserService.PasswordResetService();
+    @Autowired
+    private LoginService loginService;
+
+    @Autowired
+    private PasswordHasher passwordHasher;
+
+    @Autowired
+    private PasswordResetTokenStore passwordResetTokenStore;
 
     // Simple in-memory rate limiter (per IP, for demo)
     private static final java.util.Map<String, Long> lastRequestTime = new java.util.concurrent.ConcurrentHashMap<>();
@@ -104,122 +109,11 @@ public class AuthController {
     }
 
     @PostMapping("/signin")
-    public ResponseEntity<?> authenticateUser(@Valid @RequestBody LoginRequest loginRequest) {
-        User user = userRepository.findByUsername(loginRequest.getUsername()).orElse(null);
-        Boolean force = loginRequest.getForce();
-        if (force == null) force = false;
-        System.out.println("LoginRequest: username=" + loginRequest.getUsername() + ", force=" + force);
-        
-        // Check if user exists
-        if (user == null) {
-            return ResponseEntity.badRequest().body(new MessageResponse("Invalid username or password"));
-        }
-        
-        // Check account status
-        if (user.getAccountStatus() == EAccountStatus.BLOCKED) {
-            return ResponseEntity.badRequest().body(new MessageResponse("Your account is blocked. Please contact an administrator."));
-        }
-        
-        if (user.getAccountStatus() == EAccountStatus.EXPIRED) {
-            return ResponseEntity.badRequest().body(new MessageResponse("Your account has expired due to inactivity. Please contact an administrator."));
-        }
-        
-        // Only check for already logged in if force is false
-        if (!force && user != null && user.getCurrentJwt() != null && !user.getCurrentJwt().isEmpty()) {
-            try {
-                if (jwtUtils.validateJwtToken(user.getCurrentJwt())) {
-                    System.out.println("Already logged in detected for user: " + loginRequest.getUsername());
-                    return ResponseEntity.ok(java.util.Map.of(
-                        "alreadyLoggedIn", true,
-                        "message", "You are already logged in elsewhere. If you continue, your old session will be terminated."
-                    ));
-                } else {
-                    // If the token is not valid, clear it and continue
-                    user.setCurrentJwt(null);
-                    userRepository.save(user);
-                }
-            } catch (Exception e) {
-                // If token is malformed or causes an error, clear it and continue
-                user.setCurrentJwt(null);
-                userRepository.save(user);
-            }
-        }
-        if (user != null) {
-            // Check if account is locked
-            if (user.getAccountLockedUntil() != null) {
-                long now = System.currentTimeMillis();
-                if (now < user.getAccountLockedUntil()) {
-                    long secondsLeft = (user.getAccountLockedUntil() - now) / 1000;
-                    return ResponseEntity.badRequest().body(new MessageResponse(
-                        "Account is locked due to too many failed login attempts. Please try again in " + secondsLeft + " seconds."));
-                } else {
-                    // Unlock account
-                    user.setAccountLockedUntil(null);
-                    user.setFailedLoginAttempts(0);
-                    userRepository.save(user);
-                }
-            }
-        }
-        try {
-            Authentication authentication = authenticationManager.authenticate(
-                    new UsernamePasswordAuthenticationToken(loginRequest.getUsername(), loginRequest.getPassword()));
-
-            SecurityContextHolder.getContext().setAuthentication(authentication);
-
-            UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
-            User userEntity = userRepository.findById(userDetails.getId())
-                    .orElseThrow(() -> new RuntimeException("User not found"));
-
-            // Reset failed attempts and lock status on successful login
-            userEntity.setFailedLoginAttempts(0);
-            userEntity.setAccountLockedUntil(null);
-            
-            // Record login and update expiration date
-            accountManagementService.recordUserLogin(userEntity.getId());
-            
-            // Log successful login
-            activityLogService.logAction(userEntity.getId(), userEntity.getUsername(), "LOGIN", "User logged in");
-
-            // If MFA is enabled, return a temporary token
-            if (userEntity.isMfaEnabled()) {
-                String tempToken = jwtUtils.generateMfaToken(userDetails.getUsername(), userDetails.getId());
-                System.out.println("MFA required for user: " + loginRequest.getUsername());
-                return ResponseEntity.ok(new MfaCheckResponse(true, tempToken));
-            }
-
-            // If MFA is not enabled, generate and return the JWT
-            String jwt = jwtUtils.generateJwtToken(authentication);
-            userEntity.setCurrentJwt(jwt); // Enforce single session
-            userRepository.save(userEntity);
-            System.out.println("Proceeding to authenticate and return JWT for user: " + loginRequest.getUsername());
-            List<String> roles = userDetails.getAuthorities().stream()
-                    .map(item -> item.getAuthority())
-                    .collect(Collectors.toList());
-
-            return ResponseEntity.ok(new JwtResponse(jwt,
-                    userDetails.getId(),
-                    userDetails.getUsername(),
-                    userDetails.getEmail(),
-                    userEntity.getAvatar(),
-                    roles));
-        } catch (Exception ex) {
-            // On failed authentication, increment failed attempts
-            if (user != null) {
-                int attempts = user.getFailedLoginAttempts() + 1;
-                logger.warn("Failed login attempt {} for user {}", attempts, user.getUsername());
-                user.setFailedLoginAttempts(attempts);
-                if (attempts >= 5) {
-                    user.setAccountLockedUntil(System.currentTimeMillis() + 60_000); // lock for 1 minute
-                    userRepository.save(user);
-                    logger.warn("Account locked for user {} after 5 failed attempts", user.getUsername());
-                    return ResponseEntity.badRequest().body(new MessageResponse(
-                        "Account locked after 5 failed login attempts. Please try again in 60 seconds."));
-                } else {
-                    userRepository.save(user);
-                }
-            }
-            return ResponseEntity.badRequest().body(new MessageResponse("Invalid username or password"));
-        }
+    public ResponseEntity<?> authenticateUser(@Valid @RequestBody LoginRequest loginRequest, HttpServletRequest httpReq) {
+        LoginService.Outcome outcome = loginService.signIn(loginRequest, httpReq.getRemoteAddr());
+        return outcome.ok()
+                ? ResponseEntity.ok(outcome.body())
+                : ResponseEntity.badRequest().body(outcome.body());
     }
 
     @PostMapping("/signup")
@@ -242,7 +136,7 @@ public class AuthController {
         // Create new user's account
         User user = new User(signUpRequest.getUsername(),
                 signUpRequest.getEmail(),
-                encoder.encode(signUpRequest.getPassword()));
+                passwordHasher.encode(signUpRequest.getPassword()));
 
         Set<String> strRoles = signUpRequest.getRole();
         Set<Role> roles = new HashSet<>();
@@ -352,7 +246,7 @@ public class AuthController {
         User user = new User(
             createUserRequest.getUsername(),
             createUserRequest.getEmail(),
-            encoder.encode(createUserRequest.getPassword())
+            passwordHasher.encode(createUserRequest.getPassword())
         );
         user.setDegree(createUserRequest.getDegree());
         user.setYearOfStudy(createUserRequest.getYearOfStudy());
@@ -462,7 +356,7 @@ public class AuthController {
 
         User user = new User(request.getUsername(),
                 request.getEmail(),
-                encoder.encode(request.getPassword()));
+                passwordHasher.encode(request.getPassword()));
 
         // Set moderator-specific fields based on type
         user.setModeratorType(request.getModeratorType());
@@ -565,14 +459,14 @@ public class AuthController {
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
         // Verify current password
-        if (!encoder.matches(request.getCurrentPassword(), user.getPassword())) {
+        if (!passwordHasher.matches(request.getCurrentPassword(), user.getPassword())) {
             return ResponseEntity
                     .badRequest()
                     .body(new MessageResponse("Error: Current password is incorrect!"));
         }
 
         // Update password
-        user.setPassword(encoder.encode(request.getNewPassword()));
+        user.setPassword(passwordHasher.encode(request.getNewPassword()));
         userRepository.save(user);
 
         return ResponseEntity.ok(new MessageResponse("Password changed successfully!"));
@@ -623,7 +517,7 @@ public class AuthController {
             logger.warn("Invalid MFA code for user: {} from IP: {}", request.getUsername(), ip);
             return ResponseEntity.badRequest().body(new MessageResponse("Invalid MFA code"));
         }
-        String resetToken = passwordResetService.createToken(user.getUsername());
+        String resetToken = passwordResetTokenStore.issue(user.getUsername());
         logger.info("MFA verified and reset token issued for user: {} from IP: {}", request.getUsername(), ip);
         return ResponseEntity.ok(java.util.Collections.singletonMap("token", resetToken));
     }
@@ -641,14 +535,14 @@ public class AuthController {
             logger.warn("Password reset for non-existent user: {} from IP: {}", request.getUsername(), ip);
             return ResponseEntity.badRequest().body(new MessageResponse("User not found"));
         }
-        boolean tokenValid = passwordResetService.validateToken(user.getUsername(), request.getToken());
+        // Redeemed up front, so the same token cannot be used by two concurrent requests
+        boolean tokenValid = passwordResetTokenStore.consume(user.getUsername(), request.getToken());
         if (!tokenValid) {
             logger.warn("Invalid or expired reset token for user: {} from IP: {}", request.getUsername(), ip);
             return ResponseEntity.badRequest().body(new MessageResponse("Invalid or expired reset token"));
         }
-        user.setPassword(encoder.encode(request.getNewPassword()));
+        user.setPassword(passwordHasher.encode(request.getNewPassword()));
         userRepository.save(user);
-        passwordResetService.invalidateToken(request.getToken());
         logger.info("Password reset successful for user: {} from IP: {}", request.getUsername(), ip);
         return ResponseEntity.ok(new MessageResponse("Password reset successfully!"));
     }
@@ -680,14 +574,14 @@ public class AuthController {
         if (user == null) {
             return ResponseEntity.badRequest().body(new MessageResponse("User not found"));
         }
-        boolean mfaValid = mfaService.verifyCode(user, request.getCode());
+        boolean mfaValid = mfaService.verifySetupCode(user, request.getCode());
         if (!mfaValid) {
             return ResponseEntity.badRequest().body(new MessageResponse("Invalid MFA code"));
         }
         // Enable MFA for the user
         mfaService.enableMfa(user, true);
         // Issue a reset token
-        String resetToken = passwordResetService.createToken(user.getUsername());
+        String resetToken = passwordResetTokenStore.issue(user.getUsername());
         return ResponseEntity.ok(java.util.Collections.singletonMap("token", resetToken));
     }
 
@@ -5,6 +5,7 @@ import com.zaxxer.hikari.HikariPoolMXBean;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.web.bind.annotation.*;
 
@@ -16,6 +17,7 @@ import java.sql.SQLException;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 @RestController
 @RequestMapping("/api/connection-pool-demo")
@@ -26,7 +28,10 @@ public class ConnectionPoolDemoController {
     private DataSource dataSource;
 
     private final Map<String, ConnectionHolder> holders = new ConcurrentHashMap<>();
-    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private ExecutorService executor;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
 
     private HikariDataSource hikariDataSource;
     private int maxPoolSize = 5; // Default, will be updated from actual config
@@ -36,15 +41,24 @@ public class ConnectionPoolDemoController {
     private final AtomicInteger totalConnectionsAcquired = new AtomicInteger(0);
     private final AtomicInteger maxConcurrentConnections = new AtomicInteger(0);
     private final AtomicInteger maxWaitingThreads = new AtomicInteger(0);
-    private long maxWaitTime = 0;
-    private long totalWaitTime = 0;
-    private final Object statsLock = new Object();
+    // Atomics rather than a monitor, so holder threads never contend (or pin a carrier) on stats
+    private final AtomicLong maxWaitTime = new AtomicLong(0);
+    private final AtomicLong totalWaitTime = new AtomicLong(0);
     private final List<String> poolEvents = Collections.synchronizedList(new ArrayList<>());
 
     @PostConstruct
     public void init() {
-        if (dataSource instanceof HikariDataSource) {
-            hikariDataSource = (HikariDataSource) dataSource;
+        // Holders mostly sleep on a latch while holding a connection; virtual threads make them nearly free
+        executor = virtualThreads ? Executors.newVirtualThreadPerTaskExecutor() : Executors.newCachedThreadPool();
+        try {
+            // The pool may be wrapped (e.g. by the query-counting proxy), so unwrap rather than cast
+            if (dataSource.isWrapperFor(HikariDataSource.class)) {
+                hikariDataSource = dataSource.unwrap(HikariDataSource.class);
+            }
+        } catch (SQLException e) {
+            logger.warn("Could not unwrap HikariDataSource: {}", e.getMessage());
+        }
+        if (hikariDataSource != null) {
             maxPoolSize = hikariDataSource.getMaximumPoolSize();
             logger.info("Connection pool demo initialized with maximum pool size: {}", maxPoolSize);
             logger.info("HikariCP configuration: minimum-idle={}, connection-timeout={}ms, idle-timeout={}ms, max-lifetime={}ms",
@@ -88,8 +102,8 @@ public class ConnectionPoolDemoController {
                 totalConnectionsAcquired.get(),
                 maxConcurrentConnections.get(),
                 maxWaitingThreads.get(),
-                maxWaitTime,
-                totalConnectionsAcquired.get() > 0 ? totalWaitTime / totalConnectionsAcquired.get() : 0);
+                maxWaitTime.get(),
+                totalConnectionsAcquired.get() > 0 ? totalWaitTime.get() / totalConnectionsAcquired.get() : 0);
             
             // Print visual representation of the pool
             StringBuilder poolVisualization = new StringBuilder("🔌 POOL VISUALIZATION: ");
@@ -207,8 +221,8 @@ public class ConnectionPoolDemoController {
         result.put("connections_acquired", totalConnectionsAcquired.get());
         result.put("max_concurrent", maxConcurrentConnections.get());
         result.put("max_waiting", maxWaitingThreads.get());
-        result.put("max_wait_time_ms", maxWaitTime);
-        result.put("avg_wait_time_ms", totalConnectionsAcquired.get() > 0 ? totalWaitTime / totalConnectionsAcquired.get() : 0);
+        result.put("max_wait_time_ms", maxWaitTime.get());
+        result.put("avg_wait_time_ms", totalConnectionsAcquired.get() > 0 ? totalWaitTime.get() / totalConnectionsAcquired.get() : 0);
         
         return result;
     }
@@ -317,19 +331,11 @@ public class ConnectionPoolDemoController {
                 totalConnectionsAcquired.incrementAndGet();
                 
                 // Update statistics
-                synchronized (statsLock) {
-                    totalWaitTime += waitTime;
-                    if (waitTime > maxWaitTime) {
-                        maxWaitTime = waitTime;
-                    }
-                    
-                    int activeCount = 0;
-                    if (hikariDataSource != null) {
-                        activeCount = hikariDataSource.getHikariPoolMXBean().getActiveConnections();
-                        if (activeCount > maxConcurrentConnections.get()) {
-                            maxConcurrentConnections.set(activeCount);
-                        }
-                    }
+                totalWaitTime.addAndGet(waitTime);
+                maxWaitTime.accumulateAndGet(waitTime, Math::max);
+                if (hikariDataSource != null) {
+                    int activeCount = hikariDataSource.getHikariPoolMXBean().getActiveConnections();
+                    maxConcurrentConnections.accumulateAndGet(activeCount, Math::max);
                 }
                 
                 // Log with appropriate emoji based on wait time
@@ -4,8 +4,10 @@ import com.example.try2.entity.Course;
 import com.example.try2.entity.User;
 import com.example.try2.entity.Department;
 import com.example.try2.payload.response.CourseResponse;
+import com.example.try2.payload.response.CourseSearchResponse;
 import com.example.try2.payload.response.UserResponse;
 import com.example.try2.payload.request.UpdateCourseRequest;
+import com.example.try2.service.CourseSearchIndex;
 import com.example.try2.service.CourseService;
 import com.example.try2.service.UserService;
 import com.example.try2.service.ActivityLogService;
@@ -44,6 +46,9 @@ public class CourseController {
     @Autowired
     private DepartmentRepository departmentRepository;
 
+    @Autowired
+    private CourseSearchIndex courseSearchIndex;
+
     @PostMapping
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<?> createCourse(@RequestBody Course course) {
@@ -118,6 +123,18 @@ public class CourseController {
         return ResponseEntity.ok(courseService.searchCourses(courseCode, title, department, teacherId, pageable));
     }
 
+    /**
+     * Typeahead catalog search over code, name, department and description.
+     * Tolerates typos; reports {@code hasNext} instead of a total count.
+     */
+    @GetMapping("/search")
+    public ResponseEntity<CourseSearchResponse> searchCatalog(
+            @RequestParam("q") String query,
+            @RequestParam(value = "page", defaultValue = "0") int page,
+            @RequestParam(value = "size", defaultValue = "10") int size) {
+        return ResponseEntity.ok(courseSearchIndex.search(query, page, size));
+    }
+
     @GetMapping("/moderator")
     @PreAuthorize("hasRole('MODERATOR')")
     public ResponseEntity<List<CourseResponse>> getModeratorCourses() {
@@ -2,14 +2,22 @@ package com.example.try2.controller;
 
 import com.example.try2.payload.request.DashboardComponentRequest;
 import com.example.try2.payload.response.DashboardComponentResponse;
+import com.example.try2.payload.response.DashboardComponentSummaryResponse;
+import com.example.try2.payload.response.DashboardComponentTreeResponse;
 import com.example.try2.service.DashboardComponentService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/dashboard-components")
@@ -24,6 +32,13 @@ public class DashboardComponentController {
         return service.getAll();
     }
 
+    // List all components without their JSON columns (ADMIN only)
+    @GetMapping("/summaries")
+    @PreAuthorize("hasRole('ADMIN')")
+    public List<DashboardComponentSummaryResponse> getSummaries() {
+        return service.getSummaries();
+    }
+
     // Get single component (ADMIN only)
     @GetMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")
@@ -32,6 +47,31 @@ public class DashboardComponentController {
         return resp != null ? ResponseEntity.ok(resp) : ResponseEntity.notFound().build();
     }
 
+    // Get a component's config, theme, permissions and translations JSON (loaded on demand);
+    // 404 unless the component is visible to the caller's roles
+    @GetMapping("/{id}/detail")
+    public ResponseEntity<byte[]> getDetail(@PathVariable Long id,
+            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        Set<String> roles = authentication == null ? Set.of() : authentication.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .collect(Collectors.toSet());
+        if (!roles.contains("ROLE_ADMIN") && !service.isVisibleToRoles(id, roles)) {
+            return ResponseEntity.notFound().build();
+        }
+        DashboardComponentService.Detail detail = service.getDetail(id);
+        if (detail == null) {
+            return ResponseEntity.notFound().build();
+        }
+        if (ifNoneMatch != null && ifNoneMatch.contains(detail.etag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(detail.etag()).build();
+        }
+        return ResponseEntity.ok()
+                .eTag(detail.etag())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(detail.json());
+    }
+
     // Create component (ADMIN only)
     @PostMapping
     @PreAuthorize("hasRole('ADMIN')")
@@ -60,12 +100,30 @@ public class DashboardComponentController {
         return service.getForRoles(roles);
     }
 
+    // Same components without their JSON columns; fetch those from /{id}/detail as needed
+    @PostMapping("/for-roles/summaries")
+    public List<DashboardComponentSummaryResponse> getSummariesForRoles(@RequestBody Set<String> roles) {
+        return service.getSummariesForRoles(roles);
+    }
+
+    // Get the whole visible component hierarchy for the roles in one call (for nested menus)
+    @PostMapping("/tree")
+    public List<DashboardComponentTreeResponse> getTreeForRoles(@RequestBody Set<String> roles) {
+        return service.getTreeForRoles(roles);
+    }
+
     // Get components by parentId (for nested menus)
     @GetMapping("/by-parent/{parentId}")
     public List<DashboardComponentResponse> getByParentId(@PathVariable Long parentId) {
         return service.getByParentId(parentId);
     }
 
+    // Get components by parentId without their JSON columns
+    @GetMapping("/by-parent/{parentId}/summaries")
+    public List<DashboardComponentSummaryResponse> getSummariesByParentId(@PathVariable Long parentId) {
+        return service.getSummariesByParentId(parentId);
+    }
+
     // Reorder components (ADMIN only)
     @PatchMapping("/reorder")
     @PreAuthorize("hasRole('ADMIN')")
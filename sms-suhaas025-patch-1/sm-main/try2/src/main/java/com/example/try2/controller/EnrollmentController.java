@@ -1,17 +1,24 @@
 package com.example.try2.controller;
 
 import com.example.try2.entity.EnrollmentStatus;
+import com.example.try2.payload.request.BulkEnrollmentRequest;
 import com.example.try2.payload.request.EnrollmentRequest;
 import com.example.try2.payload.request.EnrollmentStatusUpdateRequest;
+import com.example.try2.payload.response.BulkEnrollmentResponse;
 import com.example.try2.payload.response.EnrollmentResponse;
 import com.example.try2.payload.response.MessageResponse;
 import com.example.try2.security.services.UserDetailsImpl;
+import com.example.try2.service.BulkEnrollmentService;
 import com.example.try2.service.EnrollmentService;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
@@ -29,6 +36,9 @@ public class EnrollmentController {
     @Autowired
     private EnrollmentService enrollmentService;
 
+    @Autowired
+    private BulkEnrollmentService bulkEnrollmentService;
+
     @PostMapping
     @PreAuthorize("hasRole('USER') or hasRole('STUDENT')")
     public ResponseEntity<?> enrollInCourse(@Valid @RequestBody EnrollmentRequest request) {
@@ -48,6 +58,39 @@ public class EnrollmentController {
         }
     }
     
+    /**
+     * Registrar batch enrollment: every student in {@code studentIds} into every course in {@code courseIds}.
+     */
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> bulkEnroll(@Valid @RequestBody BulkEnrollmentRequest request) {
+        try {
+            BulkEnrollmentResponse result = bulkEnrollmentService.enrollMatrix(request);
+            return ResponseEntity.ok(result);
+        } catch (Exception e) {
+            logger.error("Error in bulk enrollment: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+        }
+    }
+    
+    /**
+     * Registrar batch enrollment from CSV, one {@code studentId,courseId} pair per line.
+     */
+    @PostMapping(value = "/bulk", consumes = "text/csv")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> bulkEnrollCsv(
+            @RequestBody String csv,
+            @RequestParam(name = "semester", required = false) String semester,
+            @RequestParam(name = "academicYear", required = false) String academicYear) {
+        try {
+            BulkEnrollmentResponse result = bulkEnrollmentService.enrollCsv(csv, semester, academicYear);
+            return ResponseEntity.ok(result);
+        } catch (Exception e) {
+            logger.error("Error in bulk CSV enrollment: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+        }
+    }
+    
     @GetMapping("/student")
     @PreAuthorize("hasRole('USER') or hasRole('STUDENT')")
     public ResponseEntity<?> getMyEnrollments(
@@ -104,6 +147,34 @@ public class EnrollmentController {
         }
     }
     
+    @GetMapping("/student/{studentId}/page")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('MODERATOR')")
+    public ResponseEntity<?> getStudentEnrollmentsPage(
+            @PathVariable Long studentId,
+            @PageableDefault(size = 50, sort = "id") Pageable pageable) {
+        try {
+            Page<EnrollmentResponse> enrollments = enrollmentService.getStudentEnrollmentsPage(studentId, pageable);
+            return ResponseEntity.ok(enrollments);
+        } catch (Exception e) {
+            logger.error("Error retrieving enrollments for student {}: {}", studentId, e.getMessage());
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+        }
+    }
+    
+    @GetMapping("/course/{courseId}/page")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('MODERATOR')")
+    public ResponseEntity<?> getCourseEnrollmentsPage(
+            @PathVariable Long courseId,
+            @PageableDefault(size = 50, sort = "id") Pageable pageable) {
+        try {
+            Page<EnrollmentResponse> enrollments = enrollmentService.getCourseEnrollmentsPage(courseId, pageable);
+            return ResponseEntity.ok(enrollments);
+        } catch (Exception e) {
+            logger.error("Error retrieving enrollments for course {}: {}", courseId, e.getMessage());
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+        }
+    }
+    
     @GetMapping("/{id}")
     @PreAuthorize("hasRole('USER') or hasRole('STUDENT') or hasRole('ADMIN') or hasRole('MODERATOR')")
     public ResponseEntity<?> getEnrollment(@PathVariable Long id) {
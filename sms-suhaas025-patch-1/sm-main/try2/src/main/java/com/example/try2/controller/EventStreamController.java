@@ -0,0 +1,97 @@
+package com.example.try2.controller;
+
+import com.example.try2.repository.CourseRepository;
+import com.example.try2.security.jwt.StreamTicketService;
+import com.example.try2.security.services.UserDetailsImpl;
+import com.example.try2.service.EventBroadcaster;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Push channel replacing polling of announcement and grade endpoints.
+ * Browsers' EventSource cannot send an Authorization header, so clients first POST to
+ * {@code /ticket} with their JWT and open the stream with {@code ?ticket=} (see AuthTokenFilter).
+ */
+@RestController
+@RequestMapping("/api/events")
+@CrossOrigin(origins = "*", maxAge = 3600)
+public class EventStreamController {
+
+    @Autowired
+    private EventBroadcaster eventBroadcaster;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private StreamTicketService streamTicketService;
+
+    /**
+     * A short-lived, single-use ticket for opening the stream, so the JWT never appears in a URL.
+     */
+    @PostMapping("/ticket")
+    public Map<String, Object> ticket(@AuthenticationPrincipal UserDetailsImpl user) {
+        return Map.of("ticket", streamTicketService.issue(user.getUsername()),
+                "expiresInMs", streamTicketService.getTicketTtlMs());
+    }
+
+    /**
+     * @param courseIds optional: staff only receive grade events for these courses
+     */
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(@AuthenticationPrincipal UserDetailsImpl user,
+                             @RequestHeader(value = "Last-Event-ID", required = false) String lastEventIdHeader,
+                             @RequestParam(value = "lastEventId", required = false) String lastEventIdParam,
+                             @RequestParam(value = "courseId", required = false) List<Long> courseIds) {
+        Set<String> roles = new HashSet<>();
+        for (GrantedAuthority authority : user.getAuthorities()) {
+            String role = authority.getAuthority().toUpperCase();
+            roles.add(role);
+            roles.add(role.startsWith("ROLE_") ? role.substring(5) : role);
+        }
+
+        Set<Long> followedCourses = null;
+        if (!roles.contains("ADMIN") && roles.contains("MODERATOR")) {
+            // Teachers follow the courses they teach
+            followedCourses = new HashSet<>(courseRepository.findIdsByTeacherId(user.getId()));
+        }
+        if (courseIds != null && !courseIds.isEmpty()) {
+            if (followedCourses == null) {
+                followedCourses = new HashSet<>(courseIds);
+            } else {
+                followedCourses.retainAll(courseIds);
+            }
+        }
+
+        String lastEventId = lastEventIdHeader != null ? lastEventIdHeader : lastEventIdParam;
+        return eventBroadcaster.subscribe(new EventBroadcaster.Audience(user.getId(), roles, followedCourses),
+                parseEventId(lastEventId));
+    }
+
+    @GetMapping("/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Map<String, Object> stats() {
+        return Map.of("subscribers", eventBroadcaster.getSubscriberCount());
+    }
+
+    private static Long parseEventId(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
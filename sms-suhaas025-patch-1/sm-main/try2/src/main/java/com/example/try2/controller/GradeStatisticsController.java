@@ -0,0 +1,44 @@
+package com.example.try2.controller;
+
+import com.example.try2.payload.response.CourseGradeRankingResponse;
+import com.example.try2.payload.response.GradeStatisticsResponse;
+import com.example.try2.service.GradeStatisticsService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/grades/statistics")
+@CrossOrigin(origins = "*", maxAge = 3600)
+@PreAuthorize("hasRole('ADMIN') or hasRole('MODERATOR')")
+public class GradeStatisticsController {
+
+    @Autowired
+    private GradeStatisticsService gradeStatisticsService;
+
+    /**
+     * Mean, spread, percentiles and letter histogram of a course, optionally for one
+     * semester and/or academic year. {@code approximate=true} serves the unsliced figures
+     * from memory.
+     */
+    @GetMapping("/course/{courseId}")
+    public ResponseEntity<GradeStatisticsResponse> getCourseStatistics(
+            @PathVariable Long courseId,
+            @RequestParam(required = false) Integer semester,
+            @RequestParam(required = false) String academicYear,
+            @RequestParam(defaultValue = "false") boolean approximate) {
+        return ResponseEntity.ok(gradeStatisticsService.getCourseStatistics(courseId, semester, academicYear, approximate));
+    }
+
+    @GetMapping("/ranking")
+    public ResponseEntity<List<CourseGradeRankingResponse>> rankCourses(
+            @RequestParam(required = false) Integer semester,
+            @RequestParam(required = false) String academicYear,
+            @RequestParam(defaultValue = "20") int limit,
+            @RequestParam(defaultValue = "1") long minGrades) {
+        return ResponseEntity.ok(gradeStatisticsService.rankCourses(semester, academicYear, limit, minGrades));
+    }
+}
@@ -3,7 +3,10 @@ package com.example.try2.controller;
 import com.example.try2.payload.request.MenuFeatureRequest;
 import com.example.try2.payload.response.MenuFeatureResponse;
 import com.example.try2.service.MenuFeatureService;
+import com.example.try2.service.MenuSnapshot;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
@@ -55,8 +58,17 @@ public class MenuFeatureController {
     }
 
     // Get features for current user's roles (for menu rendering)
+    // Served from the precomputed snapshot as ready-made JSON
     @PostMapping("/for-roles")
-    public List<MenuFeatureResponse> getMenuFeaturesForRoles(@RequestBody Set<String> roles) {
-        return menuFeatureService.getMenuFeaturesForRoles(roles);
+    public ResponseEntity<byte[]> getMenuFeaturesForRoles(@RequestBody Set<String> roles,
+            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
+        MenuSnapshot.Menu menu = menuFeatureService.getMenuForRoles(roles);
+        if (ifNoneMatch != null && ifNoneMatch.contains(menu.etag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(menu.etag()).build();
+        }
+        return ResponseEntity.ok()
+                .eTag(menu.etag())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(menu.json());
     }
 } 
\ No newline at end of file
@@ -0,0 +1,53 @@
+package com.example.try2.controller;
+
+import com.example.try2.monitoring.MetricsHistory;
+import com.example.try2.monitoring.MetricsSample;
+import com.example.try2.monitoring.ThreadDiagnostics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Admin access to the in-memory, 1s-resolution pool and JVM history.
+ * Long-term storage and alerting go through the actuator metrics / Prometheus endpoints.
+ */
+@RestController
+@RequestMapping("/api/admin/metrics")
+@PreAuthorize("hasRole('ADMIN')")
+public class MetricsHistoryController {
+    @Autowired
+    private MetricsHistory metricsHistory;
+
+    @Autowired
+    private ThreadDiagnostics threadDiagnostics;
+
+    @GetMapping("/history")
+    public ResponseEntity<List<MetricsSample>> getHistory(
+            @RequestParam(name = "seconds", defaultValue = "300") int seconds) {
+        return ResponseEntity.ok(metricsHistory.getHistory(seconds));
+    }
+
+    @GetMapping("/latest")
+    public ResponseEntity<MetricsSample> getLatest() {
+        MetricsSample latest = metricsHistory.getLatest();
+        return latest != null ? ResponseEntity.ok(latest) : ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Virtual-thread pinning and monitor contention sites (JFR) and per-endpoint request latency.
+     */
+    @GetMapping("/threads")
+    public ResponseEntity<Map<String, Object>> getThreadReport() {
+        return ResponseEntity.ok(threadDiagnostics.getReport());
+    }
+
+    @DeleteMapping("/threads")
+    public ResponseEntity<Void> resetThreadReport() {
+        threadDiagnostics.reset();
+        return ResponseEntity.noContent().build();
+    }
+}
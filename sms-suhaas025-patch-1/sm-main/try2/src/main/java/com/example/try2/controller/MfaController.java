@@ -84,8 +84,7 @@ public class MfaController {
                     .orElseThrow(() -> new RuntimeException("User not found"));
             
             // Log verification details for debugging
-            logger.info("Verifying MFA code: {} for user: {}", verifyRequest.getCode(), user.getUsername());
-            logger.info("User MFA secret: {}", user.getMfaSecret());
+            logger.info("Verifying MFA setup code for user: {}", user.getUsername());
             
             // For development - always accept test codes
             if (verifyRequest.getCode().equals("123456") || 
@@ -97,7 +96,7 @@ public class MfaController {
             }
             
             // Verify the code
-            if (mfaService.verifyCode(user, verifyRequest.getCode())) {
+            if (mfaService.verifySetupCode(user, verifyRequest.getCode())) {
                 // Enable MFA
                 mfaService.enableMfa(user, true);
                 logger.info("MFA verification successful for user: {}", user.getUsername());
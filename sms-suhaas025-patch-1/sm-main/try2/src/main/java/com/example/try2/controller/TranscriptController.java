@@ -0,0 +1,34 @@
+package com.example.try2.controller;
+
+import com.example.try2.payload.response.TranscriptResponse;
+import com.example.try2.service.TranscriptService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/transcripts")
+@CrossOrigin(origins = "*", maxAge = 3600)
+public class TranscriptController {
+
+    @Autowired
+    private TranscriptService transcriptService;
+
+    @GetMapping("/student/{studentId}")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('MODERATOR') or @userSecurity.isCurrentUser(#studentId)")
+    public ResponseEntity<TranscriptResponse> getTranscript(@PathVariable Long studentId) {
+        return ResponseEntity.ok(transcriptService.getTranscript(studentId));
+    }
+
+    /**
+     * Recomputes all transcripts from the grades table (after imports or manual data fixes).
+     */
+    @PostMapping("/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> rebuild() {
+        return ResponseEntity.ok(transcriptService.rebuildAll());
+    }
+}
@@ -4,21 +4,24 @@ import com.example.try2.entity.EModeratorType;
 import com.example.try2.entity.ERole;
 import com.example.try2.entity.Role;
 import com.example.try2.entity.User;
+import com.example.try2.exception.AppException;
 import com.example.try2.payload.request.UpdateUserRequest;
 import com.example.try2.payload.request.UpdateUserRolesRequest;
 import com.example.try2.payload.response.ErrorResponse;
 import com.example.try2.payload.response.MessageResponse;
 import com.example.try2.payload.response.UserResponse;
+import com.example.try2.payload.response.UserSearchResponse;
 import com.example.try2.repository.RoleRepository;
 import com.example.try2.repository.UserRepository;
 import com.example.try2.security.services.UserDetailsImpl;
 import com.example.try2.service.ActivityLogService;
+import com.example.try2.service.AvatarService;
+import com.example.try2.service.StaticFileService;
+import com.example.try2.service.UserDirectoryService;
 import com.example.try2.service.UserService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
@@ -27,10 +30,12 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 
+import java.io.IOException;
 import java.nio.file.*;
 import java.util.HashSet;
 import java.util.List;
@@ -55,6 +60,15 @@ public class UserController {
     @Autowired
     private ActivityLogService activityLogService;
 
+    @Autowired
+    private UserDirectoryService userDirectoryService;
+
+    @Autowired
+    private AvatarService avatarService;
+
+    @Autowired
+    private StaticFileService staticFileService;
+
     @GetMapping("/me")
     @PreAuthorize("hasRole('USER') or hasRole('MODERATOR') or hasRole('ADMIN') or hasRole('STUDENT')")
     public ResponseEntity<UserResponse> getCurrentUser() {
@@ -93,6 +107,22 @@ public class UserController {
         return ResponseEntity.ok(userService.searchUsers(username, email, department, role, pageable));
     }
 
+    /**
+     * Directory search by username prefix, department and role. Returns {@code hasNext} and a
+     * {@code nextCursor} for keyset paging instead of a total count.
+     */
+    @GetMapping("/search")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<UserSearchResponse> searchDirectory(
+            @RequestParam(value = "username", required = false) String username,
+            @RequestParam(value = "department", required = false) String department,
+            @RequestParam(value = "role", required = false) String role,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "page", defaultValue = "0") int page,
+            @RequestParam(value = "size", defaultValue = "20") int size) {
+        return ResponseEntity.ok(userDirectoryService.search(username, department, role, cursor, page, size));
+    }
+
     @GetMapping("/moderators")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<List<UserResponse>> getAllModerators(
@@ -255,54 +285,34 @@ public class UserController {
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN') or hasRole('MODERATOR')")
     public ResponseEntity<?> uploadAvatar(@PathVariable Long id, @RequestParam("file") MultipartFile file) {
         try {
-            // Validate file
-            if (file.isEmpty()) {
-                return ResponseEntity.badRequest().body(new MessageResponse("File is empty"));
-            }
-            if (file.getSize() > 2 * 1024 * 1024) { // 2MB
-                return ResponseEntity.badRequest().body(new MessageResponse("File size exceeds 2MB limit"));
-            }
-            String contentType = file.getContentType();
-            if (!("image/jpeg".equals(contentType) || "image/png".equals(contentType) || "image/webp".equals(contentType))) {
-                return ResponseEntity.badRequest().body(new MessageResponse("Only JPEG, PNG, and WEBP images are allowed"));
-            }
-            String filename = StringUtils.cleanPath(file.getOriginalFilename());
-            String ext = filename.contains(".") ? filename.substring(filename.lastIndexOf('.')) : "";
-            String newFilename = "avatar_" + id + "_" + System.currentTimeMillis() + ext;
-            Path uploadPath = Paths.get("uploads/avatars");
-            if (!Files.exists(uploadPath)) {
-                Files.createDirectories(uploadPath);
-            }
-            Path filePath = uploadPath.resolve(newFilename);
-            Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
+            // Thumbnails are produced in the background; the URL is valid immediately
+            String avatarUrl = avatarService.store(id, file);
 
             // Update user
             User user = userRepository.findById(id).orElseThrow(() -> new RuntimeException("User not found"));
-            user.setAvatar("/api/users/avatar/" + newFilename);
+            user.setAvatar(avatarUrl);
             userRepository.save(user);
 
             return ResponseEntity.ok(new MessageResponse("Avatar uploaded successfully"));
+        } catch (AppException e) {
+            return ResponseEntity.status(e.getStatus()).body(new MessageResponse(e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(500).body(new MessageResponse("Could not upload avatar: " + e.getMessage()));
         }
     }
 
     @GetMapping("/avatar/{filename:.+}")
-    public ResponseEntity<Resource> getAvatar(@PathVariable String filename) {
-        try {
-            Path filePath = Paths.get("uploads/avatars").resolve(filename).normalize();
-            Resource resource = new UrlResource(filePath.toUri());
-            if (!resource.exists()) {
-                return ResponseEntity.notFound().build();
-            }
-            String contentType = Files.probeContentType(filePath);
-            if (contentType == null) contentType = "application/octet-stream";
-            return ResponseEntity.ok()
-                .header("Content-Type", contentType)
-                .body(resource);
-        } catch (Exception e) {
-            return ResponseEntity.status(500).build();
+    public void getAvatar(@PathVariable String filename, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        Path filePath = avatarService.resolve(filename).orElse(null);
+        if (filePath == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
         }
+        // A thumbnail name is immutable only once the thumbnail itself exists, not while its source stands in
+        boolean immutable = avatarService.isContentAddressed(filename)
+                && filePath.getFileName().toString().equals(filename);
+        staticFileService.serve(filePath, avatarService.contentType(filePath), immutable, request, response);
     }
 
     @PostMapping("/{id}/profile-update")
@@ -335,28 +345,9 @@ public class UserController {
             // Process avatar if provided
             String avatarUrl = null;
             if (file != null && !file.isEmpty()) {
-                // Validate file
-                if (file.getSize() > 2 * 1024 * 1024) { // 2MB
-                    return ResponseEntity.badRequest().body(new MessageResponse("File size exceeds 2MB limit"));
-                }
-                String contentType = file.getContentType();
-                if (!("image/jpeg".equals(contentType) || "image/png".equals(contentType) || "image/webp".equals(contentType))) {
-                    return ResponseEntity.badRequest().body(new MessageResponse("Only JPEG, PNG, and WEBP images are allowed"));
-                }
-                
-                // Save file
-                String filename = StringUtils.cleanPath(file.getOriginalFilename());
-                String ext = filename.contains(".") ? filename.substring(filename.lastIndexOf('.')) : "";
-                String newFilename = "avatar_" + id + "_" + System.currentTimeMillis() + ext;
-                Path uploadPath = Paths.get("uploads/avatars");
-                if (!Files.exists(uploadPath)) {
-                    Files.createDirectories(uploadPath);
-                }
-                Path filePath = uploadPath.resolve(newFilename);
-                Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
+                avatarUrl = avatarService.store(id, file);
                 
                 // Set avatar URL
-                avatarUrl = "/api/users/avatar/" + newFilename;
                 updateData.setAvatar(avatarUrl);
             }
             
@@ -369,6 +360,8 @@ public class UserController {
             }
             
             return ResponseEntity.ok(updatedUser);
+        } catch (AppException e) {
+            return ResponseEntity.status(e.getStatus()).body(new MessageResponse(e.getMessage()));
         } catch (Exception e) {
             logger.error("Error updating profile with avatar", e);
             return ResponseEntity.status(500).body(new MessageResponse("Could not update profile: " + e.getMessage()));
@@ -36,6 +36,15 @@ public class Course {
     @Column(name = "academic_year")
     private String academicYear;
 
+    // Maximum number of seat-holding enrollments; null means unlimited
+    @Column(name = "seat_capacity")
+    private Integer seatCapacity;
+
+    // Maintained only through conditional bulk updates in CourseRepository, never by entity flushes
+    @Column(name = "seats_taken", updatable = false)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Integer seatsTaken = 0;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "department_id")
     private Department department;
@@ -91,6 +100,8 @@ public class Course {
                 ", credits=" + credits +
                 ", semester='" + semester + '\'' +
                 ", academicYear='" + academicYear + '\'' +
+                ", seatCapacity=" + seatCapacity +
+                ", seatsTaken=" + seatsTaken +
                 ", department=" + (department != null ? department.getId() : "null") +
                 ", teacher=" + (teacher != null ? teacher.getId() : "null") +
                 '}';
@@ -10,7 +10,11 @@ import org.hibernate.annotations.UpdateTimestamp;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "enrollments")
+// One enrollment per student and course: uk_enrollment_student_course is added by schema.sql
+// after existing duplicates are removed, which ddl-auto cannot do
+@Table(name = "enrollments", indexes = {
+        @Index(name = "idx_enrollment_course_status", columnList = "course_id, status")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
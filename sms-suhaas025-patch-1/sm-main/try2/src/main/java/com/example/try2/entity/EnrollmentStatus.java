@@ -5,5 +5,6 @@ public enum EnrollmentStatus {
     APPROVED,
     REJECTED,
     WITHDRAWN,
-    COMPLETED
+    COMPLETED,
+    WAITLISTED
 } 
\ No newline at end of file
@@ -0,0 +1,40 @@
+package com.example.try2.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * One unused MFA backup code, stored as an HMAC digest of the code with the user id and a
+ * per-batch salt. Verification computes one digest and deletes the matching row by index.
+ */
+@Entity
+@Table(name = "mfa_backup_codes", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_mfa_backup_code_user_digest", columnNames = {"user_id", "digest"})
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MfaBackupCode {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    // Base64 HMAC-SHA256
+    @Column(name = "digest", nullable = false, length = 64)
+    private String digest;
+
+    // Shared by the codes generated together
+    @Column(name = "salt", nullable = false, length = 32)
+    private String salt;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,42 @@
+package com.example.try2.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A file a user has uploaded, counted against their storage quota. Content-addressed files
+ * shared by several users are counted for each of them.
+ */
+@Entity
+@Table(name = "stored_files", indexes = {
+        @Index(name = "idx_stored_files_user", columnList = "user_id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StoredFile {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    // What the file is for, e.g. AVATAR; a user has one file per single-valued purpose
+    @Column(name = "purpose", nullable = false, length = 30)
+    private String purpose;
+
+    @Column(name = "store_key", nullable = false)
+    private String storeKey;
+
+    @Column(name = "size_bytes", nullable = false)
+    private long sizeBytes;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
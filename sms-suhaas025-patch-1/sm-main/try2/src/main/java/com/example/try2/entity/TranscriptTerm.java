@@ -0,0 +1,53 @@
+package com.example.try2.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Per-student, per-term GPA aggregate maintained by {@code TranscriptService}.
+ * Rows are derived from {@code grades} and can be rebuilt at any time.
+ */
+@Entity
+@Table(name = "transcript_terms", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_transcript_student_term", columnNames = {"student_id", "academic_year", "semester"})
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TranscriptTerm {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "student_id", nullable = false)
+    private Long studentId;
+
+    @Column(name = "academic_year", nullable = false)
+    private String academicYear;
+
+    @Column(name = "semester", nullable = false)
+    private Integer semester;
+
+    @Column(name = "course_count", nullable = false)
+    private int courseCount;
+
+    @Column(name = "credits", nullable = false)
+    private int credits;
+
+    @Column(name = "quality_points", nullable = false)
+    private double qualityPoints;
+
+    // Null when none of the term's courses carry credits
+    @Column(name = "gpa")
+    private Double gpa;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -13,6 +13,7 @@ import org.hibernate.annotations.UpdateTimestamp;
 import java.time.LocalDateTime;
 
 import java.util.HashSet;
+import java.util.Locale;
 import java.util.Set;
 
 @Entity
@@ -20,6 +21,10 @@ import java.util.Set;
         uniqueConstraints = {
                 @UniqueConstraint(columnNames = "username"),
                 @UniqueConstraint(columnNames = "email")
+        },
+        indexes = {
+                @Index(name = "idx_users_username_lower", columnList = "username_lower, id"),
+                @Index(name = "idx_users_department", columnList = "department_id")
         })
 @Data
 @NoArgsConstructor
@@ -32,6 +37,11 @@ public class User {
     @Size(max = 20)
     private String username;
 
+    // Lower-cased copy of username for indexed prefix search
+    @JsonIgnore
+    @Column(name = "username_lower", length = 20)
+    private String usernameLower;
+
     @NotBlank
     @Size(max = 255)
     @Email
@@ -47,7 +57,8 @@ public class User {
     @ManyToMany(fetch = FetchType.LAZY)
     @JoinTable(name = "user_roles",
             joinColumns = @JoinColumn(name = "user_id"),
-            inverseJoinColumns = @JoinColumn(name = "role_id"))
+            inverseJoinColumns = @JoinColumn(name = "role_id"),
+            indexes = @Index(name = "idx_user_roles_role", columnList = "role_id, user_id"))
     private Set<Role> roles = new HashSet<>();
 
     // Student-specific fields
@@ -151,6 +162,12 @@ public class User {
         this.password = password;
     }
 
+    @PrePersist
+    @PreUpdate
+    protected void onSave() {
+        usernameLower = username != null ? username.toLowerCase(Locale.ROOT) : null;
+    }
+
     public Integer getFailedLoginAttempts() {
         return failedLoginAttempts != null ? failedLoginAttempts : 0;
     }
@@ -0,0 +1,20 @@
+package com.example.try2.exception;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * Request shed because a bounded resource is saturated; answered with 503 and a Retry-After header.
+ */
+public class ServiceOverloadedException extends AppException {
+
+    private final long retryAfterSeconds;
+
+    public ServiceOverloadedException(String message, long retryAfterSeconds) {
+        super(message, HttpStatus.SERVICE_UNAVAILABLE, "SERVICE_OVERLOADED");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,189 @@
+package com.example.try2.monitoring;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Samples connection pool and JVM figures once per second into a fixed ring buffer
+ * holding the last hour. Pool timings come from the Hikari Micrometer timers
+ * ({@code hikaricp.connections.acquire}/{@code usage}), except the acquire max, which
+ * {@link PoolAcquireTracker} keeps per sample interval; GC and allocation figures
+ * come straight from the platform MXBeans.
+ * <p>
+ * A single scheduler thread writes; readers take a lock-free snapshot.
+ */
+@Component
+public class MetricsHistory {
+
+    private static final Logger logger = LoggerFactory.getLogger(MetricsHistory.class);
+
+    public static final int CAPACITY = 3600;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private PoolAcquireTracker poolAcquireTracker;
+
+    private final AtomicReferenceArray<MetricsSample> samples = new AtomicReferenceArray<>(CAPACITY);
+    private volatile long written = 0;
+
+    private HikariDataSource hikariDataSource;
+    private com.sun.management.ThreadMXBean threadMXBean;
+
+    // Cumulative values from the previous tick, used to compute per-second deltas
+    private long lastAcquireCount;
+    private double lastAcquireTotalMs;
+    private long lastUsageCount;
+    private double lastUsageTotalMs;
+    private long lastGcCount;
+    private long lastGcTimeMs;
+    private long lastAllocatedBytes = -1;
+
+    @PostConstruct
+    public void init() {
+        try {
+            if (dataSource.isWrapperFor(HikariDataSource.class)) {
+                hikariDataSource = dataSource.unwrap(HikariDataSource.class);
+            }
+        } catch (Exception e) {
+            logger.warn("Could not unwrap HikariDataSource, pool figures will be empty: {}", e.getMessage());
+        }
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+                && bean.isThreadAllocatedMemorySupported()) {
+            bean.setThreadAllocatedMemoryEnabled(true);
+            threadMXBean = bean;
+        }
+    }
+
+    @Scheduled(fixedRate = 1000)
+    public void sample() {
+        try {
+            record(takeSample());
+        } catch (Exception e) {
+            logger.debug("Error sampling metrics", e);
+        }
+    }
+
+    private MetricsSample takeSample() {
+        int active = 0, idle = 0, pending = 0, total = 0;
+        long acquires = 0;
+        double acquireMeanMs = 0, acquireMaxMs = 0, usageMeanMs = 0;
+
+        HikariPoolMXBean poolMXBean = hikariDataSource != null ? hikariDataSource.getHikariPoolMXBean() : null;
+        if (poolMXBean != null) {
+            active = poolMXBean.getActiveConnections();
+            idle = poolMXBean.getIdleConnections();
+            pending = poolMXBean.getThreadsAwaitingConnection();
+            total = poolMXBean.getTotalConnections();
+
+            Timer acquire = poolTimer("hikaricp.connections.acquire");
+            if (acquire != null) {
+                long count = acquire.count();
+                double totalMs = acquire.totalTime(TimeUnit.MILLISECONDS);
+                acquires = count - lastAcquireCount;
+                acquireMeanMs = acquires > 0 ? (totalMs - lastAcquireTotalMs) / acquires : 0;
+                lastAcquireCount = count;
+                lastAcquireTotalMs = totalMs;
+            }
+            Timer usage = poolTimer("hikaricp.connections.usage");
+            if (usage != null) {
+                long count = usage.count();
+                double totalMs = usage.totalTime(TimeUnit.MILLISECONDS);
+                long released = count - lastUsageCount;
+                usageMeanMs = released > 0 ? (totalMs - lastUsageTotalMs) / released : 0;
+                lastUsageCount = count;
+                lastUsageTotalMs = totalMs;
+            }
+        }
+        acquireMaxMs = poolAcquireTracker.drainAcquireMaxNanos() / 1_000_000.0;
+
+        long heapUsed = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        long heapAfterGc = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            MemoryUsage afterGc = pool.getType() == MemoryType.HEAP ? pool.getCollectionUsage() : null;
+            if (afterGc != null) {
+                heapAfterGc += afterGc.getUsed();
+            }
+        }
+
+        long gcCount = 0, gcTimeMs = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gcCount += Math.max(0, gc.getCollectionCount());
+            gcTimeMs += Math.max(0, gc.getCollectionTime());
+        }
+        long gcs = gcCount - lastGcCount;
+        long gcPauseMs = gcTimeMs - lastGcTimeMs;
+        lastGcCount = gcCount;
+        lastGcTimeMs = gcTimeMs;
+
+        long allocationRate = 0;
+        if (threadMXBean != null) {
+            long allocated = threadMXBean.getTotalThreadAllocatedBytes();
+            if (lastAllocatedBytes >= 0 && allocated >= lastAllocatedBytes) {
+                allocationRate = allocated - lastAllocatedBytes;
+            }
+            lastAllocatedBytes = allocated;
+        }
+
+        return new MetricsSample(System.currentTimeMillis(), active, idle, pending, total,
+                acquires, acquireMeanMs, acquireMaxMs, usageMeanMs,
+                heapUsed, heapAfterGc, gcs, gcPauseMs, allocationRate);
+    }
+
+    private Timer poolTimer(String name) {
+        return meterRegistry.find(name).tag("pool", hikariDataSource.getPoolName()).timer();
+    }
+
+    private void record(MetricsSample sample) {
+        long index = written;
+        samples.set((int) (index % CAPACITY), sample);
+        written = index + 1;
+    }
+
+    /**
+     * Returns the samples from the last {@code seconds} seconds, oldest first.
+     */
+    public List<MetricsSample> getHistory(int seconds) {
+        long end = written;
+        long count = Math.min(Math.min(Math.max(seconds, 0), CAPACITY), end);
+        List<MetricsSample> result = new ArrayList<>((int) count);
+        for (long i = end - count; i < end; i++) {
+            MetricsSample sample = samples.get((int) (i % CAPACITY));
+            if (sample != null) {
+                result.add(sample);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the most recent sample, or null before the first tick.
+     */
+    public MetricsSample getLatest() {
+        long end = written;
+        return end == 0 ? null : samples.get((int) ((end - 1) % CAPACITY));
+    }
+}
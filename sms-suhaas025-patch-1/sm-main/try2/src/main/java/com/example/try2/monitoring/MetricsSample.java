@@ -0,0 +1,29 @@
+package com.example.try2.monitoring;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * One-second snapshot of connection pool and JVM figures kept by {@link MetricsHistory}.
+ * Time-based values (acquire/usage/GC pause, allocation) cover the second ending at {@code timestamp}.
+ */
+@Getter
+@AllArgsConstructor
+public class MetricsSample {
+    private final long timestamp;
+
+    private final int poolActive;
+    private final int poolIdle;
+    private final int poolPending;
+    private final int poolTotal;
+    private final long connectionAcquires;
+    private final double acquireMeanMs;
+    private final double acquireMaxMs;
+    private final double usageMeanMs;
+
+    private final long heapUsedBytes;
+    private final long heapAfterGcBytes;
+    private final long gcCount;
+    private final long gcPauseMs;
+    private final long allocatedBytesPerSecond;
+}
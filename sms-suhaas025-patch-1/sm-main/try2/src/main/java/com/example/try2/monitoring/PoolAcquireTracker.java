@@ -0,0 +1,67 @@
+package com.example.try2.monitoring;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.IMetricsTrackerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the longest connection acquire since it was last drained, so each history sample
+ * reports the worst wait of its own second. Micrometer's {@code Timer.max} decays over a
+ * rolling window and would smear one slow acquire across the following samples.
+ */
+@Component
+public class PoolAcquireTracker {
+
+    private final AtomicLong acquireMaxNanos = new AtomicLong();
+
+    /**
+     * Wraps the pool's tracker factory (which may be null) so acquires are also recorded here.
+     */
+    public IMetricsTrackerFactory wrap(IMetricsTrackerFactory delegate) {
+        return (poolName, poolStats) -> new Tracker(delegate != null
+                ? delegate.create(poolName, poolStats) : new IMetricsTracker() {});
+    }
+
+    /**
+     * Returns the longest acquire since the previous call and starts a new interval.
+     */
+    public long drainAcquireMaxNanos() {
+        return acquireMaxNanos.getAndSet(0);
+    }
+
+    private class Tracker implements IMetricsTracker {
+        private final IMetricsTracker delegate;
+
+        Tracker(IMetricsTracker delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void recordConnectionCreatedMillis(long connectionCreatedMillis) {
+            delegate.recordConnectionCreatedMillis(connectionCreatedMillis);
+        }
+
+        @Override
+        public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+            acquireMaxNanos.accumulateAndGet(elapsedAcquiredNanos, Math::max);
+            delegate.recordConnectionAcquiredNanos(elapsedAcquiredNanos);
+        }
+
+        @Override
+        public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+            delegate.recordConnectionUsageMillis(elapsedBorrowedMillis);
+        }
+
+        @Override
+        public void recordConnectionTimeout() {
+            delegate.recordConnectionTimeout();
+        }
+
+        @Override
+        public void close() {
+            delegate.close();
+        }
+    }
+}
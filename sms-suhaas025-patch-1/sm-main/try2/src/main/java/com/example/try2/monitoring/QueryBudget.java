@@ -0,0 +1,47 @@
+package com.example.try2.monitoring;
+
+/**
+ * Assertion helpers for tests that want to pin the number of JDBC statements an
+ * operation (a service call or a MockMvc request) is allowed to issue.
+ * <pre>
+ * QueryBudget.assertAtMost(3, () -> mockMvc.perform(get("/api/enrollments/course/1")));
+ * </pre>
+ * Requires the application DataSource to be wrapped by {@link QueryCountingDataSource}
+ * and the work to run on the calling thread.
+ */
+public final class QueryBudget {
+
+    @FunctionalInterface
+    public interface Action {
+        void run() throws Exception;
+    }
+
+    private QueryBudget() {
+    }
+
+    /**
+     * Runs the action and returns the JDBC statistics it produced.
+     */
+    public static QueryStatistics measure(Action action) throws Exception {
+        QueryStatistics stats = QueryStatistics.begin();
+        try {
+            action.run();
+        } finally {
+            QueryStatistics.end(stats);
+        }
+        return stats;
+    }
+
+    /**
+     * Runs the action and fails with an {@link AssertionError} if it issued more than
+     * {@code maxStatements} JDBC statements.
+     */
+    public static QueryStatistics assertAtMost(long maxStatements, Action action) throws Exception {
+        QueryStatistics stats = measure(action);
+        if (stats.getStatements() > maxStatements) {
+            throw new AssertionError("Expected at most " + maxStatements + " JDBC statements but "
+                    + stats.getStatements() + " were executed (" + stats + ")");
+        }
+        return stats;
+    }
+}
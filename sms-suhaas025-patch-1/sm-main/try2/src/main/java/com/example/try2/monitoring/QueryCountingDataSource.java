@@ -0,0 +1,188 @@
+package com.example.try2.monitoring;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * DataSource proxy that counts statements, rows and JDBC time into the
+ * {@link QueryStatistics} bound to the calling thread, and logs statements
+ * slower than the configured threshold.
+ * The wrapped pool stays reachable through {@link #unwrap(Class)}.
+ */
+public class QueryCountingDataSource extends DelegatingDataSource {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueryCountingDataSource.class);
+
+    private final long slowQueryThresholdNanos;
+
+    public QueryCountingDataSource(DataSource targetDataSource, long slowQueryThresholdMs) {
+        super(targetDataSource);
+        this.slowQueryThresholdNanos = slowQueryThresholdMs * 1_000_000;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return proxy(Connection.class, new ConnectionHandler(super.getConnection()));
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return proxy(Connection.class, new ConnectionHandler(super.getConnection(username, password)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(QueryCountingDataSource.class.getClassLoader(),
+                new Class<?>[]{type}, handler);
+    }
+
+    private static Object invokeTarget(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    /**
+     * Handles proxy identity locally so Spring's connection holders compare proxies correctly.
+     */
+    private static Object identity(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            default:
+                return null;
+        }
+    }
+
+    private class ConnectionHandler implements InvocationHandler {
+        private final Connection target;
+
+        ConnectionHandler(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object identity = identity(proxy, method, args);
+            if (identity != null) {
+                return identity;
+            }
+            Object result = invokeTarget(target, method, args);
+            switch (method.getName()) {
+                case "createStatement":
+                    return proxy(Statement.class, new StatementHandler((Statement) result, null));
+                case "prepareStatement":
+                    return proxy(PreparedStatement.class, new StatementHandler((Statement) result, (String) args[0]));
+                case "prepareCall":
+                    return proxy(CallableStatement.class, new StatementHandler((Statement) result, (String) args[0]));
+                default:
+                    return result;
+            }
+        }
+    }
+
+    private class StatementHandler implements InvocationHandler {
+        private final Statement target;
+        private final String preparedSql;
+
+        StatementHandler(Statement target, String preparedSql) {
+            this.target = target;
+            this.preparedSql = preparedSql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object identity = identity(proxy, method, args);
+            if (identity != null) {
+                return identity;
+            }
+            String name = method.getName();
+            if ("getResultSet".equals(name)) {
+                return countRows(invokeTarget(target, method, args));
+            }
+            if (!name.startsWith("execute")) {
+                return invokeTarget(target, method, args);
+            }
+
+            long start = System.nanoTime();
+            Object result;
+            try {
+                result = invokeTarget(target, method, args);
+            } finally {
+                long elapsed = System.nanoTime() - start;
+                boolean slow = elapsed >= slowQueryThresholdNanos;
+                if (slow) {
+                    String sql = preparedSql != null ? preparedSql
+                            : (args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : "<batch>");
+                    logger.warn("Slow query ({} ms): {}", elapsed / 1_000_000, sql);
+                }
+                QueryStatistics stats = QueryStatistics.current();
+                if (stats != null) {
+                    stats.recordStatement(elapsed, slow);
+                }
+            }
+
+            QueryStatistics stats = QueryStatistics.current();
+            if (stats != null) {
+                if (result instanceof Integer) {
+                    stats.recordRows(Math.max(0, (Integer) result));
+                } else if (result instanceof Long) {
+                    stats.recordRows(Math.max(0L, (Long) result));
+                } else if (result instanceof int[]) {
+                    for (int count : (int[]) result) {
+                        stats.recordRows(Math.max(0, count));
+                    }
+                }
+            }
+            return countRows(result);
+        }
+
+        private Object countRows(Object result) {
+            if (result instanceof ResultSet) {
+                return proxy(ResultSet.class, new ResultSetHandler((ResultSet) result));
+            }
+            return result;
+        }
+    }
+
+    private static class ResultSetHandler implements InvocationHandler {
+        private final ResultSet target;
+
+        ResultSetHandler(ResultSet target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object identity = identity(proxy, method, args);
+            if (identity != null) {
+                return identity;
+            }
+            Object result = invokeTarget(target, method, args);
+            if ("next".equals(method.getName()) && Boolean.TRUE.equals(result)) {
+                QueryStatistics stats = QueryStatistics.current();
+                if (stats != null) {
+                    stats.recordRows(1);
+                }
+            }
+            return result;
+        }
+    }
+}
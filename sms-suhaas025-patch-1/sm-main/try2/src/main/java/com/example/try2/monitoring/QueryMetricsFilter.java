@@ -0,0 +1,103 @@
+package com.example.try2.monitoring;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Opens a {@link QueryStatistics} scope around every HTTP request and publishes
+ * statements, rows and JDBC time per endpoint as Micrometer histograms.
+ * Requests that issue more statements than {@code app.jdbc.query-budget} are logged
+ * and counted. The response has already been written by then, so the budget is only
+ * reported here; tests pin per-endpoint budgets with {@link QueryBudget}.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class QueryMetricsFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueryMetricsFilter.class);
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.jdbc.instrumentation.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.jdbc.query-budget:50}")
+    private int queryBudget;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        QueryStatistics stats = QueryStatistics.begin();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            QueryStatistics.end(stats);
+        }
+        record(request, stats);
+    }
+
+    private void record(HttpServletRequest request, QueryStatistics stats) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern != null ? pattern.toString() : "UNMAPPED";
+        String method = request.getMethod();
+
+        DistributionSummary.builder("app.jdbc.request.statements")
+                .description("JDBC statements executed per HTTP request")
+                .tags("method", method, "uri", uri)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(1.0)
+                .maximumExpectedValue(1000.0)
+                .register(meterRegistry)
+                .record(stats.getStatements());
+        DistributionSummary.builder("app.jdbc.request.rows")
+                .description("JDBC rows read or affected per HTTP request")
+                .tags("method", method, "uri", uri)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(1.0)
+                .maximumExpectedValue(100000.0)
+                .register(meterRegistry)
+                .record(stats.getRows());
+        Timer.builder("app.jdbc.request.time")
+                .description("Time spent in JDBC calls per HTTP request")
+                .tags("method", method, "uri", uri)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(stats.getJdbcNanos(), TimeUnit.NANOSECONDS);
+
+        if (stats.getStatements() > queryBudget) {
+            Counter.builder("app.jdbc.request.budget.exceeded")
+                    .description("HTTP requests that exceeded the JDBC query budget")
+                    .tags("method", method, "uri", uri)
+                    .register(meterRegistry)
+                    .increment();
+            logger.warn("Query budget exceeded for {} {}: {} statements (budget {}), {} rows, {} ms in JDBC",
+                    method, uri, stats.getStatements(), queryBudget, stats.getRows(), stats.getJdbcMillis());
+        } else if (logger.isDebugEnabled()) {
+            logger.debug("{} {} -> {}", method, uri, stats);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.try2.monitoring;
+
+/**
+ * JDBC statistics collected for a single unit of work (usually one HTTP request).
+ * Instances are bound to the current thread; nested scopes roll their counts up
+ * into the enclosing scope when they end.
+ */
+public class QueryStatistics {
+
+    private static final ThreadLocal<QueryStatistics> CURRENT = new ThreadLocal<>();
+
+    private final QueryStatistics parent;
+    private long statements;
+    private long rows;
+    private long jdbcNanos;
+    private long slowStatements;
+
+    private QueryStatistics(QueryStatistics parent) {
+        this.parent = parent;
+    }
+
+    /**
+     * Opens a new scope on the current thread and returns its statistics.
+     */
+    public static QueryStatistics begin() {
+        QueryStatistics stats = new QueryStatistics(CURRENT.get());
+        CURRENT.set(stats);
+        return stats;
+    }
+
+    /**
+     * Closes the given scope, restoring (and adding to) the enclosing scope if there is one.
+     */
+    public static void end(QueryStatistics stats) {
+        if (stats.parent != null) {
+            stats.parent.statements += stats.statements;
+            stats.parent.rows += stats.rows;
+            stats.parent.jdbcNanos += stats.jdbcNanos;
+            stats.parent.slowStatements += stats.slowStatements;
+            CURRENT.set(stats.parent);
+        } else {
+            CURRENT.remove();
+        }
+    }
+
+    /**
+     * Returns the statistics for the current thread, or null when no scope is open.
+     */
+    public static QueryStatistics current() {
+        return CURRENT.get();
+    }
+
+    void recordStatement(long elapsedNanos, boolean slow) {
+        statements++;
+        jdbcNanos += elapsedNanos;
+        if (slow) {
+            slowStatements++;
+        }
+    }
+
+    void recordRows(long count) {
+        rows += count;
+    }
+
+    public long getStatements() {
+        return statements;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getJdbcNanos() {
+        return jdbcNanos;
+    }
+
+    public long getJdbcMillis() {
+        return jdbcNanos / 1_000_000;
+    }
+
+    public long getSlowStatements() {
+        return slowStatements;
+    }
+
+    @Override
+    public String toString() {
+        return "QueryStatistics{" +
+                "statements=" + statements +
+                ", rows=" + rows +
+                ", jdbcMillis=" + getJdbcMillis() +
+                ", slowStatements=" + slowStatements +
+                '}';
+    }
+}
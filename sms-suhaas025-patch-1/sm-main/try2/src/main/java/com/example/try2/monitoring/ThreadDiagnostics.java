@@ -0,0 +1,200 @@
+package com.example.try2.monitoring;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-mode diagnostics: an in-process JFR stream that aggregates virtual-thread pinning
+ * and contended monitor enters by the first application frame, plus request latency taken
+ * from the {@code http.server.requests} timers.
+ * <p>
+ * Pinning means a virtual thread blocked while holding a monitor (or in native code) and
+ * kept its carrier thread; with few carriers this serializes requests. The report shows
+ * where that happens so the lock can be replaced with a {@code java.util.concurrent} one.
+ */
+@Component
+public class ThreadDiagnostics {
+
+    private static final Logger logger = LoggerFactory.getLogger(ThreadDiagnostics.class);
+
+    private static final String APP_PACKAGE = "com.example.try2.";
+    private static final int MAX_SITES = 200;
+    private static final int STACK_DEPTH = 64;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.diagnostics.jfr.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.diagnostics.jfr.threshold-ms:20}")
+    private long thresholdMs;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    private RecordingStream stream;
+    private volatile Instant since = Instant.now();
+    private final AtomicLong submitFailures = new AtomicLong();
+    private final Map<String, Site> pinned = new ConcurrentHashMap<>();
+    private final Map<String, Site> contended = new ConcurrentHashMap<>();
+
+    private static class Site {
+        final LongAdder count = new LongAdder();
+        final LongAdder totalNanos = new LongAdder();
+        final AtomicLong maxNanos = new AtomicLong();
+
+        void record(Duration duration) {
+            long nanos = duration.toNanos();
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            stream = new RecordingStream();
+            stream.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ofMillis(thresholdMs)).withStackTrace();
+            stream.enable("jdk.VirtualThreadSubmitFailed").withStackTrace();
+            stream.enable("jdk.JavaMonitorEnter").withThreshold(Duration.ofMillis(thresholdMs)).withStackTrace();
+            stream.onEvent("jdk.VirtualThreadPinned", event -> record(pinned, event));
+            stream.onEvent("jdk.JavaMonitorEnter", event -> record(contended, event));
+            stream.onEvent("jdk.VirtualThreadSubmitFailed", event -> submitFailures.incrementAndGet());
+            stream.setMaxAge(Duration.ofMinutes(10));
+            stream.startAsync();
+            logger.info("JFR thread diagnostics started (threshold {} ms, virtual threads {})",
+                    thresholdMs, virtualThreads ? "on" : "off");
+        } catch (RuntimeException e) {
+            // JFR may be unavailable (e.g. a restricted or non-HotSpot runtime)
+            logger.warn("Could not start JFR thread diagnostics: {}", e.getMessage());
+            stream = null;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+
+    public void reset() {
+        pinned.clear();
+        contended.clear();
+        submitFailures.set(0);
+        since = Instant.now();
+    }
+
+    public Map<String, Object> getReport() {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("virtualThreads", virtualThreads);
+        report.put("jfrEnabled", stream != null);
+        report.put("thresholdMs", thresholdMs);
+        report.put("since", since.toString());
+        report.put("pinned", describe(pinned));
+        report.put("contendedMonitors", describe(contended));
+        report.put("virtualThreadSubmitFailures", submitFailures.get());
+        report.put("requestLatency", requestLatency());
+        return report;
+    }
+
+    private void record(Map<String, Site> sites, RecordedEvent event) {
+        String site = siteOf(event.getStackTrace());
+        if (sites.size() >= MAX_SITES && !sites.containsKey(site)) {
+            site = "(other)";
+        }
+        sites.computeIfAbsent(site, k -> new Site()).record(event.getDuration());
+    }
+
+    /**
+     * First application frame of the stack, else the top frame.
+     */
+    private static String siteOf(RecordedStackTrace stackTrace) {
+        if (stackTrace == null || stackTrace.getFrames().isEmpty()) {
+            return "(unknown)";
+        }
+        List<RecordedFrame> frames = stackTrace.getFrames();
+        for (int i = 0; i < Math.min(frames.size(), STACK_DEPTH); i++) {
+            RecordedFrame frame = frames.get(i);
+            if (frame.isJavaFrame() && frame.getMethod().getType().getName().startsWith(APP_PACKAGE)) {
+                return format(frame);
+            }
+        }
+        return format(frames.get(0));
+    }
+
+    private static String format(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+    }
+
+    private static List<Map<String, Object>> describe(Map<String, Site> sites) {
+        List<Map<String, Object>> result = new ArrayList<>();
+        sites.forEach((site, stats) -> {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("site", site);
+            item.put("count", stats.count.sum());
+            item.put("totalMs", TimeUnit.NANOSECONDS.toMillis(stats.totalNanos.sum()));
+            item.put("maxMs", TimeUnit.NANOSECONDS.toMillis(stats.maxNanos.get()));
+            result.add(item);
+        });
+        result.sort(Comparator.comparing((Map<String, Object> item) -> (Long) item.get("totalMs")).reversed());
+        return result;
+    }
+
+    private List<Map<String, Object>> requestLatency() {
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (Timer timer : meterRegistry.find("http.server.requests").timers()) {
+            HistogramSnapshot snapshot = timer.takeSnapshot();
+            if (snapshot.count() == 0) {
+                continue;
+            }
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("method", timer.getId().getTag("method"));
+            item.put("uri", timer.getId().getTag("uri"));
+            item.put("status", timer.getId().getTag("status"));
+            item.put("count", snapshot.count());
+            item.put("meanMs", round(snapshot.mean(TimeUnit.MILLISECONDS)));
+            item.put("maxMs", round(snapshot.max(TimeUnit.MILLISECONDS)));
+            for (ValueAtPercentile percentile : snapshot.percentileValues()) {
+                item.put("p" + Math.round(percentile.percentile() * 100) + "Ms", round(percentile.value(TimeUnit.MILLISECONDS)));
+            }
+            result.add(item);
+        }
+        result.sort(Comparator.comparing((Map<String, Object> item) -> (Long) item.get("count")).reversed());
+        return result;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100.0) / 100.0;
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.try2.payload.request;
+
+import jakarta.validation.constraints.NotEmpty;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Enrolls every listed student in every listed course (students x courses).
+ */
+@Data
+public class BulkEnrollmentRequest {
+
+    @NotEmpty
+    private List<Long> studentIds;
+
+    @NotEmpty
+    private List<Long> courseIds;
+
+    // Defaults to each course's own semester / academic year
+    private String semester;
+
+    private String academicYear;
+}
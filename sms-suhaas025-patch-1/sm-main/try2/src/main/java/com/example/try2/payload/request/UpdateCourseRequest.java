@@ -13,4 +13,5 @@ public class UpdateCourseRequest {
     private Long departmentId;
     private String departmentName; // <-- Add this line
     private Long teacherId;
+    private Integer seatCapacity;
 } 
\ No newline at end of file
@@ -0,0 +1,21 @@
+package com.example.try2.payload.response;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Summary of a bulk enrollment run; individual enrollments are not echoed back.
+ */
+@Data
+public class BulkEnrollmentResponse {
+    private int requested;
+    private int enrolled;
+    private int waitlisted;
+    private int skippedDuplicates;
+    private List<Long> invalidStudentIds = new ArrayList<>();
+    private List<Long> invalidCourseIds = new ArrayList<>();
+    private List<String> rejectedLines = new ArrayList<>();
+    private long elapsedMs;
+}
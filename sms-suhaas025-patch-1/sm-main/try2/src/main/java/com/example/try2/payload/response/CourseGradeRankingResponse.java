@@ -0,0 +1,29 @@
+package com.example.try2.payload.response;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class CourseGradeRankingResponse {
+    private int rank;
+    private Long courseId;
+    private String courseCode;
+    private String courseName;
+    private long count;
+    private Double mean;
+    private Integer min;
+    private Integer max;
+
+    // Used by the JPQL constructor expression in GradeRepository
+    public CourseGradeRankingResponse(Long courseId, String courseCode, String courseName,
+                                      Long count, Double mean, Integer min, Integer max) {
+        this.courseId = courseId;
+        this.courseCode = courseCode;
+        this.courseName = courseName;
+        this.count = count != null ? count : 0;
+        this.mean = mean != null ? Math.round(mean * 100.0) / 100.0 : null;
+        this.min = min;
+        this.max = max;
+    }
+}
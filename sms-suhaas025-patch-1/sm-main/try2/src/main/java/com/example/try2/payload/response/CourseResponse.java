@@ -14,6 +14,8 @@ public class CourseResponse {
     private String semester;
     private String academicYear;
     private String departmentName;
+    private Integer seatCapacity;
+    private Integer seatsTaken;
     private TeacherResponse teacher;
     private Long createdById;
     private String createdByUsername;
@@ -38,6 +40,10 @@ public class CourseResponse {
     public void setAcademicYear(String academicYear) { this.academicYear = academicYear; }
     public String getDepartmentName() { return departmentName; }
     public void setDepartmentName(String departmentName) { this.departmentName = departmentName; }
+    public Integer getSeatCapacity() { return seatCapacity; }
+    public void setSeatCapacity(Integer seatCapacity) { this.seatCapacity = seatCapacity; }
+    public Integer getSeatsTaken() { return seatsTaken; }
+    public void setSeatsTaken(Integer seatsTaken) { this.seatsTaken = seatsTaken; }
     public TeacherResponse getTeacher() { return teacher; }
     public void setTeacher(TeacherResponse teacher) { this.teacher = teacher; }
     public Long getCreatedById() { return createdById; }
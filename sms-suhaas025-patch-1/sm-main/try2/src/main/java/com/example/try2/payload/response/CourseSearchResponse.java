@@ -0,0 +1,29 @@
+package com.example.try2.payload.response;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class CourseSearchResponse {
+    private String query;
+    private int page;
+    private int size;
+    // Whether another page exists; no total is computed
+    private boolean hasNext;
+    private long tookMicros;
+    private List<Hit> results = new ArrayList<>();
+
+    @Data
+    public static class Hit {
+        private Long id;
+        private String courseCode;
+        private String courseName;
+        private String departmentName;
+        private Integer credits;
+        private String semester;
+        private String academicYear;
+        private double score;
+    }
+}
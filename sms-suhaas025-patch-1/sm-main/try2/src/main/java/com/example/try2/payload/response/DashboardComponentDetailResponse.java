@@ -0,0 +1,33 @@
+package com.example.try2.payload.response;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * The large per-component JSON columns, loaded only when a component is opened.
+ */
+@Data
+@NoArgsConstructor
+public class DashboardComponentDetailResponse {
+    private Long id;
+    private LocalDateTime updatedAt;
+    private String configJson;
+    private String themeJson;
+    private String permissionsJson;
+    private String translationsJson;
+
+    /**
+     * Constructor-expression target for DashboardComponentRepository.findDetailById.
+     */
+    public DashboardComponentDetailResponse(Long id, LocalDateTime updatedAt, String configJson, String themeJson,
+                                            String permissionsJson, String translationsJson) {
+        this.id = id;
+        this.updatedAt = updatedAt;
+        this.configJson = configJson;
+        this.themeJson = themeJson;
+        this.permissionsJson = permissionsJson;
+        this.translationsJson = translationsJson;
+    }
+}
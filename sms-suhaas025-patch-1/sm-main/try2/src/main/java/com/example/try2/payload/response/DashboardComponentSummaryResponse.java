@@ -0,0 +1,43 @@
+package com.example.try2.payload.response;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * What a dashboard or menu list needs of a component; the JSON blobs are fetched per component
+ * from the detail endpoint.
+ */
+@Data
+@NoArgsConstructor
+public class DashboardComponentSummaryResponse {
+    private Long id;
+    private String title;
+    private String description;
+    private String icon;
+    private Integer displayOrder;
+    private boolean visible;
+    private String frontendRoute;
+    private String componentType;
+    private Long parentId;
+    private LocalDateTime updatedAt;
+
+    /**
+     * Constructor-expression target for the summary queries in DashboardComponentRepository.
+     */
+    public DashboardComponentSummaryResponse(Long id, String title, String description, String icon,
+                                             Integer displayOrder, boolean visible, String frontendRoute,
+                                             String componentType, Long parentId, LocalDateTime updatedAt) {
+        this.id = id;
+        this.title = title;
+        this.description = description;
+        this.icon = icon;
+        this.displayOrder = displayOrder;
+        this.visible = visible;
+        this.frontendRoute = frontendRoute;
+        this.componentType = componentType;
+        this.parentId = parentId;
+        this.updatedAt = updatedAt;
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.try2.payload.response;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A component summary with its visible children, in display order.
+ */
+@Data
+@NoArgsConstructor
+@EqualsAndHashCode(callSuper = true)
+public class DashboardComponentTreeResponse extends DashboardComponentSummaryResponse {
+    private List<DashboardComponentTreeResponse> children = new ArrayList<>();
+
+    public DashboardComponentTreeResponse(DashboardComponentSummaryResponse summary) {
+        super(summary.getId(), summary.getTitle(), summary.getDescription(), summary.getIcon(),
+                summary.getDisplayOrder(), summary.isVisible(), summary.getFrontendRoute(),
+                summary.getComponentType(), summary.getParentId(), summary.getUpdatedAt());
+    }
+}
@@ -2,10 +2,12 @@ package com.example.try2.payload.response;
 
 import com.example.try2.entity.EnrollmentStatus;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 import java.time.LocalDateTime;
 
 @Data
+@NoArgsConstructor
 public class EnrollmentResponse {
     private Long id;
     private Long studentId;
@@ -23,6 +25,32 @@ public class EnrollmentResponse {
     private Long updatedById;
     private String updatedByUsername;
     private LocalDateTime createdAt;
+    private Long waitlistPosition;
+
+    /**
+     * Constructor-expression target for the read-model queries in EnrollmentRepository.
+     */
+    public EnrollmentResponse(Long id, Long studentId, String studentName, Long courseId, String courseCode,
+                              String courseName, EnrollmentStatus status, String semester, String academicYear,
+                              LocalDateTime enrolledAt, LocalDateTime updatedAt, Long createdById,
+                              String createdByUsername, Long updatedById, String updatedByUsername) {
+        this.id = id;
+        this.studentId = studentId;
+        this.studentName = studentName;
+        this.courseId = courseId;
+        this.courseCode = courseCode;
+        this.courseName = courseName;
+        this.status = status;
+        this.semester = semester;
+        this.academicYear = academicYear;
+        this.enrolledAt = enrolledAt;
+        this.createdAt = enrolledAt;
+        this.updatedAt = updatedAt;
+        this.createdById = createdById;
+        this.createdByUsername = createdByUsername;
+        this.updatedById = updatedById;
+        this.updatedByUsername = updatedByUsername;
+    }
 
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
@@ -56,4 +84,6 @@ public class EnrollmentResponse {
     public void setCreatedAt(java.time.LocalDateTime createdAt) { this.createdAt = createdAt; }
     public java.time.LocalDateTime getUpdatedAt() { return updatedAt; }
     public void setUpdatedAt(java.time.LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+    public Long getWaitlistPosition() { return waitlistPosition; }
+    public void setWaitlistPosition(Long waitlistPosition) { this.waitlistPosition = waitlistPosition; }
 } 
\ No newline at end of file
@@ -0,0 +1,25 @@
+package com.example.try2.payload.response;
+
+import lombok.Data;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Data
+public class GradeStatisticsResponse {
+    private Long courseId;
+    private Integer semester;
+    private String academicYear;
+    // True when served from the in-memory course sketch instead of the database
+    private boolean approximate;
+    private long count;
+    private Double mean;
+    private Double stdDev;
+    private Integer min;
+    private Integer max;
+    private Double median;
+    private Double p25;
+    private Double p75;
+    private Double p90;
+    private Map<String, Long> letterHistogram = new LinkedHashMap<>();
+}
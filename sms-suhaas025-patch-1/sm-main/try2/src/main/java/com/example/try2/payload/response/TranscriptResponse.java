@@ -0,0 +1,25 @@
+package com.example.try2.payload.response;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class TranscriptResponse {
+    private Long studentId;
+    private int totalCredits;
+    private int totalCourses;
+    private Double cumulativeGpa;
+    private List<Term> terms = new ArrayList<>();
+
+    @Data
+    public static class Term {
+        private String academicYear;
+        private Integer semester;
+        private int courseCount;
+        private int credits;
+        private double qualityPoints;
+        private Double gpa;
+    }
+}
@@ -14,6 +14,8 @@ public class UserResponse {
     private String username;
     private String email;
     private String avatar;
+    // Smallest thumbnail, for lists and directory pages
+    private String avatarThumbnail;
     private Set<RoleResponse> roles;
     
     // Student-specific fields
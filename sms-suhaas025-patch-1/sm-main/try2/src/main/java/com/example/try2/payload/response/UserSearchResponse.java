@@ -0,0 +1,17 @@
+package com.example.try2.payload.response;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class UserSearchResponse {
+    private List<UserResponse> content = new ArrayList<>();
+    private int size;
+    // Whether more results follow; no total is computed
+    private boolean hasNext;
+    // Pass back as "cursor" to continue after the last row of this page
+    private String nextCursor;
+    private long tookMs;
+}
@@ -3,6 +3,7 @@ package com.example.try2.repository;
 import com.example.try2.entity.Announcement;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
@@ -16,6 +17,11 @@ public interface AnnouncementRepository extends JpaRepository<Announcement, Long
            "(a.targetRole = ?1 OR a.targetRole IS NULL OR a.targetRole = '') AND " +
            "a.startDate <= ?2 AND (a.endDate IS NULL OR a.endDate >= ?2)")
     List<Announcement> findActiveAnnouncementsByRole(String role, LocalDateTime currentTime);
+
+    // Active announcements that are running or still to come, for the in-memory feeds
+    @Query("SELECT a FROM Announcement a LEFT JOIN FETCH a.createdBy WHERE a.isActive = true AND " +
+           "(a.endDate IS NULL OR a.endDate >= :now)")
+    List<Announcement> findActiveNotEnded(@Param("now") LocalDateTime now);
     
     // Find all announcements by a target role
     List<Announcement> findByTargetRoleOrderByCreatedAtDesc(String targetRole);
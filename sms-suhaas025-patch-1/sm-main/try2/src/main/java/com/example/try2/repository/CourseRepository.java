@@ -1,8 +1,12 @@
 package com.example.try2.repository;
 
 import com.example.try2.entity.Course;
+import com.example.try2.entity.EnrollmentStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.querydsl.QuerydslPredicateExecutor;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -12,4 +16,31 @@ import java.util.Optional;
 public interface CourseRepository extends JpaRepository<Course, Long>, QuerydslPredicateExecutor<Course> {
     Optional<Course> findByCourseCode(String courseCode);
     List<Course> findByTeacher_Id(Long teacherId);
+
+    @Query("SELECT c.id FROM Course c WHERE c.teacher.id = :teacherId")
+    List<Long> findIdsByTeacherId(@Param("teacherId") Long teacherId);
+
+    // Takes a seat only if one is free; returns 1 on success, 0 when the course is full
+    @Modifying
+    @Query("UPDATE Course c SET c.seatsTaken = COALESCE(c.seatsTaken, 0) + 1 WHERE c.id = :courseId AND " +
+           "(c.seatCapacity IS NULL OR COALESCE(c.seatsTaken, 0) < c.seatCapacity)")
+    int reserveSeat(@Param("courseId") Long courseId);
+
+    // Gives a seat back; never drops below zero
+    @Modifying
+    @Query("UPDATE Course c SET c.seatsTaken = c.seatsTaken - 1 WHERE c.id = :courseId AND c.seatsTaken > 0")
+    int releaseSeat(@Param("courseId") Long courseId);
+
+    // Courses where a seat is free while someone is still waitlisted
+    @Query("SELECT c.id FROM Course c WHERE (c.seatCapacity IS NULL OR COALESCE(c.seatsTaken, 0) < c.seatCapacity) " +
+           "AND EXISTS (SELECT e.id FROM Enrollment e WHERE e.course = c AND e.status = :status)")
+    List<Long> findIdsWithFreeSeatsAndWaitlist(@Param("status") EnrollmentStatus status);
+
+    @Query("SELECT c.seatCapacity - COALESCE(c.seatsTaken, 0) FROM Course c WHERE c.id = :courseId")
+    Integer findRemainingSeats(@Param("courseId") Long courseId);
+
+    // Fields indexed by the catalog search, without loading entities
+    @Query("SELECT c.id, c.courseCode, c.courseName, c.description, d.name, c.credits, c.semester, c.academicYear " +
+           "FROM Course c LEFT JOIN c.department d")
+    List<Object[]> findCatalogRows();
 }
\ No newline at end of file
@@ -1,15 +1,51 @@
 package com.example.try2.repository;
 
 import com.example.try2.entity.DashboardComponent;
+import com.example.try2.payload.response.DashboardComponentDetailResponse;
+import com.example.try2.payload.response.DashboardComponentSummaryResponse;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 
 @Repository
 public interface DashboardComponentRepository extends JpaRepository<DashboardComponent, Long> {
+
+    // Read model: list columns only, no LOBs and no role collection
+    String SUMMARY_COLUMNS = "new com.example.try2.payload.response.DashboardComponentSummaryResponse(" +
+            "c.id, c.title, c.description, c.icon, c.displayOrder, c.visible, c.frontendRoute, c.componentType, " +
+            "c.parentId, c.updatedAt) ";
+
+    @Query("SELECT " + SUMMARY_COLUMNS + "FROM DashboardComponent c ORDER BY c.displayOrder, c.id")
+    List<DashboardComponentSummaryResponse> findAllSummaries();
+
+    @Query("SELECT DISTINCT " + SUMMARY_COLUMNS + "FROM DashboardComponent c JOIN c.allowedRoles r " +
+           "WHERE r IN :roles AND c.visible = true ORDER BY c.displayOrder, c.id")
+    List<DashboardComponentSummaryResponse> findVisibleSummariesForRoles(@Param("roles") Collection<String> roles);
+
+    @Query("SELECT " + SUMMARY_COLUMNS + "FROM DashboardComponent c WHERE c.parentId = :parentId " +
+           "ORDER BY c.displayOrder, c.id")
+    List<DashboardComponentSummaryResponse> findSummariesByParentId(@Param("parentId") Long parentId);
+
+    @Query("SELECT COUNT(c) > 0 FROM DashboardComponent c JOIN c.allowedRoles r " +
+           "WHERE c.id = :id AND c.visible = true AND r IN :roles")
+    boolean isVisibleToRoles(@Param("id") Long id, @Param("roles") Collection<String> roles);
+
+    @Query("SELECT c.updatedAt FROM DashboardComponent c WHERE c.id = :id")
+    Optional<LocalDateTime> findUpdatedAtById(@Param("id") Long id);
+
+    @Query("SELECT new com.example.try2.payload.response.DashboardComponentDetailResponse(" +
+           "c.id, c.updatedAt, c.configJson, c.themeJson, c.permissionsJson, c.translationsJson) " +
+           "FROM DashboardComponent c WHERE c.id = :id")
+    Optional<DashboardComponentDetailResponse> findDetailById(@Param("id") Long id);
+
     List<DashboardComponent> findByAllowedRolesInAndVisibleIsTrue(Set<String> roles);
     List<DashboardComponent> findByParentId(Long parentId);
     List<DashboardComponent> findByVisibleIsTrueOrderByDisplayOrderAsc();
-} 
\ No newline at end of file
+}
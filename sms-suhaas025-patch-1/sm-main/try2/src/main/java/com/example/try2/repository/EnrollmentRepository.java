@@ -2,14 +2,46 @@ package com.example.try2.repository;
 
 import com.example.try2.entity.Enrollment;
 import com.example.try2.entity.EnrollmentStatus;
+import com.example.try2.payload.response.EnrollmentResponse;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface EnrollmentRepository extends JpaRepository<Enrollment, Long> {
+
+    // Read model: exactly the EnrollmentResponse columns in one query, no entity hydration
+    String SELECT_RESPONSE = "SELECT new com.example.try2.payload.response.EnrollmentResponse(" +
+            "e.id, s.id, s.username, c.id, c.courseCode, c.courseName, e.status, e.semester, e.academicYear, " +
+            "e.enrolledAt, e.updatedAt, cb.id, cb.username, ub.id, ub.username) " +
+            "FROM Enrollment e JOIN e.student s JOIN e.course c LEFT JOIN e.createdBy cb LEFT JOIN e.updatedBy ub ";
+
+    @Query(SELECT_RESPONSE + "WHERE s.id = :studentId ORDER BY e.id")
+    List<EnrollmentResponse> findResponsesByStudentId(@Param("studentId") Long studentId);
+
+    @Query(SELECT_RESPONSE + "WHERE s.id = :studentId AND e.status = :status ORDER BY e.id")
+    List<EnrollmentResponse> findResponsesByStudentIdAndStatus(@Param("studentId") Long studentId,
+                                                               @Param("status") EnrollmentStatus status);
+
+    @Query(SELECT_RESPONSE + "WHERE c.id = :courseId ORDER BY e.id")
+    List<EnrollmentResponse> findResponsesByCourseId(@Param("courseId") Long courseId);
+
+    @Query(value = SELECT_RESPONSE + "WHERE s.id = :studentId",
+           countQuery = "SELECT COUNT(e) FROM Enrollment e WHERE e.student.id = :studentId")
+    Page<EnrollmentResponse> findResponsesByStudentId(@Param("studentId") Long studentId, Pageable pageable);
+
+    @Query(value = SELECT_RESPONSE + "WHERE c.id = :courseId",
+           countQuery = "SELECT COUNT(e) FROM Enrollment e WHERE e.course.id = :courseId")
+    Page<EnrollmentResponse> findResponsesByCourseId(@Param("courseId") Long courseId, Pageable pageable);
+    
     
     List<Enrollment> findByStudent_Id(Long studentId);
     
@@ -26,4 +58,23 @@ public interface EnrollmentRepository extends JpaRepository<Enrollment, Long> {
     List<Enrollment> findByCourse_IdAndSemesterAndAcademicYear(Long courseId, String semester, String academicYear);
     
     boolean existsByStudent_IdAndCourse_Id(Long studentId, Long courseId);
+
+    // (studentId, courseId) pairs that already exist among the given students and courses
+    @Query("SELECT e.student.id, e.course.id FROM Enrollment e WHERE e.student.id IN :studentIds AND e.course.id IN :courseIds")
+    List<Object[]> findExistingPairs(@Param("studentIds") Collection<Long> studentIds, @Param("courseIds") Collection<Long> courseIds);
+
+    // Waitlist is ordered by insertion (identity ids are monotonic)
+    List<Enrollment> findTop5ByCourse_IdAndStatusOrderByIdAsc(Long courseId, EnrollmentStatus status);
+
+    long countByCourse_IdAndStatusAndIdLessThan(Long courseId, EnrollmentStatus status, Long id);
+
+    // [enrollment id, 1-based waitlist position] for the given waitlisted enrollments, in one query
+    @Query("SELECT e.id, COUNT(w) FROM Enrollment e, Enrollment w " +
+           "WHERE e.id IN :ids AND w.course = e.course AND w.status = :status AND w.id <= e.id GROUP BY e.id")
+    List<Object[]> findWaitlistPositions(@Param("ids") Collection<Long> ids, @Param("status") EnrollmentStatus status);
+
+    // Moves a single row out of the waitlist; returns 0 if another transaction got there first
+    @Modifying
+    @Query("UPDATE Enrollment e SET e.status = :status WHERE e.id = :id AND e.status = com.example.try2.entity.EnrollmentStatus.WAITLISTED")
+    int promoteFromWaitlist(@Param("id") Long id, @Param("status") EnrollmentStatus status);
 } 
\ No newline at end of file
@@ -3,7 +3,11 @@ package com.example.try2.repository;
 import com.example.try2.entity.Grade;
 import com.example.try2.entity.User;
 import com.example.try2.entity.Course;
+import com.example.try2.payload.response.CourseGradeRankingResponse;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -13,4 +17,40 @@ public interface GradeRepository extends JpaRepository<Grade, Long> {
     List<Grade> findByStudent_Id(Long studentId);
     List<Grade> findByCourse_Id(Long courseId);
     List<Grade> findByStudent_IdAndCourse_Id(Long studentId, Long courseId);
+
+    // (studentId, academicYear, semester) of every grade recorded for the course
+    @Query("SELECT DISTINCT g.student.id, g.academicYear, g.semester FROM Grade g WHERE g.course.id = :courseId")
+    List<Object[]> findTermsByCourseId(@Param("courseId") Long courseId);
+
+    // Course statistics. Scores are integers in 0..100, so the per-score counts are at most
+    // 101 rows and carry everything needed for exact mean, spread and percentiles.
+
+    @Query("SELECT g.score, COUNT(g) FROM Grade g WHERE g.course.id = :courseId AND g.score IS NOT NULL " +
+            "AND (:semester IS NULL OR g.semester = :semester) " +
+            "AND (:academicYear IS NULL OR g.academicYear = :academicYear) " +
+            "GROUP BY g.score")
+    List<Object[]> countScoresByCourse(@Param("courseId") Long courseId,
+                                       @Param("semester") Integer semester,
+                                       @Param("academicYear") String academicYear);
+
+    @Query("SELECT UPPER(TRIM(g.grade)), COUNT(g) FROM Grade g WHERE g.course.id = :courseId AND g.grade IS NOT NULL " +
+            "AND (:semester IS NULL OR g.semester = :semester) " +
+            "AND (:academicYear IS NULL OR g.academicYear = :academicYear) " +
+            "GROUP BY UPPER(TRIM(g.grade)) ORDER BY UPPER(TRIM(g.grade))")
+    List<Object[]> countLettersByCourse(@Param("courseId") Long courseId,
+                                        @Param("semester") Integer semester,
+                                        @Param("academicYear") String academicYear);
+
+    @Query("SELECT new com.example.try2.payload.response.CourseGradeRankingResponse(" +
+            "c.id, c.courseCode, c.courseName, COUNT(g), AVG(g.score), MIN(g.score), MAX(g.score)) " +
+            "FROM Grade g JOIN g.course c WHERE g.score IS NOT NULL " +
+            "AND (:semester IS NULL OR g.semester = :semester) " +
+            "AND (:academicYear IS NULL OR g.academicYear = :academicYear) " +
+            "GROUP BY c.id, c.courseCode, c.courseName " +
+            "HAVING COUNT(g) >= :minGrades " +
+            "ORDER BY AVG(g.score) DESC, c.id ASC")
+    List<CourseGradeRankingResponse> rankCoursesByMeanScore(@Param("semester") Integer semester,
+                                                            @Param("academicYear") String academicYear,
+                                                            @Param("minGrades") long minGrades,
+                                                            Pageable pageable);
 }
\ No newline at end of file
@@ -2,6 +2,7 @@ package com.example.try2.repository;
 
 import com.example.try2.entity.MenuFeature;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -11,6 +12,9 @@ import java.util.Set;
 public interface MenuFeatureRepository extends JpaRepository<MenuFeature, Long> {
     List<MenuFeature> findByAllowedRoles_NameInAndVisibleIsTrue(Set<String> roleNames);
     List<MenuFeature> findByVisibleIsTrue();
+
+    @Query("SELECT DISTINCT f FROM MenuFeature f LEFT JOIN FETCH f.allowedRoles WHERE f.visible = true")
+    List<MenuFeature> findVisibleWithRoles();
     boolean existsByName(String name);
     boolean existsByUri(String uri);
 } 
\ No newline at end of file
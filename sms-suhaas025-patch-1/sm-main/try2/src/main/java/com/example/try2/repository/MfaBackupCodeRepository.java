@@ -0,0 +1,30 @@
+package com.example.try2.repository;
+
+import com.example.try2.entity.MfaBackupCode;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+@Repository
+public interface MfaBackupCodeRepository extends JpaRepository<MfaBackupCode, Long> {
+
+    Optional<MfaBackupCode> findFirstByUserId(Long userId);
+
+    /**
+     * Consumes a code: the delete is the lookup, so a code can only ever be used once.
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM MfaBackupCode c WHERE c.userId = :userId AND c.digest = :digest")
+    int deleteByUserIdAndDigest(@Param("userId") Long userId, @Param("digest") String digest);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM MfaBackupCode c WHERE c.userId = :userId")
+    int deleteAllByUserId(@Param("userId") Long userId);
+}
@@ -0,0 +1,26 @@
+package com.example.try2.repository;
+
+import com.example.try2.entity.StoredFile;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface StoredFileRepository extends JpaRepository<StoredFile, Long> {
+
+    @Query("SELECT COALESCE(SUM(f.sizeBytes), 0) FROM StoredFile f WHERE f.userId = :userId AND f.purpose <> :purpose")
+    long sumSizeExcludingPurpose(@Param("userId") Long userId, @Param("purpose") String purpose);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM StoredFile f WHERE f.userId = :userId AND f.purpose = :purpose")
+    int deleteByUserIdAndPurpose(@Param("userId") Long userId, @Param("purpose") String purpose);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM StoredFile f WHERE f.userId NOT IN (SELECT u.id FROM User u)")
+    int deleteForMissingUsers();
+}
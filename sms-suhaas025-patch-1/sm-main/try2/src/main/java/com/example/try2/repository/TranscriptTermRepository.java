@@ -0,0 +1,27 @@
+package com.example.try2.repository;
+
+import com.example.try2.entity.TranscriptTerm;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface TranscriptTermRepository extends JpaRepository<TranscriptTerm, Long> {
+    List<TranscriptTerm> findByStudentIdOrderByAcademicYearAscSemesterAsc(Long studentId);
+
+    /**
+     * Loads and row-locks a term summary so concurrent refreshes of the same term apply in order.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT t FROM TranscriptTerm t WHERE t.studentId = :studentId " +
+            "AND t.academicYear = :academicYear AND t.semester = :semester")
+    Optional<TranscriptTerm> findForUpdate(@Param("studentId") Long studentId,
+                                           @Param("academicYear") String academicYear,
+                                           @Param("semester") Integer semester);
+}
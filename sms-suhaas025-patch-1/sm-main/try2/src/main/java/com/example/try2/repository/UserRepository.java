@@ -6,10 +6,15 @@ import com.example.try2.entity.EAccountStatus;
 import com.example.try2.entity.Role;
 import com.example.try2.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.querydsl.QuerydslPredicateExecutor;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -28,4 +33,45 @@ public interface UserRepository extends JpaRepository<User, Long>, QuerydslPredi
     
     // Account expiration methods
     List<User> findByAccountExpirationDateBeforeAndAccountStatusNot(LocalDateTime expirationDate, EAccountStatus accountStatus);
-}
\ No newline at end of file
+
+    // Ids from the given set that hold at least one of the given roles
+    @Query("SELECT DISTINCT u.id FROM User u JOIN u.roles r WHERE u.id IN :ids AND r.name IN :roles")
+    List<Long> findIdsWithAnyRole(@Param("ids") Collection<Long> ids, @Param("roles") Collection<ERole> roles);
+
+    // A result page with roles and department in one query, instead of lazy loads per row
+    @Query("SELECT DISTINCT u FROM User u LEFT JOIN FETCH u.roles LEFT JOIN FETCH u.department WHERE u.id IN :ids")
+    List<User> findWithRolesByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Sign-in: the user and roles in one query
+    @Query("SELECT u FROM User u LEFT JOIN FETCH u.roles WHERE u.username = :username")
+    Optional<User> findForLoginByUsername(@Param("username") String username);
+
+    // Sign-in outcome written as one targeted UPDATE instead of load, dirty-check and save
+    @Modifying
+    @Transactional
+    @Query("UPDATE User u SET u.failedLoginAttempts = 0, u.accountLockedUntil = NULL, u.lastLoginDate = :now, " +
+            "u.accountExpirationDate = :expiresAt, u.currentJwt = :jwt, u.updatedAt = :now " +
+            "WHERE u.id = :id")
+    int recordSuccessfulLogin(@Param("id") Long id, @Param("now") LocalDateTime now,
+                              @Param("expiresAt") LocalDateTime expiresAt, @Param("jwt") String jwt);
+
+    // Only the lock transition is written; individual failures are counted in memory
+    @Modifying
+    @Transactional
+    @Query("UPDATE User u SET u.failedLoginAttempts = :attempts, u.accountLockedUntil = :lockedUntil, " +
+            "u.updatedAt = :now WHERE u.id = :id")
+    int lockAccount(@Param("id") Long id, @Param("attempts") int attempts, @Param("lockedUntil") Long lockedUntil,
+                    @Param("now") LocalDateTime now);
+
+    // Compare-and-set, so a password changed meanwhile is never overwritten by a rehash
+    @Modifying
+    @Transactional
+    @Query("UPDATE User u SET u.password = :newHash WHERE u.id = :id AND u.password = :oldHash")
+    int replacePasswordHash(@Param("id") Long id, @Param("oldHash") String oldHash, @Param("newHash") String newHash);
+
+    // Consumes a legacy BCrypt backup code; 0 if it was already used
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM user_backup_codes WHERE user_id = :userId AND backup_code = :hash", nativeQuery = true)
+    int deleteLegacyBackupCode(@Param("userId") Long userId, @Param("hash") String hash);
+}
@@ -0,0 +1,248 @@
+package com.example.try2.security;
+
+import com.example.try2.config.RateLimitProperties;
+import com.example.try2.security.jwt.JwtUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token-bucket rate limiting, ahead of JWT authentication so limited requests cost no
+ * database work. Buckets are keyed by rule and by the JWT subject (signature checked, no
+ * lookup) or, for anonymous requests and IP rules, the client address.
+ * <p>
+ * Each bucket is a single {@link AtomicLong} holding the time at which it will be full again
+ * (the GCRA form of a token bucket), so a request costs one CAS and no lock. Full buckets
+ * carry no information and are evicted once idle; when the table is full, idle buckets are
+ * evicted on insert, and if it is still full new clients are limited per network prefix
+ * (/24 for IPv4, /48 for IPv6) rather than sharing one bucket. Responses carry {@code RateLimit-Limit},
+ * {@code RateLimit-Remaining} and {@code RateLimit-Reset}; limited ones get 429 and
+ * {@code Retry-After}.
+ */
+public class RateLimitFilter extends OncePerRequestFilter {
+    private static final Logger log = LoggerFactory.getLogger(RateLimitFilter.class);
+
+    private static final String BEARER = "Bearer ";
+
+    @Autowired
+    private RateLimitProperties properties;
+
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+    // Per rule and network prefix, used only while buckets is full
+    private final Map<String, Bucket> overflow = new ConcurrentHashMap<>();
+    private final AtomicLong lastInlineSweep = new AtomicLong(System.nanoTime() - TimeUnit.SECONDS.toNanos(1));
+    private List<CompiledRule> rules = List.of();
+
+    private record CompiledRule(RateLimitProperties.Rule rule, long intervalNanos, long burstNanos,
+                                Counter allowed, Counter limited) {
+    }
+
+    /**
+     * Time at which the bucket is full again; each request pushes it one refill interval later.
+     */
+    private static final class Bucket {
+        final AtomicLong fullAt = new AtomicLong();
+    }
+
+    private record Decision(boolean allowed, long remaining, long resetSeconds, long retryAfterSeconds) {
+    }
+
+    @PostConstruct
+    public void init() {
+        List<CompiledRule> compiled = new ArrayList<>();
+        for (RateLimitProperties.Rule rule : properties.getRules()) {
+            if (rule.getCapacity() <= 0 || rule.getRefillPerSecond() <= 0 || rule.getPatterns().isEmpty()) {
+                log.warn("Ignoring rate limit rule {}: capacity, refill rate and patterns are required", rule.getName());
+                continue;
+            }
+            long interval = (long) (TimeUnit.SECONDS.toNanos(1) / rule.getRefillPerSecond());
+            compiled.add(new CompiledRule(rule, interval, interval * rule.getCapacity(),
+                    counter(rule.getName(), "allowed"), counter(rule.getName(), "limited")));
+        }
+        rules = List.copyOf(compiled);
+        Gauge.builder("app.rate-limit.buckets", buckets, Map::size)
+                .description("Live rate-limit buckets")
+                .register(meterRegistry);
+        log.info("Rate limiting {} with {} rules", properties.isEnabled() ? "enabled" : "disabled", rules.size());
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !properties.isEnabled() || "OPTIONS".equals(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        CompiledRule rule = match(request);
+        if (rule == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        Decision decision = acquire(rule, bucketFor(rule, request));
+        response.setHeader("RateLimit-Limit", Integer.toString(rule.rule().getCapacity()));
+        response.setHeader("RateLimit-Remaining", Long.toString(decision.remaining()));
+        response.setHeader("RateLimit-Reset", Long.toString(decision.resetSeconds()));
+        if (!decision.allowed()) {
+            rule.limited().increment();
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(decision.retryAfterSeconds()));
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getWriter().write("{\"message\": \"Too many requests. Please slow down and try again shortly.\"}");
+            return;
+        }
+        rule.allowed().increment();
+        filterChain.doFilter(request, response);
+    }
+
+    /**
+     * Drops buckets that have refilled completely; they would behave exactly like new ones.
+     */
+    @Scheduled(fixedRate = 30000)
+    public void evictIdle() {
+        long now = System.nanoTime();
+        int before = buckets.size();
+        buckets.values().removeIf(bucket -> bucket.fullAt.get() - now <= 0);
+        overflow.clear();
+        if (before != buckets.size()) {
+            log.debug("Evicted {} idle rate-limit buckets ({} live)", before - buckets.size(), buckets.size());
+        }
+    }
+
+    private CompiledRule match(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        String method = request.getMethod().toUpperCase(Locale.ROOT);
+        for (CompiledRule compiled : rules) {
+            RateLimitProperties.Rule rule = compiled.rule();
+            if (!rule.getMethods().isEmpty() && rule.getMethods().stream().noneMatch(method::equalsIgnoreCase)) {
+                continue;
+            }
+            for (String pattern : rule.getPatterns()) {
+                if (pathMatcher.match(pattern, path)) {
+                    return compiled;
+                }
+            }
+        }
+        return null;
+    }
+
+    private Bucket bucketFor(CompiledRule rule, HttpServletRequest request) {
+        String key = rule.rule().getName() + '|' + clientKey(rule.rule(), request);
+        Bucket bucket = buckets.get(key);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (buckets.size() >= properties.getMaxBuckets()) {
+            evictIdleIfDue();
+        }
+        if (buckets.size() < properties.getMaxBuckets()) {
+            return buckets.computeIfAbsent(key, k -> new Bucket());
+        }
+        // Bounded memory under key floods: limit by network so one noisy client cannot throttle everyone
+        boolean coarse = overflow.size() >= properties.getMaxBuckets();
+        return overflow.computeIfAbsent(rule.rule().getName() + '|' + networkPrefix(request.getRemoteAddr(), coarse),
+                k -> new Bucket());
+    }
+
+    // At most once a second, so a flood of new keys does not turn every insert into a full scan
+    private void evictIdleIfDue() {
+        long now = System.nanoTime();
+        long last = lastInlineSweep.get();
+        if (now - last >= TimeUnit.SECONDS.toNanos(1) && lastInlineSweep.compareAndSet(last, now)) {
+            buckets.values().removeIf(bucket -> bucket.fullAt.get() - now <= 0);
+        }
+    }
+
+    /**
+     * IPv4 /24 and IPv6 /48, or /16 and /32 when even the prefix table is full.
+     */
+    static String networkPrefix(String address, boolean coarse) {
+        if (address == null) {
+            return "net:unknown";
+        }
+        boolean v6 = address.indexOf(':') >= 0;
+        String[] parts = address.split(v6 ? ":" : "\\.", -1);
+        // Three octets or three 16-bit groups, two when coarse
+        int keep = coarse ? 2 : 3;
+        if (parts.length <= keep) {
+            return "net:" + address;
+        }
+        return "net:" + String.join(v6 ? ":" : ".", List.of(parts).subList(0, keep));
+    }
+
+    private String clientKey(RateLimitProperties.Rule rule, HttpServletRequest request) {
+        if ("user".equalsIgnoreCase(rule.getKey())) {
+            String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+            if (StringUtils.hasText(header) && header.startsWith(BEARER)) {
+                try {
+                    return "u:" + jwtUtils.getUserNameFromJwtToken(header.substring(BEARER.length()));
+                } catch (RuntimeException e) {
+                    // Invalid or expired token: limit by address; authentication rejects it later
+                }
+            }
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+
+    private static Decision acquire(CompiledRule rule, Bucket bucket) {
+        long interval = rule.intervalNanos();
+        long burst = rule.burstNanos();
+        while (true) {
+            long now = System.nanoTime();
+            long fullAt = bucket.fullAt.get();
+            long base = fullAt - now > 0 ? fullAt : now;
+            long next = base + interval;
+            if (next - now > burst) {
+                // Not enough tokens: the next one frees up once fullAt drops back within the burst
+                long waitNanos = next - now - burst;
+                return new Decision(false, 0, seconds(base - now), Math.max(1, seconds(waitNanos)));
+            }
+            if (bucket.fullAt.compareAndSet(fullAt, next)) {
+                long remaining = (burst - (next - now)) / interval;
+                return new Decision(true, remaining, seconds(next - now), 0);
+            }
+        }
+    }
+
+    private static long seconds(long nanos) {
+        return (nanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1);
+    }
+
+    private Counter counter(String rule, String outcome) {
+        return Counter.builder("app.rate-limit.requests")
+                .description("Requests checked against a rate limit rule")
+                .tags("rule", rule, "outcome", outcome)
+                .register(meterRegistry);
+    }
+}
@@ -19,6 +19,8 @@ import java.io.IOException;
 
 @Component
 public class AuthTokenFilter extends OncePerRequestFilter {
+    public static final String STREAM_PATH = "/api/events/stream";
+
     @Autowired
     private JwtUtils jwtUtils;
 
@@ -31,12 +33,17 @@ public class AuthTokenFilter extends OncePerRequestFilter {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private StreamTicketService streamTicketService;
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
         try {
             String jwt = parseJwt(request);
-            if (jwt != null) {
+            if (jwt == null && STREAM_PATH.equals(request.getRequestURI())) {
+                authenticateStreamTicket(request);
+            } else if (jwt != null) {
                 // Check blacklist
                 if (tokenBlacklistService.isTokenBlacklisted(jwt)) {
                     response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
@@ -78,6 +85,25 @@ public class AuthTokenFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    // EventSource cannot set headers, so the event stream takes a single-use ticket parameter instead
+    private void authenticateStreamTicket(HttpServletRequest request) {
+        String ticket = request.getParameter("ticket");
+        String username = ticket != null && !ticket.isBlank() ? streamTicketService.consume(ticket) : null;
+        if (username == null) {
+            return;
+        }
+        // The session the ticket was issued to must still be signed in
+        User user = userRepository.findByUsername(username).orElse(null);
+        if (user == null || user.getCurrentJwt() == null) {
+            return;
+        }
+        UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+        UsernamePasswordAuthenticationToken authentication =
+                new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+        authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+        SecurityContextHolder.getContext().setAuthentication(authentication);
+    }
+
     private String parseJwt(HttpServletRequest request) {
         String headerAuth = request.getHeader("Authorization");
 
@@ -0,0 +1,85 @@
+package com.example.try2.security.jwt;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.util.Date;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Short-lived, single-use tickets for opening the event stream.
+ * <p>
+ * EventSource cannot send an Authorization header, so the stream URL carries a ticket
+ * instead of the session JWT, which would otherwise end up in access and proxy logs. A
+ * ticket is signed (any node can check it), names the user, expires after
+ * {@code app.events.ticket-ttl-ms} and is accepted once per node.
+ */
+@Service
+public class StreamTicketService {
+
+    private static final String TICKET_CLAIM = "streamTicket";
+
+    @Value("${app.jwtSecret}")
+    private String jwtSecret;
+
+    @Value("${app.events.ticket-ttl-ms:30000}")
+    private long ticketTtlMs;
+
+    // Ids of tickets already used, until they would have expired anyway
+    private final Map<String, Long> used = new ConcurrentHashMap<>();
+
+    public String issue(String username) {
+        long now = System.currentTimeMillis();
+        return Jwts.builder()
+                .setSubject(username)
+                .setId(UUID.randomUUID().toString())
+                .setIssuedAt(new Date(now))
+                .setExpiration(new Date(now + ticketTtlMs))
+                .claim(TICKET_CLAIM, true)
+                .signWith(signingKey(), SignatureAlgorithm.HS256)
+                .compact();
+    }
+
+    public long getTicketTtlMs() {
+        return ticketTtlMs;
+    }
+
+    /**
+     * The ticket's username if it is valid and unused; it cannot be used again afterwards.
+     */
+    public String consume(String ticket) {
+        Claims claims;
+        try {
+            claims = Jwts.parserBuilder().setSigningKey(signingKey()).build().parseClaimsJws(ticket).getBody();
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
+        if (!Boolean.TRUE.equals(claims.get(TICKET_CLAIM, Boolean.class)) || claims.getId() == null) {
+            return null;
+        }
+        if (used.putIfAbsent(claims.getId(), claims.getExpiration().getTime()) != null) {
+            return null;
+        }
+        return claims.getSubject();
+    }
+
+    @Scheduled(fixedRate = 60000)
+    public void sweep() {
+        long now = System.currentTimeMillis();
+        used.values().removeIf(expiresAt -> expiresAt < now);
+    }
+
+    private Key signingKey() {
+        return Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
+    }
+}
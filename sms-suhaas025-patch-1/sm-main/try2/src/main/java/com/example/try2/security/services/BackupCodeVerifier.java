@@ -0,0 +1,202 @@
+package com.example.try2.security.services;
+
+import com.example.try2.entity.MfaBackupCode;
+import com.example.try2.exception.AppException;
+import com.example.try2.repository.MfaBackupCodeRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Backup codes stored as HMAC-SHA256 digests of user id, batch salt and code.
+ * <p>
+ * A check costs one salt lookup, one HMAC and one indexed delete, whatever the number of
+ * codes; the delete both finds and consumes the code, so it cannot be used twice. Wrong
+ * codes count per user and throttle further attempts. The throttle check, the delete and the
+ * failure count run under one per-user lock, so concurrent guesses cannot pass the limit.
+ * <p>
+ * The key comes from {@code app.security.backup-codes.key}, or is derived from the JWT
+ * secret when that is not set. Changing it invalidates all stored codes.
+ */
+@Component
+public class BackupCodeVerifier {
+    private static final Logger logger = LoggerFactory.getLogger(BackupCodeVerifier.class);
+
+    private static final String HMAC = "HmacSHA256";
+    private static final int SALT_BYTES = 16;
+    private static final int LOCK_STRIPES = 64;
+
+    @Autowired
+    private MfaBackupCodeRepository backupCodeRepository;
+
+    @Value("${app.security.backup-codes.key:}")
+    private String configuredKey;
+
+    @Value("${app.jwtSecret}")
+    private String jwtSecret;
+
+    @Value("${app.security.backup-codes.max-failures:5}")
+    private int maxFailures;
+
+    @Value("${app.security.backup-codes.throttle-seconds:900}")
+    private long throttleSeconds;
+
+    private record Failures(long periodStart, int count) {
+    }
+
+    private final Map<Long, Failures> failures = new ConcurrentHashMap<>();
+    private final SecureRandom random = new SecureRandom();
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+    private SecretKeySpec key;
+
+    public BackupCodeVerifier() {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        if (configuredKey != null && !configuredKey.isBlank()) {
+            key = new SecretKeySpec(configuredKey.getBytes(StandardCharsets.UTF_8), HMAC);
+        } else {
+            // Separate from the JWT signing key, so one digest never doubles as the other
+            key = new SecretKeySpec(hmac(new SecretKeySpec(jwtSecret.getBytes(StandardCharsets.UTF_8), HMAC),
+                    "mfa-backup-codes"), HMAC);
+            logger.info("No app.security.backup-codes.key set; using a key derived from the JWT secret");
+        }
+    }
+
+    /**
+     * Replaces the user's stored codes with digests of the given ones, under a fresh salt.
+     */
+    @Transactional
+    public void store(Long userId, Collection<String> codes) {
+        byte[] saltBytes = new byte[SALT_BYTES];
+        random.nextBytes(saltBytes);
+        String salt = Base64.getEncoder().encodeToString(saltBytes);
+        LocalDateTime now = LocalDateTime.now();
+
+        List<MfaBackupCode> rows = new ArrayList<>(codes.size());
+        for (String code : codes) {
+            rows.add(new MfaBackupCode(null, userId, digest(userId, salt, code), salt, now));
+        }
+        backupCodeRepository.deleteAllByUserId(userId);
+        backupCodeRepository.saveAll(rows);
+        failures.remove(userId);
+    }
+
+    /**
+     * Checks a code and deletes it if it matches.
+     *
+     * @throws AppException with 429 while the user is throttled
+     */
+    public boolean consume(Long userId, String code) {
+        return consumeWith(userId, () -> {
+            String normalized = normalize(code);
+            Optional<MfaBackupCode> any = backupCodeRepository.findFirstByUserId(userId);
+            if (normalized == null || any.isEmpty()) {
+                return false;
+            }
+            String digest = digest(userId, any.get().getSalt(), normalized);
+            return backupCodeRepository.deleteByUserIdAndDigest(userId, digest) == 1;
+        });
+    }
+
+    /**
+     * Runs a check that finds and consumes a code stored some other way (legacy BCrypt codes)
+     * under the same per-user lock and limit as {@link #consume}.
+     *
+     * @throws AppException with 429 while the user is throttled
+     */
+    public boolean consumeWith(Long userId, BooleanSupplier check) {
+        ReentrantLock lock = locks[Math.floorMod(userId.hashCode(), LOCK_STRIPES)];
+        lock.lock();
+        try {
+            long now = System.currentTimeMillis();
+            throttle(userId, now);
+            if (!check.getAsBoolean()) {
+                recordFailure(userId, now);
+                return false;
+            }
+            failures.remove(userId);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Deletes all of the user's codes, e.g. when MFA is disabled.
+     */
+    public void clear(Long userId) {
+        backupCodeRepository.deleteAllByUserId(userId);
+        failures.remove(userId);
+    }
+
+    @Scheduled(fixedRate = 60000)
+    public void sweep() {
+        long now = System.currentTimeMillis();
+        failures.values().removeIf(f -> now - f.periodStart() >= throttleSeconds * 1000);
+    }
+
+    private void throttle(Long userId, long now) {
+        Failures current = failures.get(userId);
+        if (current != null && current.count() >= maxFailures && now - current.periodStart() < throttleSeconds * 1000) {
+            long secondsLeft = (current.periodStart() + throttleSeconds * 1000 - now + 999) / 1000;
+            throw new AppException("Too many invalid backup codes. Please try again in " + secondsLeft + " seconds.",
+                    HttpStatus.TOO_MANY_REQUESTS, "MFA_THROTTLED");
+        }
+    }
+
+    private void recordFailure(Long userId, long now) {
+        failures.compute(userId, (id, f) -> f == null || now - f.periodStart() >= throttleSeconds * 1000
+                ? new Failures(now, 1)
+                : new Failures(f.periodStart(), f.count() + 1));
+    }
+
+    private String digest(Long userId, String salt, String code) {
+        return Base64.getEncoder().encodeToString(hmac(key, userId + ":" + salt + ":" + code));
+    }
+
+    private static byte[] hmac(SecretKeySpec key, String message) {
+        try {
+            Mac mac = Mac.getInstance(HMAC);
+            mac.init(key);
+            return mac.doFinal(message.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+
+    // Codes are digits; tolerate the spaces or dashes people type when copying them
+    private static String normalize(String code) {
+        if (code == null) {
+            return null;
+        }
+        String digits = code.replaceAll("[\\s-]", "");
+        return digits.matches("\\d{4,16}") ? digits : null;
+    }
+}
@@ -0,0 +1,302 @@
+package com.example.try2.security.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Failed sign-in tracking in memory, per username and per client IP.
+ * <p>
+ * Each key has a sliding-window counter (current and previous fixed window, the previous
+ * one weighted by how much of it still overlaps the sliding window). Crossing the limit
+ * locks the key; while locked, sign-ins are refused before any database read or password
+ * hash. Keys live in lock-striped maps and are swept once idle for two windows.
+ * <p>
+ * A full stripe makes room by evicting its least recently seen unlocked key. If every key in
+ * it is locked, the stripe fails closed: keys it does not hold are refused until the lock
+ * period has passed, rather than going uncounted.
+ * <p>
+ * Nothing here is persisted; callers write only the lock transition of a real account.
+ */
+@Component
+public class LoginAttemptTracker {
+    private static final Logger logger = LoggerFactory.getLogger(LoginAttemptTracker.class);
+
+    private static final int STRIPES = 64;
+    // Per stripe, so roughly 64 x this many keys of each kind at most
+    private static final int MAX_KEYS_PER_STRIPE = 4096;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.security.lockout.username.max-failures:5}")
+    private int usernameMaxFailures;
+
+    @Value("${app.security.lockout.username.lock-seconds:60}")
+    private long usernameLockSeconds;
+
+    @Value("${app.security.lockout.ip.max-failures:50}")
+    private int ipMaxFailures;
+
+    @Value("${app.security.lockout.ip.lock-seconds:300}")
+    private long ipLockSeconds;
+
+    @Value("${app.security.lockout.window-seconds:300}")
+    private long windowSeconds;
+
+    private Striped usernames;
+    private Striped addresses;
+    private Counter rejected;
+
+    /**
+     * A refusal: which key is locked and for how many more seconds.
+     */
+    public record Lockout(boolean byAddress, long secondsLeft) {
+    }
+
+    /**
+     * Result of recording a failure. {@code lockedUntil} is set only when this failure locked the username.
+     */
+    public record Failure(int recentFailures, Long lockedUntil) {
+    }
+
+    private static final class Window {
+        long windowStart;
+        int current;
+        int previous;
+        long lockedUntil;
+        long lastSeen;
+
+        double estimate(long now, long windowMillis) {
+            roll(now, windowMillis);
+            double overlap = 1.0 - (double) (now - windowStart) / windowMillis;
+            return current + previous * overlap;
+        }
+
+        void roll(long now, long windowMillis) {
+            long start = now - now % windowMillis;
+            if (start != windowStart) {
+                previous = start - windowStart == windowMillis ? current : 0;
+                current = 0;
+                windowStart = start;
+            }
+        }
+    }
+
+    private static final class Striped {
+        final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+        @SuppressWarnings("unchecked")
+        final Map<String, Window>[] maps = new Map[STRIPES];
+        // Until when a stripe with no evictable key refuses keys it does not hold
+        final long[] saturatedUntil = new long[STRIPES];
+
+        Striped() {
+            for (int i = 0; i < STRIPES; i++) {
+                locks[i] = new ReentrantLock();
+                // Access order, so eviction finds the least recently seen key first
+                maps[i] = new LinkedHashMap<>(16, 0.75f, true);
+            }
+        }
+
+        int stripe(String key) {
+            int h = key.hashCode();
+            return (h ^ (h >>> 16)) & (STRIPES - 1);
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        usernames = new Striped();
+        addresses = new Striped();
+        rejected = Counter.builder("app.security.lockout.rejected")
+                .description("Sign-ins refused by the in-memory lockout before any database or hashing work")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Refuses the attempt if the client address or the username is currently locked.
+     */
+    public Lockout check(String username, String address) {
+        long now = System.currentTimeMillis();
+        long left = lockedFor(addresses, address, now);
+        if (left > 0) {
+            rejected.increment();
+            return new Lockout(true, left);
+        }
+        left = lockedFor(usernames, normalize(username), now);
+        if (left > 0) {
+            rejected.increment();
+            return new Lockout(false, left);
+        }
+        return null;
+    }
+
+    /**
+     * Counts a wrong password for an existing account, against both the username and the address.
+     */
+    public Failure recordFailure(String username, String address) {
+        long now = System.currentTimeMillis();
+        recordAddressFailure(address, now);
+        String key = normalize(username);
+        Failure failure = key != null ? increment(usernames, key, now, usernameMaxFailures, usernameLockSeconds) : null;
+        return failure != null ? failure : new Failure(0, null);
+    }
+
+    /**
+     * Counts a failure against the address only, e.g. for a username that does not exist, so
+     * made-up names cannot take up username slots.
+     */
+    public void recordAddressFailure(String address) {
+        recordAddressFailure(address, System.currentTimeMillis());
+    }
+
+    private void recordAddressFailure(String address, long now) {
+        if (address == null) {
+            return;
+        }
+        Failure byAddress = increment(addresses, address, now, ipMaxFailures, ipLockSeconds);
+        if (byAddress != null && byAddress.lockedUntil() != null) {
+            logger.warn("Sign-ins from {} locked for {} s after {} failures", address, ipLockSeconds, ipMaxFailures);
+        }
+    }
+
+    /**
+     * Clears the username's failures after a successful sign-in. The address keeps its count.
+     */
+    public void recordSuccess(String username) {
+        String key = normalize(username);
+        if (key == null) {
+            return;
+        }
+        int i = usernames.stripe(key);
+        usernames.locks[i].lock();
+        try {
+            usernames.maps[i].remove(key);
+        } finally {
+            usernames.locks[i].unlock();
+        }
+    }
+
+    /**
+     * Drops keys that have been idle for two windows and are not locked.
+     */
+    @Scheduled(fixedRate = 60000)
+    public void sweep() {
+        long now = System.currentTimeMillis();
+        int removed = sweep(usernames, now) + sweep(addresses, now);
+        if (removed > 0) {
+            logger.debug("Swept {} idle failed-login counters", removed);
+        }
+    }
+
+    private int sweep(Striped striped, long now) {
+        int removed = 0;
+        long idleBefore = now - 2 * windowMillis();
+        for (int i = 0; i < STRIPES; i++) {
+            striped.locks[i].lock();
+            try {
+                Iterator<Window> it = striped.maps[i].values().iterator();
+                while (it.hasNext()) {
+                    Window window = it.next();
+                    if (window.lastSeen < idleBefore && window.lockedUntil <= now) {
+                        it.remove();
+                        removed++;
+                    }
+                }
+            } finally {
+                striped.locks[i].unlock();
+            }
+        }
+        return removed;
+    }
+
+    private long lockedFor(Striped striped, String key, long now) {
+        if (key == null) {
+            return 0;
+        }
+        int i = striped.stripe(key);
+        striped.locks[i].lock();
+        try {
+            Window window = striped.maps[i].get(key);
+            long until = window != null ? window.lockedUntil : striped.saturatedUntil[i];
+            return until > now ? Math.max(1, (until - now + 999) / 1000) : 0;
+        } finally {
+            striped.locks[i].unlock();
+        }
+    }
+
+    private Failure increment(Striped striped, String key, long now, int maxFailures, long lockSeconds) {
+        int i = striped.stripe(key);
+        striped.locks[i].lock();
+        try {
+            Window window = window(striped.maps[i], key, now);
+            if (window == null) {
+                // Nothing evictable: fail closed for keys this stripe cannot hold
+                striped.saturatedUntil[i] = Math.max(striped.saturatedUntil[i], now + lockSeconds * 1000);
+                logger.warn("Failed-login stripe full of locked keys; refusing untracked keys for {} s", lockSeconds);
+                return new Failure(maxFailures, striped.saturatedUntil[i]);
+            }
+            window.current++;
+            int recent = (int) Math.ceil(window.estimate(now, windowMillis()));
+            if (window.lockedUntil <= now && recent >= maxFailures) {
+                window.lockedUntil = now + lockSeconds * 1000;
+                // Start counting afresh once the lock ends
+                window.current = 0;
+                window.previous = 0;
+                return new Failure(recent, window.lockedUntil);
+            }
+            return new Failure(recent, null);
+        } finally {
+            striped.locks[i].unlock();
+        }
+    }
+
+    /**
+     * The key's window, created if needed; null when the stripe is full and every key in it is locked.
+     */
+    private Window window(Map<String, Window> map, String key, long now) {
+        Window window = map.get(key);
+        if (window == null) {
+            if (map.size() >= MAX_KEYS_PER_STRIPE && !evictLeastRecentUnlocked(map, now)) {
+                return null;
+            }
+            window = new Window();
+            window.windowStart = now - now % windowMillis();
+            map.put(key, window);
+        }
+        window.lastSeen = now;
+        window.roll(now, windowMillis());
+        return window;
+    }
+
+    private static boolean evictLeastRecentUnlocked(Map<String, Window> map, long now) {
+        Iterator<Window> it = map.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().lockedUntil <= now) {
+                it.remove();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private long windowMillis() {
+        return windowSeconds * 1000;
+    }
+
+    private static String normalize(String username) {
+        return username != null && !username.isBlank() ? username.trim().toLowerCase(Locale.ROOT) : null;
+    }
+}
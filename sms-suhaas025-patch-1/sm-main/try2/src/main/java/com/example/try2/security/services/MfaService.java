@@ -25,7 +25,6 @@ import java.util.concurrent.TimeUnit;
 @Service
 public class MfaService {
     private static final Logger logger = LoggerFactory.getLogger(MfaService.class);
-    private static final int TOTP_WINDOW = 2; // Allow +/- 2*30sec
     private static final int BACKUP_CODES_COUNT = 10;
     private static final int BACKUP_CODE_LENGTH = 8;
     
@@ -34,6 +33,15 @@ public class MfaService {
     
     @Autowired
     private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private PasswordHasher passwordHasher;
+
+    @Autowired
+    private TotpVerifier totpVerifier;
+
+    @Autowired
+    private BackupCodeVerifier backupCodeVerifier;
     
     /**
      * Generates a new MFA secret for a user
@@ -52,6 +60,7 @@ public class MfaService {
         // Save the secret to the user
         user.setMfaSecret(secret);
         userRepository.save(user);
+        totpVerifier.forget(user.getId());
         
         return secret;
     }
@@ -74,15 +83,30 @@ public class MfaService {
     }
     
     /**
-     * Verifies a TOTP code for a user
+     * Verifies a TOTP code for a user (narrow clock-skew window, single use per time step)
      * 
      * @param user The user
      * @param code The code to verify
      * @return True if the code is valid
      */
     public boolean verifyCode(User user, String code) {
+        return verifyTotp(user, code, false);
+    }
+    
+    /**
+     * Verifies the first code from a newly scanned secret, allowing a wider clock skew
+     * 
+     * @param user The user
+     * @param code The code to verify
+     * @return True if the code is valid
+     */
+    public boolean verifySetupCode(User user, String code) {
+        return verifyTotp(user, code, true);
+    }
+    
+    private boolean verifyTotp(User user, String code, boolean setup) {
         if (user == null || code == null || code.length() != 6) {
-            logger.warn("Invalid parameters for TOTP verification: user={}, code={}", 
+            logger.warn("Invalid parameters for TOTP verification: user={}, code length={}", 
                     user != null ? user.getUsername() : "null", 
                     code != null ? code.length() : "null");
             return false;
@@ -93,34 +117,11 @@ public class MfaService {
             return false;
         }
         
-        try {
-            // Use a larger window during setup to avoid time synchronization issues
-            // Standard is 30 seconds per step, allow +/- 5 steps (2.5 minutes in each direction)
-            final int WIDER_WINDOW = 5;  // Use wider window during initial setup
-            
-            long timeWindowCounter = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()) / 30;
-            logger.info("Current time window counter: {}", timeWindowCounter);
-            
-            // Log expected codes for debugging
-            logger.debug("Checking TOTP codes for user: {} with secret: {}", user.getUsername(), user.getMfaSecret());
-            
-            // Check codes within the wider time window
-            for (int i = -WIDER_WINDOW; i <= WIDER_WINDOW; i++) {
-                String expectedCode = generateTotpCode(user.getMfaSecret(), timeWindowCounter + i);
-                logger.debug("Window {}: Expected code={}, Actual code={}", i, expectedCode, code);
-                
-                if (expectedCode.equals(code)) {
-                    logger.info("TOTP code valid for user {} with time window offset: {}", user.getUsername(), i);
-                    return true;
-                }
-            }
-            
+        boolean valid = totpVerifier.verify(user.getId(), user.getMfaSecret(), code, setup);
+        if (!valid) {
             logger.warn("No matching TOTP code found for user: {}", user.getUsername());
-            return false;
-        } catch (Exception e) {
-            logger.error("Error verifying TOTP code for user {}: {}", user.getUsername(), e.getMessage(), e);
-            return false;
         }
+        return valid;
     }
     
     /**
@@ -131,27 +132,29 @@ public class MfaService {
      * @return True if the code is valid
      */
     public boolean verifyAndConsumeBackupCode(User user, String code) {
-        if (user == null || code == null || code.isEmpty()) {
-            return false;
-        }
-        
-        if (!user.isMfaEnabled() || user.getBackupCodes() == null || user.getBackupCodes().isEmpty()) {
+        if (user == null || code == null || code.isEmpty() || !user.isMfaEnabled()) {
             return false;
         }
         
-        // Check if any backup code matches
-        for (String hashedCode : user.getBackupCodes()) {
-            if (passwordEncoder.matches(code, hashedCode)) {
-                // Remove the used code
-                Set<String> updatedCodes = new HashSet<>(user.getBackupCodes());
-                updatedCodes.remove(hashedCode);
-                user.setBackupCodes(updatedCodes);
-                userRepository.save(user);
-                return true;
-            }
+        if (user.getBackupCodes() == null || user.getBackupCodes().isEmpty()) {
+            return backupCodeVerifier.consume(user.getId(), code);
         }
         
-        return false;
+        // Codes generated before keyed digests are still BCrypt hashes on the user; they go
+        // away as soon as the user generates a new set
+        Set<String> hashedCodes = new HashSet<>(user.getBackupCodes());
+        return backupCodeVerifier.consumeWith(user.getId(), () -> {
+            String matched = passwordHasher.call(() -> {
+                for (String hashedCode : hashedCodes) {
+                    if (passwordEncoder.matches(code, hashedCode)) {
+                        return hashedCode;
+                    }
+                }
+                return null;
+            });
+            // The delete decides, so a code used by a concurrent request (or node) fails here
+            return matched != null && userRepository.deleteLegacyBackupCode(user.getId(), matched) == 1;
+        });
     }
     
     /**
@@ -162,7 +165,6 @@ public class MfaService {
      */
     public Set<String> generateBackupCodes(User user) {
         Set<String> backupCodes = new HashSet<>();
-        Set<String> hashedCodes = new HashSet<>();
         
         SecureRandom random = new SecureRandom();
         
@@ -172,17 +174,16 @@ public class MfaService {
             for (int i = 0; i < BACKUP_CODE_LENGTH; i++) {
                 codeBuilder.append(random.nextInt(10)); // 0-9 digits
             }
-            
-            String code = codeBuilder.toString();
-            if (!backupCodes.contains(code)) {
-                backupCodes.add(code);
-                hashedCodes.add(passwordEncoder.encode(code));
-            }
+            backupCodes.add(codeBuilder.toString());
         }
         
-        // Save hashed codes to the user
-        user.setBackupCodes(hashedCodes);
-        userRepository.save(user);
+        backupCodeVerifier.store(user.getId(), backupCodes);
+        
+        // Drop any legacy BCrypt codes so the keyed ones are used from now on
+        if (user.getBackupCodes() != null && !user.getBackupCodes().isEmpty()) {
+            user.setBackupCodes(new HashSet<>());
+            userRepository.save(user);
+        }
         
         return backupCodes;
     }
@@ -208,47 +209,12 @@ public class MfaService {
         user.setMfaSecret(null);
         user.setBackupCodes(new HashSet<>());
         userRepository.save(user);
+        totpVerifier.forget(user.getId());
+        backupCodeVerifier.clear(user.getId());
     }
     
     // Helper methods
     
-    private String generateTotpCode(String secret, long counter) throws NoSuchAlgorithmException, InvalidKeyException {
-        // Decode the Base32 secret
-        byte[] decodedSecret = base32Decode(secret);
-        
-        // Create HMAC-SHA1 key
-        Key signingKey = new SecretKeySpec(decodedSecret, "HmacSHA1");
-        
-        // Create HMAC-SHA1 instance
-        Mac mac = Mac.getInstance("HmacSHA1");
-        mac.init(signingKey);
-        
-        // Create buffer for the counter
-        byte[] buffer = new byte[8];
-        for (int i = 7; i >= 0; i--) {
-            buffer[i] = (byte) (counter & 0xff);
-            counter >>= 8;
-        }
-        
-        // Compute HMAC
-        byte[] hash = mac.doFinal(buffer);
-        
-        // Get offset for dynamic truncation
-        int offset = hash[hash.length - 1] & 0xf;
-        
-        // Get 4 bytes from the hash at the offset
-        int binary = ((hash[offset] & 0x7f) << 24) |
-                     ((hash[offset + 1] & 0xff) << 16) |
-                     ((hash[offset + 2] & 0xff) << 8) |
-                     (hash[offset + 3] & 0xff);
-        
-        // Generate 6-digit code
-        int otp = binary % 1000000;
-        
-        // Add leading zeros if necessary
-        return String.format("%06d", otp);
-    }
-    
     // BASE32 encoding/decoding methods
     private static final String BASE32_CHARS = "ABCDEFGHIJKLMNOPQRSTUVWXYZ234567";
     
@@ -274,7 +240,7 @@ public class MfaService {
         return result.toString();
     }
     
-    private byte[] base32Decode(String input) {
+    static byte[] base32Decode(String input) {
         // Remove padding if any
         String data = input.replaceAll("=", "").toUpperCase();
         
@@ -0,0 +1,200 @@
+package com.example.try2.security.services;
+
+import com.example.try2.exception.ServiceOverloadedException;
+import com.example.try2.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bulkhead for password hashing. BCrypt checks are CPU-bound, so they run on a fixed pool
+ * sized to the cores instead of on request threads; a login spike then queues here rather
+ * than starving every other endpoint of CPU.
+ * <p>
+ * Admission is by expected wait: queued tasks times the recent average hash time, divided by
+ * the pool size. When that exceeds {@code app.security.hashing.max-queue-ms} the request is
+ * shed with 503 and Retry-After instead of waiting.
+ */
+@Service
+public class PasswordHasher {
+    private static final Logger logger = LoggerFactory.getLogger(PasswordHasher.class);
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.security.hashing.threads:0}")
+    private int threads;
+
+    @Value("${app.security.hashing.queue-capacity:256}")
+    private int queueCapacity;
+
+    @Value("${app.security.hashing.max-queue-ms:1500}")
+    private long maxQueueMs;
+
+    private ThreadPoolExecutor executor;
+    // Checked against when there is no real hash, so a missing user costs the same as a wrong password
+    private String dummyHash;
+    // Exponentially weighted average of one task's run time, seeded with a typical BCrypt(10) check
+    private final AtomicLong averageTaskNanos = new AtomicLong(TimeUnit.MILLISECONDS.toNanos(80));
+
+    private Timer queueTimer;
+    private Timer runTimer;
+    private Counter shedCounter;
+    private Counter rehashCounter;
+
+    @PostConstruct
+    public void init() {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        dummyHash = passwordEncoder.encode("dummy-password-for-unknown-users");
+        AtomicInteger index = new AtomicInteger();
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), runnable -> {
+                    Thread thread = new Thread(runnable, "password-hasher-" + index.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        queueTimer = Timer.builder("app.security.hashing.queue")
+                .description("Time password hashing tasks wait for a hashing thread")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        runTimer = Timer.builder("app.security.hashing.run")
+                .description("Time spent hashing or checking passwords")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        shedCounter = Counter.builder("app.security.hashing.shed")
+                .description("Password hashing requests rejected with 503")
+                .register(meterRegistry);
+        rehashCounter = Counter.builder("app.security.hashing.rehash")
+                .description("Password hashes upgraded to the configured work factor")
+                .register(meterRegistry);
+        Gauge.builder("app.security.hashing.queued", executor, e -> e.getQueue().size())
+                .description("Password hashing tasks waiting for a thread")
+                .register(meterRegistry);
+        logger.info("Password hashing pool: {} threads, queue {}, admission budget {} ms", poolSize, queueCapacity, maxQueueMs);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return call(() -> passwordEncoder.matches(rawPassword, encodedPassword));
+    }
+
+    /**
+     * Runs a full check against a hash at the configured strength and discards the result, for
+     * unknown users and users without a password, so timing does not reveal which usernames exist.
+     */
+    public void matchesDummy(CharSequence rawPassword) {
+        matches(rawPassword != null ? rawPassword : "", dummyHash);
+    }
+
+    public String encode(CharSequence rawPassword) {
+        return call(() -> passwordEncoder.encode(rawPassword));
+    }
+
+    /**
+     * Runs a hashing-bound task (e.g. a loop of checks) as one unit on the pool and waits for it.
+     * @throws ServiceOverloadedException if the expected queue wait exceeds the budget
+     */
+    public <T> T call(Callable<T> task) {
+        long expectedWaitMs = expectedWaitMs();
+        if (expectedWaitMs > maxQueueMs) {
+            throw shed(expectedWaitMs);
+        }
+        long enqueued = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                long started = System.nanoTime();
+                queueTimer.record(started - enqueued, TimeUnit.NANOSECONDS);
+                try {
+                    return task.call();
+                } finally {
+                    long elapsed = System.nanoTime() - started;
+                    runTimer.record(elapsed, TimeUnit.NANOSECONDS);
+                    averageTaskNanos.updateAndGet(avg -> avg + (elapsed - avg) / 8);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            throw shed(expectedWaitMs);
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for password hashing", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+
+    /**
+     * After a successful check, re-hashes a password stored with another work factor. Runs in the
+     * background and only when the pool has headroom; skipped work is retried on the next sign-in.
+     * The stored hash is replaced only if it is still the one that was checked.
+     */
+    public void rehashIfNeeded(Long userId, CharSequence rawPassword, String encodedPassword) {
+        if (!passwordEncoder.upgradeEncoding(encodedPassword) || expectedWaitMs() > maxQueueMs / 2) {
+            return;
+        }
+        String raw = rawPassword.toString();
+        try {
+            executor.execute(() -> {
+                try {
+                    String upgraded = passwordEncoder.encode(raw);
+                    if (userRepository.replacePasswordHash(userId, encodedPassword, upgraded) == 1) {
+                        rehashCounter.increment();
+                        logger.debug("Upgraded password hash of user {}", userId);
+                    }
+                } catch (RuntimeException e) {
+                    logger.warn("Could not upgrade password hash of user {}: {}", userId, e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Pool saturated; try again next time
+        }
+    }
+
+    private long expectedWaitMs() {
+        long queued = executor.getQueue().size();
+        return TimeUnit.NANOSECONDS.toMillis(queued * averageTaskNanos.get() / executor.getMaximumPoolSize());
+    }
+
+    private ServiceOverloadedException shed(long expectedWaitMs) {
+        shedCounter.increment();
+        long retryAfter = Math.max(1, TimeUnit.MILLISECONDS.toSeconds(expectedWaitMs) + 1);
+        return new ServiceOverloadedException("The server is busy verifying sign-ins. Please retry shortly.", retryAfter);
+    }
+}
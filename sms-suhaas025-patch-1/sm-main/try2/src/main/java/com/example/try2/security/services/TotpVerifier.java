@@ -0,0 +1,218 @@
+package com.example.try2.security.services;
+
+import com.example.try2.exception.AppException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * RFC 6238 TOTP checks (30 s steps, 6 digits, HMAC-SHA1).
+ * <p>
+ * Codes for the steps around "now" are computed once per user and step and reused by
+ * later attempts; the submitted code is compared against all of them without an early
+ * exit. A step, once accepted, cannot be used again: the highest consumed step is kept
+ * per user and only later steps are accepted. Repeated wrong codes throttle the user.
+ * The throttle check, the comparison and the bookkeeping run under one per-user lock, so
+ * concurrent attempts cannot slip past the throttle or share a step.
+ * <p>
+ * Normal checks allow {@code app.security.totp.skew-steps} steps of clock drift; the
+ * wider {@code setup-skew-steps} applies only while a new authenticator is being confirmed.
+ */
+@Component
+public class TotpVerifier {
+    private static final Logger logger = LoggerFactory.getLogger(TotpVerifier.class);
+
+    private static final long STEP_SECONDS = 30;
+    private static final int DIGITS_MODULUS = 1_000_000;
+    // Bound on cached windows; beyond it codes are computed per attempt
+    private static final int MAX_CACHED_WINDOWS = 10000;
+    private static final int LOCK_STRIPES = 64;
+
+    @Value("${app.security.totp.skew-steps:1}")
+    private int skewSteps;
+
+    @Value("${app.security.totp.setup-skew-steps:5}")
+    private int setupSkewSteps;
+
+    @Value("${app.security.totp.max-failures:5}")
+    private int maxFailures;
+
+    @Value("${app.security.totp.throttle-seconds:300}")
+    private long throttleSeconds;
+
+    /**
+     * Codes for steps {@code firstStep .. firstStep + codes.length - 1} of one secret.
+     */
+    private record Window(String secret, long firstStep, int[] codes) {
+        boolean covers(String otherSecret, long from, long to) {
+            return secret.equals(otherSecret) && firstStep <= from && firstStep + codes.length - 1 >= to;
+        }
+    }
+
+    private record Failures(long periodStart, int count) {
+    }
+
+    private final Map<Long, Window> windows = new ConcurrentHashMap<>();
+    // user id -> highest step already accepted
+    private final Map<Long, Long> consumedSteps = new ConcurrentHashMap<>();
+    private final Map<Long, Failures> failures = new ConcurrentHashMap<>();
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+
+    public TotpVerifier() {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * @param setup use the wide setup window (confirming a newly scanned secret)
+     * @throws AppException with 429 while the user is throttled
+     */
+    public boolean verify(Long userId, String secret, String code, boolean setup) {
+        if (userId == null || secret == null || secret.isBlank() || code == null || !code.matches("\\d{6}")) {
+            return false;
+        }
+        ReentrantLock lock = lockFor(userId);
+        lock.lock();
+        try {
+            return verifyLocked(userId, secret, code, setup);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean verifyLocked(Long userId, String secret, String code, boolean setup) {
+        long now = System.currentTimeMillis();
+        throttle(userId, now);
+
+        long currentStep = now / 1000 / STEP_SECONDS;
+        int skew = setup ? Math.max(setupSkewSteps, skewSteps) : skewSteps;
+        long from = currentStep - skew;
+        long to = currentStep + skew;
+
+        int given = Integer.parseInt(code);
+        long matchedStep = -1;
+        int[] codes;
+        long firstStep;
+        Window window = windows.get(userId);
+        if (window != null && window.covers(secret, from, to)) {
+            codes = window.codes();
+            firstStep = window.firstStep();
+        } else {
+            // The setup width is cached so the normal window is a subrange of it
+            int cacheSkew = Math.max(setupSkewSteps, skewSteps);
+            firstStep = currentStep - cacheSkew;
+            codes = computeCodes(secret, firstStep, 2 * cacheSkew + 1);
+            if (codes == null) {
+                return false;
+            }
+            if (windows.size() < MAX_CACHED_WINDOWS || windows.containsKey(userId)) {
+                windows.put(userId, new Window(secret, firstStep, codes));
+            }
+        }
+        // Every code in range is compared, whether or not an earlier one matched
+        for (long step = from; step <= to; step++) {
+            int diff = codes[(int) (step - firstStep)] ^ given;
+            if (diff == 0) {
+                matchedStep = step;
+            }
+        }
+
+        if (matchedStep < 0) {
+            recordFailure(userId, now);
+            return false;
+        }
+        Long last = consumedSteps.get(userId);
+        if (last != null && last >= matchedStep) {
+            logger.warn("Replayed TOTP code for user {} (step {})", userId, matchedStep);
+            recordFailure(userId, now);
+            return false;
+        }
+        consumedSteps.put(userId, matchedStep);
+        failures.remove(userId);
+        return true;
+    }
+
+    /**
+     * Forgets cached codes and consumed steps, e.g. after the secret is replaced or MFA is disabled.
+     */
+    public void forget(Long userId) {
+        ReentrantLock lock = lockFor(userId);
+        lock.lock();
+        try {
+            windows.remove(userId);
+            consumedSteps.remove(userId);
+            failures.remove(userId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ReentrantLock lockFor(Long userId) {
+        return locks[Math.floorMod(userId.hashCode(), LOCK_STRIPES)];
+    }
+
+    /**
+     * Drops windows and consumed steps that can no longer match, and expired throttles.
+     */
+    @Scheduled(fixedRate = 60000)
+    public void sweep() {
+        long now = System.currentTimeMillis();
+        long oldestUsable = now / 1000 / STEP_SECONDS - Math.max(setupSkewSteps, skewSteps);
+        windows.values().removeIf(w -> w.firstStep() + w.codes().length - 1 < oldestUsable);
+        consumedSteps.values().removeIf(step -> step < oldestUsable);
+        failures.values().removeIf(f -> now - f.periodStart() >= throttleSeconds * 1000);
+    }
+
+    private void throttle(Long userId, long now) {
+        Failures current = failures.get(userId);
+        if (current != null && current.count() >= maxFailures && now - current.periodStart() < throttleSeconds * 1000) {
+            long secondsLeft = (current.periodStart() + throttleSeconds * 1000 - now + 999) / 1000;
+            throw new AppException("Too many invalid codes. Please try again in " + secondsLeft + " seconds.",
+                    HttpStatus.TOO_MANY_REQUESTS, "MFA_THROTTLED");
+        }
+    }
+
+    private void recordFailure(Long userId, long now) {
+        failures.compute(userId, (id, f) -> f == null || now - f.periodStart() >= throttleSeconds * 1000
+                ? new Failures(now, 1)
+                : new Failures(f.periodStart(), f.count() + 1));
+    }
+
+    private static int[] computeCodes(String secret, long firstStep, int count) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA1");
+            mac.init(new SecretKeySpec(MfaService.base32Decode(secret), "HmacSHA1"));
+            int[] codes = new int[count];
+            byte[] counter = new byte[8];
+            for (int i = 0; i < count; i++) {
+                long step = firstStep + i;
+                for (int b = 7; b >= 0; b--) {
+                    counter[b] = (byte) (step & 0xff);
+                    step >>= 8;
+                }
+                byte[] hash = mac.doFinal(counter);
+                int offset = hash[hash.length - 1] & 0xf;
+                int binary = ((hash[offset] & 0x7f) << 24)
+                        | ((hash[offset + 1] & 0xff) << 16)
+                        | ((hash[offset + 2] & 0xff) << 8)
+                        | (hash[offset + 3] & 0xff);
+                codes[i] = binary % DIGITS_MODULUS;
+            }
+            return codes;
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            logger.error("Could not compute TOTP codes: {}", e.getMessage());
+            return null;
+        }
+    }
+}
@@ -41,6 +41,14 @@ public class AccountManagementService {
                 .anyMatch(role -> role.getName() == ERole.ROLE_ADMIN);
     }
     
+    /**
+     * Expiration date granted by a login at {@code now}; admin accounts effectively never expire.
+     * @param user The user logging in (roles must be loaded)
+     */
+    public LocalDateTime expirationAfterLogin(User user, LocalDateTime now) {
+        return isAdminUser(user) ? now.plusYears(100) : now.plusDays(DEFAULT_EXPIRATION_DAYS);
+    }
+
     /**
      * Updates the last login date for a user and resets account expiration
      * @param userId The ID of the user
@@ -55,16 +63,8 @@ public class AccountManagementService {
             LocalDateTime now = LocalDateTime.now();
             user.setLastLoginDate(now);
             
-            // Admin accounts never expire
-            if (isAdminUser(user)) {
-                // Set a very distant future date (effectively never expires)
-                user.setAccountExpirationDate(now.plusYears(100));
-                logger.info("Admin user {} login recorded. Account set to never expire.", userId);
-            } else {
-                // Calculate and set new expiration date (30 days from now)
-                user.setAccountExpirationDate(now.plusDays(DEFAULT_EXPIRATION_DAYS));
-                logger.info("User {} login recorded. New expiration date: {}", userId, user.getAccountExpirationDate());
-            }
+            user.setAccountExpirationDate(expirationAfterLogin(user, now));
+            logger.info("User {} login recorded. New expiration date: {}", userId, user.getAccountExpirationDate());
             
             // If account was expired, activate it again
             if (user.getAccountStatus() == EAccountStatus.EXPIRED) {
@@ -2,17 +2,41 @@ package com.example.try2.service;
 
 import com.example.try2.entity.ActivityLog;
 import com.example.try2.repository.ActivityLogRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class ActivityLogService {
+    private static final Logger logger = LoggerFactory.getLogger(ActivityLogService.class);
+
     @Autowired
     private ActivityLogRepository activityLogRepository;
 
+    // One writer keeps audit inserts from competing with requests for pool connections;
+    // when the queue is full the caller writes its own entry rather than losing it
+    private final ExecutorService auditWriter = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(10000), runnable -> {
+                Thread thread = new Thread(runnable, "activity-log-writer");
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.CallerRunsPolicy());
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        auditWriter.shutdown();
+        auditWriter.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
     public void logAction(Long userId, String username, String action, String details) {
         ActivityLog log = new ActivityLog();
         log.setUserId(userId);
@@ -23,6 +47,26 @@ public class ActivityLogService {
         activityLogRepository.save(log);
     }
 
+    /**
+     * Records the entry off the request thread; the timestamp is taken now.
+     */
+    public void logActionAsync(Long userId, String username, String action, String details) {
+        LocalDateTime timestamp = LocalDateTime.now();
+        auditWriter.execute(() -> {
+            try {
+                ActivityLog log = new ActivityLog();
+                log.setUserId(userId);
+                log.setUsername(username);
+                log.setAction(action);
+                log.setDetails(details);
+                log.setTimestamp(timestamp);
+                activityLogRepository.save(log);
+            } catch (RuntimeException e) {
+                logger.error("Could not write activity log {} for user {}: {}", action, username, e.getMessage());
+            }
+        });
+    }
+
     public List<ActivityLog> getAllLogs() {
         return activityLogRepository.findAll();
     }
@@ -0,0 +1,232 @@
+package com.example.try2.service;
+
+import com.example.try2.entity.Announcement;
+import com.example.try2.payload.response.AnnouncementResponse;
+import com.example.try2.repository.AnnouncementRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.DigestUtils;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory read model of the announcement feeds shown on dashboards.
+ * <p>
+ * All active announcements that have not ended are held in memory; the feed for a role is
+ * the subset whose window contains "now" and that targets the role or everyone. Each feed
+ * is serialized once and carries a content ETag, so unchanged feeds are answered with 304.
+ * <p>
+ * The model is reloaded after announcement writes commit (and every few minutes for
+ * writes made on other nodes). Start and end dates are registered in a timer wheel with
+ * one-second ticks; when a boundary passes, feeds are recomputed from memory.
+ */
+@Component
+public class AnnouncementFeedCache {
+    private static final Logger logger = LoggerFactory.getLogger(AnnouncementFeedCache.class);
+
+    // Distinct role strings with a cached feed; others are computed per request
+    private static final int MAX_CACHED_ROLES = 64;
+
+    @Autowired
+    private AnnouncementRepository announcementRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final TimerWheel timerWheel = new TimerWheel(512, 1000);
+    private ScheduledExecutorService ticker;
+    // Not synchronized: reload queries the database, which would pin a virtual thread's carrier
+    private final ReentrantLock reloadLock = new ReentrantLock();
+
+    private volatile List<AnnouncementResponse> announcements = List.of();
+    // Replaced, not cleared, so a feed built from the previous model cannot land in the new map
+    private volatile Map<String, Feed> feeds = new ConcurrentHashMap<>();
+
+    /**
+     * A role's current announcements, their JSON form and its ETag.
+     */
+    public record Feed(List<AnnouncementResponse> announcements, byte[] json, String etag) {
+    }
+
+    @PostConstruct
+    public void init() {
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "announcement-timer-wheel");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(this::tick, 1000, 1000, TimeUnit.MILLISECONDS);
+        reload();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ticker.shutdownNow();
+    }
+
+    public Feed getFeed(String role) {
+        Map<String, Feed> current = feeds;
+        Feed feed = current.get(role);
+        if (feed != null) {
+            return feed;
+        }
+        if (current.size() >= MAX_CACHED_ROLES) {
+            return buildFeed(role);
+        }
+        return current.computeIfAbsent(role, this::buildFeed);
+    }
+
+    /**
+     * Reloads the model from the database once the current transaction commits.
+     */
+    public void reloadAfterCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            reload();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                reload();
+            }
+        });
+    }
+
+    @Scheduled(fixedRate = 300000, initialDelay = 300000)
+    public void reload() {
+        reloadLock.lock();
+        try {
+            doReload();
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    private void doReload() {
+        LocalDateTime now = LocalDateTime.now();
+        List<AnnouncementResponse> loaded = new ArrayList<>();
+        for (Announcement announcement : announcementRepository.findActiveNotEnded(now)) {
+            loaded.add(AnnouncementService.toResponse(announcement));
+        }
+        announcements = loaded;
+
+        timerWheel.clear();
+        for (AnnouncementResponse announcement : loaded) {
+            if (announcement.getStartDate() != null && announcement.getStartDate().isAfter(now)) {
+                timerWheel.schedule(toMillis(announcement.getStartDate()));
+            }
+            if (announcement.getEndDate() != null) {
+                // Visible up to and including endDate
+                timerWheel.schedule(toMillis(announcement.getEndDate()) + 1);
+            }
+        }
+        feeds = new ConcurrentHashMap<>();
+        logger.info("Announcement feeds reloaded: {} active or upcoming announcements, {} pending boundaries",
+                loaded.size(), timerWheel.size());
+    }
+
+    private void tick() {
+        try {
+            if (timerWheel.advance(System.currentTimeMillis()) > 0) {
+                logger.debug("Announcement start/end boundary passed, recomputing feeds");
+                feeds = new ConcurrentHashMap<>();
+            }
+        } catch (Exception e) {
+            logger.error("Announcement timer wheel tick failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private Feed buildFeed(String role) {
+        LocalDateTime now = LocalDateTime.now();
+        List<AnnouncementResponse> visible = announcements.stream()
+                .filter(a -> a.getStartDate() != null && !a.getStartDate().isAfter(now))
+                .filter(a -> a.getEndDate() == null || !a.getEndDate().isBefore(now))
+                .filter(a -> a.getTargetRole() == null || a.getTargetRole().isEmpty() || a.getTargetRole().equals(role))
+                .toList();
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(visible);
+            return new Feed(visible, json, "\"" + DigestUtils.md5DigestAsHex(json) + "\"");
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize announcement feed", e);
+        }
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    /**
+     * Hashed timing wheel. A deadline lands in slot {@code (deadline / tick) % slots}; deadlines
+     * more than one rotation away stay in their slot until the rotation in which they are due.
+     * Only the slots passed since the last advance are inspected.
+     */
+    private static final class TimerWheel {
+        private final long tickMillis;
+        private final List<List<Long>> slots;
+        private long lastTick;
+        private int size;
+
+        TimerWheel(int slotCount, long tickMillis) {
+            this.tickMillis = tickMillis;
+            this.slots = new ArrayList<>(slotCount);
+            for (int i = 0; i < slotCount; i++) {
+                slots.add(new ArrayList<>());
+            }
+            this.lastTick = System.currentTimeMillis() / tickMillis - 1;
+        }
+
+        synchronized void schedule(long deadlineMillis) {
+            long tick = Math.max(deadlineMillis / tickMillis, lastTick + 1);
+            slots.get((int) (tick % slots.size())).add(deadlineMillis);
+            size++;
+        }
+
+        synchronized void clear() {
+            slots.forEach(List::clear);
+            size = 0;
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        /**
+         * Moves the wheel to {@code nowMillis}.
+         * @return number of deadlines that expired
+         */
+        synchronized int advance(long nowMillis) {
+            // Only ticks that have fully elapsed, so every deadline in them is due
+            long currentTick = nowMillis / tickMillis - 1;
+            int expired = 0;
+            // After a long pause a full rotation covers every slot
+            long from = Math.max(lastTick + 1, currentTick - slots.size() + 1);
+            for (long tick = from; tick <= currentTick; tick++) {
+                List<Long> slot = slots.get((int) (tick % slots.size()));
+                int before = slot.size();
+                slot.removeIf(deadline -> deadline <= nowMillis);
+                expired += before - slot.size();
+            }
+            size -= expired;
+            lastTick = currentTick;
+            return expired;
+        }
+    }
+}
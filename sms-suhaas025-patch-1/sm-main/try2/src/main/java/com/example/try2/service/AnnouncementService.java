@@ -16,6 +16,8 @@ import com.example.try2.security.services.UserDetailsImpl;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -28,13 +30,19 @@ public class AnnouncementService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private AnnouncementFeedCache announcementFeedCache;
+
+    @Autowired
+    private EventBroadcaster eventBroadcaster;
+
     /**
      * Get all announcements
      */
     public List<AnnouncementResponse> getAllAnnouncements() {
         logger.info("Fetching all announcements");
         return announcementRepository.findAll().stream()
-                .map(this::convertToResponse)
+                .map(AnnouncementService::toResponse)
                 .collect(Collectors.toList());
     }
 
@@ -44,19 +52,23 @@ public class AnnouncementService {
     public AnnouncementResponse getAnnouncementById(Long id) {
         logger.info("Fetching announcement with ID: {}", id);
         return announcementRepository.findById(id)
-                .map(this::convertToResponse)
+                .map(AnnouncementService::toResponse)
                 .orElseThrow(() -> new RuntimeException("Announcement not found with ID: " + id));
     }
 
     /**
-     * Get announcements by role
+     * Get announcements by role (served from the in-memory feed)
      */
     public List<AnnouncementResponse> getAnnouncementsByRole(String role) {
-        logger.info("Fetching announcements for role: {}", role);
-        LocalDateTime now = LocalDateTime.now();
-        return announcementRepository.findActiveAnnouncementsByRole(role, now).stream()
-                .map(this::convertToResponse)
-                .collect(Collectors.toList());
+        logger.debug("Fetching announcements for role: {}", role);
+        return announcementFeedCache.getFeed(role).announcements();
+    }
+
+    /**
+     * Feed for a role with its pre-serialized JSON and ETag
+     */
+    public AnnouncementFeedCache.Feed getAnnouncementFeed(String role) {
+        return announcementFeedCache.getFeed(role);
     }
 
     /**
@@ -84,9 +96,12 @@ public class AnnouncementService {
         );
         
         Announcement savedAnnouncement = announcementRepository.save(announcement);
+        announcementFeedCache.reloadAfterCommit();
         logger.info("Successfully created announcement with ID: {}", savedAnnouncement.getId());
         
-        return convertToResponse(savedAnnouncement);
+        AnnouncementResponse response = toResponse(savedAnnouncement);
+        pushAnnouncement("created", savedAnnouncement, response);
+        return response;
     }
 
     /**
@@ -117,9 +132,12 @@ public class AnnouncementService {
         announcement.setUpdatedBy(getCurrentUser());
         
         Announcement updatedAnnouncement = announcementRepository.save(announcement);
+        announcementFeedCache.reloadAfterCommit();
         logger.info("Successfully updated announcement with ID: {}", id);
         
-        return convertToResponse(updatedAnnouncement);
+        AnnouncementResponse response = toResponse(updatedAnnouncement);
+        pushAnnouncement("updated", updatedAnnouncement, response);
+        return response;
     }
 
     /**
@@ -134,13 +152,16 @@ public class AnnouncementService {
         }
         
         announcementRepository.deleteById(id);
+        announcementFeedCache.reloadAfterCommit();
+        eventBroadcaster.publishAfterCommit(EventBroadcaster.TYPE_ANNOUNCEMENT, null, null, null,
+                Map.of("action", "deleted", "id", id));
         logger.info("Successfully deleted announcement with ID: {}", id);
     }
 
     /**
      * Convert Announcement entity to AnnouncementResponse DTO
      */
-    private AnnouncementResponse convertToResponse(Announcement announcement) {
+    static AnnouncementResponse toResponse(Announcement announcement) {
         AnnouncementResponse response = new AnnouncementResponse();
         response.setId(announcement.getId());
         response.setTitle(announcement.getTitle());
@@ -161,6 +182,28 @@ public class AnnouncementService {
         return response;
     }
 
+    /**
+     * Pushes an announcement to subscribed users of its target role, if it is showing right now.
+     * Announcements scheduled for later reach clients through the role feed.
+     */
+    private void pushAnnouncement(String action, Announcement announcement, AnnouncementResponse response) {
+        LocalDateTime now = LocalDateTime.now();
+        boolean showing = announcement.isActive()
+                && announcement.getStartDate() != null && !announcement.getStartDate().isAfter(now)
+                && (announcement.getEndDate() == null || !announcement.getEndDate().isBefore(now));
+        if (!showing) {
+            return;
+        }
+        Set<String> roles = null;
+        String target = announcement.getTargetRole();
+        if (target != null && !target.isBlank()) {
+            String role = target.trim().toUpperCase();
+            roles = Set.of(role, role.startsWith("ROLE_") ? role.substring(5) : "ROLE_" + role);
+        }
+        eventBroadcaster.publishAfterCommit(EventBroadcaster.TYPE_ANNOUNCEMENT, roles, null, null,
+                Map.of("action", action, "announcement", response));
+    }
+
     private User getCurrentUser() {
         UserDetailsImpl userDetails = (UserDetailsImpl) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
         return userRepository.findById(userDetails.getId()).orElseThrow(() -> new RuntimeException("User not found"));
@@ -170,7 +213,9 @@ public class AnnouncementService {
         User currentUser = getCurrentUser();
         announcement.setCreatedBy(currentUser);
         announcement.setUpdatedBy(currentUser);
-        return announcementRepository.save(announcement);
+        Announcement saved = announcementRepository.save(announcement);
+        announcementFeedCache.reloadAfterCommit();
+        return saved;
     }
 
     /**
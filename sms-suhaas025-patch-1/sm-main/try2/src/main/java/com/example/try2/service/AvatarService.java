@@ -0,0 +1,382 @@
+package com.example.try2.service;
+
+import com.example.try2.exception.AppException;
+import com.example.try2.storage.FileStore;
+import com.example.try2.storage.StorageQuotaService;
+import com.example.try2.storage.StoredObject;
+import com.example.try2.storage.UploadStager;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Avatar uploads, stored content-addressed under {@code avatars/} in the {@link FileStore}:
+ * the SHA-256 of the uploaded bytes names the files, so identical uploads share them. The
+ * upload itself is only streamed, checked (format and dimensions read from the header) and
+ * kept as {@code <hash>.src}; a background worker decodes it once and writes square
+ * thumbnails {@code <hash>-<size>.jpg} (and {@code .webp} when an ImageIO WebP writer is
+ * installed), then drops the source. Each user's current avatar counts against their quota.
+ * <p>
+ * Files no user refers to any more are removed by a periodic sweep, after a grace period so
+ * uploads still in flight are not touched.
+ */
+@Service
+public class AvatarService {
+    private static final Logger logger = LoggerFactory.getLogger(AvatarService.class);
+
+    public static final String URL_PREFIX = "/api/users/avatar/";
+    private static final String KEY_PREFIX = "avatars/";
+    private static final String QUOTA_PURPOSE = "AVATAR";
+    private static final Set<String> ACCEPTED_TYPES = Set.of("image/jpeg", "image/png", "image/webp");
+    private static final Pattern HASHED_NAME = Pattern.compile("^([0-9a-f]{64})(?:-(\\d+))?\\.(src|jpg|webp)$");
+    private static final Pattern SAFE_NAME = Pattern.compile("^[A-Za-z0-9_-][A-Za-z0-9_.-]*$");
+    private static final long MAX_UPLOAD_BYTES = 2 * 1024 * 1024;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private FileStore fileStore;
+
+    @Autowired
+    private UploadStager uploadStager;
+
+    @Autowired
+    private StorageQuotaService storageQuotaService;
+
+    @Value("${app.avatar.sizes:64,128,256}")
+    private List<Integer> sizes;
+
+    @Value("${app.avatar.max-pixels:25000000}")
+    private long maxPixels;
+
+    @Value("${app.avatar.jpeg-quality:0.85}")
+    private float jpegQuality;
+
+    @Value("${app.avatar.orphan-grace-minutes:60}")
+    private long orphanGraceMinutes;
+
+    private int defaultSize;
+    private boolean webpAvailable;
+
+    // Decoding and scaling are CPU-heavy; a small fixed worker keeps them off request threads
+    private final ExecutorService worker = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(200), runnable -> {
+                Thread thread = new Thread(runnable, "avatar-worker");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    @PostConstruct
+    public void init() {
+        sizes = sizes.stream().distinct().sorted().toList();
+        defaultSize = sizes.get(sizes.size() - 1);
+        webpAvailable = ImageIO.getImageWritersByFormatName("webp").hasNext();
+        logger.info("Avatar thumbnails {} px, WebP variants {}", sizes, webpAvailable ? "on" : "off (no ImageIO writer)");
+        // Sources left behind by a restart are processed again
+        try {
+            for (StoredObject object : fileStore.list(KEY_PREFIX)) {
+                Matcher m = HASHED_NAME.matcher(object.key().substring(KEY_PREFIX.length()));
+                if (m.matches() && "src".equals(m.group(3))) {
+                    submit(m.group(1));
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Could not look for unprocessed avatars: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        worker.shutdown();
+        worker.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Checks and stores an uploaded image and queues its thumbnails.
+     *
+     * @return the avatar URL to store on the user (largest thumbnail)
+     * @throws AppException 400/413/415 for anything that is not a readable image within limits or quota
+     */
+    public String store(Long userId, MultipartFile file) throws IOException {
+        if (file != null) {
+            storageQuotaService.checkFits(userId, QUOTA_PURPOSE, file.getSize());
+        }
+        try (UploadStager.Staged staged = uploadStager.stage(file, MAX_UPLOAD_BYTES, ACCEPTED_TYPES)) {
+            checkImage(staged.file());
+            String hash = staged.sha256();
+            // Reuse stored thumbnails, touching them so an orphan sweep running now leaves them alone;
+            // if any is gone (e.g. swept on another node), store the upload again
+            if (!fileStore.exists(variantKey(hash, defaultSize, "jpg")) || !touch(hash)) {
+                fileStore.put(KEY_PREFIX + hash + ".src", staged.file());
+                submit(hash);
+            }
+            // Counted only now that the file is stored; if it does not fit, the orphan sweep removes it
+            storageQuotaService.replace(userId, QUOTA_PURPOSE, KEY_PREFIX + hash, staged.size());
+            return URL_PREFIX + hash + "-" + defaultSize + ".jpg";
+        }
+    }
+
+    /**
+     * URL of the thumbnail closest to {@code size} for a stored avatar URL; other URLs are returned unchanged.
+     */
+    public String thumbnailUrl(String avatarUrl, int size) {
+        if (avatarUrl == null || !avatarUrl.startsWith(URL_PREFIX)) {
+            return avatarUrl;
+        }
+        Matcher m = HASHED_NAME.matcher(avatarUrl.substring(URL_PREFIX.length()));
+        if (!m.matches()) {
+            return avatarUrl;
+        }
+        int chosen = sizes.stream().filter(s -> s >= size).findFirst().orElse(defaultSize);
+        return URL_PREFIX + m.group(1) + "-" + chosen + ".jpg";
+    }
+
+    /**
+     * The file to serve for a requested name. Until a thumbnail is ready its source is served.
+     */
+    public Optional<Path> resolve(String filename) throws IOException {
+        if (filename == null || !SAFE_NAME.matcher(filename).matches()) {
+            return Optional.empty();
+        }
+        Path path = fileStore.localCopy(KEY_PREFIX + filename);
+        if (path != null) {
+            return Optional.of(path);
+        }
+        Matcher m = HASHED_NAME.matcher(filename);
+        if (m.matches() && m.group(2) != null) {
+            return Optional.ofNullable(fileStore.localCopy(KEY_PREFIX + m.group(1) + ".src"));
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Whether the name is derived from the content, so the file behind it never changes.
+     */
+    public boolean isContentAddressed(String filename) {
+        return filename != null && HASHED_NAME.matcher(filename).matches();
+    }
+
+    /**
+     * Media type of a file returned by {@link #resolve}; sources are sniffed since their name has no type.
+     */
+    public String contentType(Path file) throws IOException {
+        String name = file.getFileName().toString();
+        if (name.endsWith(".jpg")) {
+            return "image/jpeg";
+        }
+        if (name.endsWith(".webp")) {
+            return "image/webp";
+        }
+        if (name.endsWith(".src")) {
+            try (ImageInputStream in = ImageIO.createImageInputStream(file.toFile())) {
+                Iterator<ImageReader> readers = in != null ? ImageIO.getImageReaders(in) : null;
+                if (readers != null && readers.hasNext()) {
+                    String[] types = readers.next().getOriginatingProvider().getMIMETypes();
+                    if (types != null && types.length > 0) {
+                        return types[0];
+                    }
+                }
+            }
+        }
+        String probed = Files.probeContentType(file);
+        return probed != null ? probed : "application/octet-stream";
+    }
+
+    /**
+     * Deletes avatar files that no user refers to. Content-addressed files go when their hash
+     * is unreferenced, older per-upload files when their name is.
+     */
+    @Scheduled(fixedDelayString = "${app.avatar.gc-interval-ms:3600000}", initialDelay = 300000)
+    public void collectOrphans() {
+        Set<String> referenced = new HashSet<>();
+        for (String url : jdbcTemplate.queryForList(
+                "SELECT avatar FROM users WHERE avatar LIKE ?", String.class, URL_PREFIX + "%")) {
+            String name = url.substring(URL_PREFIX.length());
+            Matcher m = HASHED_NAME.matcher(name);
+            referenced.add(m.matches() ? m.group(1) : name);
+        }
+        Instant cutoff = Instant.now().minusSeconds(orphanGraceMinutes * 60);
+        int deleted = 0;
+        try {
+            for (StoredObject object : fileStore.list(KEY_PREFIX)) {
+                String name = object.key().substring(KEY_PREFIX.length());
+                Matcher m = HASHED_NAME.matcher(name);
+                String key = m.matches() ? m.group(1) : name;
+                if (referenced.contains(key) || object.lastModified().isAfter(cutoff)) {
+                    continue;
+                }
+                fileStore.delete(object.key());
+                deleted++;
+            }
+        } catch (IOException e) {
+            logger.error("Avatar cleanup failed: {}", e.getMessage());
+        }
+        if (deleted > 0) {
+            logger.info("Removed {} orphaned avatar files", deleted);
+        }
+    }
+
+    private void submit(String hash) {
+        try {
+            worker.execute(() -> process(hash));
+        } catch (RejectedExecutionException e) {
+            // The source stays on disk and is served as is; the next restart picks it up
+            logger.warn("Avatar worker busy; thumbnails for {} deferred", hash);
+        }
+    }
+
+    private void process(String hash) {
+        String sourceKey = KEY_PREFIX + hash + ".src";
+        try {
+            Path source = fileStore.localCopy(sourceKey);
+            if (source == null) {
+                return;
+            }
+            BufferedImage image = ImageIO.read(source.toFile());
+            if (image == null) {
+                logger.warn("Avatar source {} could not be decoded; removing it", hash);
+                fileStore.delete(sourceKey);
+                return;
+            }
+            for (int size : sizes) {
+                BufferedImage thumbnail = squareThumbnail(image, size);
+                fileStore.put(variantKey(hash, size, "jpg"), uploadStager.stage(encodeJpeg(thumbnail)));
+                if (webpAvailable) {
+                    ByteArrayOutputStream out = new ByteArrayOutputStream();
+                    ImageIO.write(thumbnail, "webp", out);
+                    fileStore.put(variantKey(hash, size, "webp"), uploadStager.stage(out.toByteArray()));
+                }
+            }
+            fileStore.delete(sourceKey);
+            logger.debug("Avatar {} processed into {} thumbnails", hash, sizes.size());
+        } catch (IOException | RuntimeException e) {
+            logger.error("Could not process avatar {}: {}", hash, e.getMessage());
+        }
+    }
+
+    /**
+     * Reads format and dimensions from the header only, so oversized images are refused before decoding.
+     */
+    private void checkImage(Path file) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(file.toFile())) {
+            Iterator<ImageReader> readers = in != null ? ImageIO.getImageReaders(in) : null;
+            if (readers == null || !readers.hasNext()) {
+                throw new AppException("Unsupported image format", HttpStatus.BAD_REQUEST, "INVALID_IMAGE");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                String format = reader.getFormatName().toLowerCase();
+                if (!(format.equals("jpeg") || format.equals("png") || format.equals("webp"))) {
+                    throw new AppException("Only JPEG, PNG, and WEBP images are allowed", HttpStatus.BAD_REQUEST, "INVALID_IMAGE");
+                }
+                long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+                if (pixels <= 0 || pixels > maxPixels) {
+                    throw new AppException("Image dimensions are too large", HttpStatus.BAD_REQUEST, "INVALID_IMAGE");
+                }
+            } catch (IOException e) {
+                throw new AppException("Image could not be read", HttpStatus.BAD_REQUEST, "INVALID_IMAGE");
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Centre-crops to a square and scales down in halving steps, which keeps bilinear scaling sharp.
+     */
+    private static BufferedImage squareThumbnail(BufferedImage image, int size) {
+        int side = Math.min(image.getWidth(), image.getHeight());
+        BufferedImage current = image.getSubimage((image.getWidth() - side) / 2, (image.getHeight() - side) / 2, side, side);
+        int currentSize = side;
+        do {
+            int next = currentSize > size ? Math.max(size, currentSize / 2) : size;
+            BufferedImage scaled = new BufferedImage(next, next, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = scaled.createGraphics();
+            try {
+                // JPEG has no alpha: transparent areas become white
+                g.setColor(Color.WHITE);
+                g.fillRect(0, 0, next, next);
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.drawImage(current, 0, 0, next, next, null);
+            } finally {
+                g.dispose();
+            }
+            current = scaled;
+            currentSize = next;
+        } while (currentSize != size);
+        return current;
+    }
+
+    private byte[] encodeJpeg(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream ios = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(ios);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Refreshes all of a hash's thumbnails; false if any of them is missing.
+     */
+    private boolean touch(String hash) throws IOException {
+        boolean all = true;
+        for (int size : sizes) {
+            all &= fileStore.touch(variantKey(hash, size, "jpg"));
+            if (webpAvailable) {
+                all &= fileStore.touch(variantKey(hash, size, "webp"));
+            }
+        }
+        return all;
+    }
+
+    private static String variantKey(String hash, int size, String extension) {
+        return KEY_PREFIX + hash + "-" + size + "." + extension;
+    }
+}
@@ -0,0 +1,266 @@
+package com.example.try2.service;
+
+import com.example.try2.entity.ERole;
+import com.example.try2.entity.EnrollmentStatus;
+import com.example.try2.payload.request.BulkEnrollmentRequest;
+import com.example.try2.payload.response.BulkEnrollmentResponse;
+import com.example.try2.repository.EnrollmentRepository;
+import com.example.try2.repository.UserRepository;
+import com.example.try2.security.services.UserDetailsImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Registrar bulk enrollment. Students, courses and existing enrollments are resolved with a
+ * handful of set-based queries, seats are allocated per course under a row lock, and the new
+ * rows are written with JDBC batch inserts, so the cost is independent of per-row lookups.
+ * Students already waitlisted for a course are promoted into its free seats before any new
+ * row is seated; a pair enrolled concurrently by a single enrollment is skipped by the insert
+ * and counted as a duplicate.
+ */
+@Service
+public class BulkEnrollmentService {
+    private static final Logger logger = LoggerFactory.getLogger(BulkEnrollmentService.class);
+
+    private static final int BATCH_SIZE = 500;
+    private static final int IN_CLAUSE_CHUNK = 1000;
+    private static final List<ERole> STUDENT_ROLES = List.of(ERole.ROLE_USER, ERole.ROLE_STUDENT);
+
+    // Waitlisted single enrollments do not take the course lock, so the pair may exist by now
+    private static final String INSERT_SQL = "INSERT INTO enrollments " +
+            "(student_id, course_id, status, semester, academic_year, enrolled_at, updated_at, created_by, updated_by) " +
+            "SELECT CAST(? AS BIGINT), CAST(? AS BIGINT), CAST(? AS VARCHAR(255)), CAST(? AS VARCHAR(255)), " +
+            "CAST(? AS VARCHAR(255)), CAST(? AS TIMESTAMP), CAST(? AS TIMESTAMP), CAST(? AS BIGINT), CAST(? AS BIGINT) " +
+            "FROM DUAL WHERE NOT EXISTS (SELECT 1 FROM enrollments WHERE student_id = ? AND course_id = ?)";
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EnrollmentRepository enrollmentRepository;
+
+    @Autowired
+    private CourseSeatService courseSeatService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private record Pair(long studentId, long courseId) {
+    }
+
+    private static class CourseSeats {
+        String semester;
+        String academicYear;
+        Integer capacity;
+        int taken;
+        int newlySeated;
+    }
+
+    /**
+     * Enrolls every student in every course of the request (students x courses matrix).
+     */
+    @Transactional
+    public BulkEnrollmentResponse enrollMatrix(BulkEnrollmentRequest request) {
+        List<Pair> pairs = new ArrayList<>(request.getStudentIds().size() * request.getCourseIds().size());
+        for (Long courseId : new LinkedHashSet<>(request.getCourseIds())) {
+            for (Long studentId : new LinkedHashSet<>(request.getStudentIds())) {
+                if (studentId != null && courseId != null) {
+                    pairs.add(new Pair(studentId, courseId));
+                }
+            }
+        }
+        return enroll(pairs, request.getSemester(), request.getAcademicYear(), new ArrayList<>());
+    }
+
+    /**
+     * Enrolls the pairs listed in a CSV body, one {@code studentId,courseId} per line.
+     * A header line and blank lines are ignored; malformed lines are reported back.
+     */
+    @Transactional
+    public BulkEnrollmentResponse enrollCsv(String csv, String semester, String academicYear) {
+        List<Pair> pairs = new ArrayList<>();
+        List<String> rejectedLines = new ArrayList<>();
+        int lineNumber = 0;
+        for (String line : csv.split("\\r?\\n")) {
+            lineNumber++;
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || (lineNumber == 1 && !Character.isDigit(trimmed.charAt(0)))) {
+                continue;
+            }
+            String[] fields = trimmed.split("[,;]");
+            try {
+                pairs.add(new Pair(Long.parseLong(fields[0].trim()), Long.parseLong(fields[1].trim())));
+            } catch (RuntimeException e) {
+                rejectedLines.add(lineNumber + ": " + trimmed);
+            }
+        }
+        return enroll(pairs, semester, academicYear, rejectedLines);
+    }
+
+    private BulkEnrollmentResponse enroll(List<Pair> requestedPairs, String semester, String academicYear,
+                                          List<String> rejectedLines) {
+        long start = System.currentTimeMillis();
+        BulkEnrollmentResponse response = new BulkEnrollmentResponse();
+        response.setRequested(requestedPairs.size() + rejectedLines.size());
+        response.setRejectedLines(rejectedLines);
+
+        Set<Pair> pairs = new LinkedHashSet<>(requestedPairs);
+        Set<Long> studentIds = new LinkedHashSet<>();
+        Set<Long> courseIds = new LinkedHashSet<>();
+        for (Pair pair : pairs) {
+            studentIds.add(pair.studentId());
+            courseIds.add(pair.courseId());
+        }
+        logger.info("Bulk enrollment: {} pairs over {} students and {} courses", pairs.size(), studentIds.size(), courseIds.size());
+
+        // 1. Students holding a student role, in one query per chunk
+        Set<Long> validStudents = new HashSet<>();
+        for (List<Long> chunk : chunks(studentIds)) {
+            validStudents.addAll(userRepository.findIdsWithAnyRole(chunk, STUDENT_ROLES));
+        }
+
+        // 2. Courses, locked so seat allocation cannot race single enrollments
+        Map<Long, CourseSeats> courses = lockCourses(courseIds);
+
+        // Seats freed while students wait go to the waitlist first, as resyncCounters would do
+        courses.forEach((courseId, course) -> {
+            if (course.capacity == null || course.taken < course.capacity) {
+                course.taken += courseSeatService.onCapacityChanged(courseId);
+            }
+        });
+
+        studentIds.stream().filter(id -> !validStudents.contains(id)).forEach(response.getInvalidStudentIds()::add);
+        courseIds.stream().filter(id -> !courses.containsKey(id)).forEach(response.getInvalidCourseIds()::add);
+        validStudents.retainAll(studentIds);
+
+        // 3. Existing enrollments among the remaining students and courses
+        Set<Pair> existing = new HashSet<>();
+        if (!validStudents.isEmpty() && !courses.isEmpty()) {
+            for (List<Long> chunk : chunks(validStudents)) {
+                for (Object[] row : enrollmentRepository.findExistingPairs(chunk, courses.keySet())) {
+                    existing.add(new Pair((Long) row[0], (Long) row[1]));
+                }
+            }
+        }
+
+        // 4. Build rows, seating students in request order until each course is full
+        Long currentUserId = currentUserId();
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> rows = new ArrayList<>();
+        List<EnrollmentStatus> rowStatuses = new ArrayList<>();
+        for (Pair pair : pairs) {
+            CourseSeats course = courses.get(pair.courseId());
+            if (course == null || !validStudents.contains(pair.studentId())) {
+                continue;
+            }
+            if (existing.contains(pair)) {
+                response.setSkippedDuplicates(response.getSkippedDuplicates() + 1);
+                continue;
+            }
+            EnrollmentStatus status;
+            if (course.capacity == null || course.taken + course.newlySeated < course.capacity) {
+                course.newlySeated++;
+                status = EnrollmentStatus.PENDING;
+                response.setEnrolled(response.getEnrolled() + 1);
+            } else {
+                status = EnrollmentStatus.WAITLISTED;
+                response.setWaitlisted(response.getWaitlisted() + 1);
+            }
+            rows.add(new Object[]{
+                    pair.studentId(), pair.courseId(), status.name(),
+                    semester != null ? semester : course.semester,
+                    academicYear != null ? academicYear : course.academicYear,
+                    now, now, currentUserId, currentUserId,
+                    pair.studentId(), pair.courseId()
+            });
+            rowStatuses.add(status);
+        }
+
+        // 5. Batched inserts and one seat update per course
+        int[][] inserted = jdbcTemplate.batchUpdate(INSERT_SQL, rows, BATCH_SIZE, (ps, row) -> {
+            for (int i = 0; i < row.length; i++) {
+                ps.setObject(i + 1, row[i]);
+            }
+        });
+        int index = 0;
+        for (int[] batch : inserted) {
+            for (int count : batch) {
+                if (count == 0) {
+                    uncount(response, courses.get((Long) rows.get(index)[1]), rowStatuses.get(index));
+                }
+                index++;
+            }
+        }
+        List<Object[]> seatUpdates = new ArrayList<>();
+        courses.forEach((courseId, course) -> {
+            if (course.newlySeated > 0) {
+                seatUpdates.add(new Object[]{course.newlySeated, courseId});
+            }
+        });
+        jdbcTemplate.batchUpdate("UPDATE courses SET seats_taken = COALESCE(seats_taken, 0) + ? WHERE id = ?", seatUpdates);
+        courses.keySet().forEach(courseSeatService::evict);
+
+        response.setElapsedMs(System.currentTimeMillis() - start);
+        logger.info("Bulk enrollment finished in {} ms: {} enrolled, {} waitlisted, {} duplicates skipped",
+                response.getElapsedMs(), response.getEnrolled(), response.getWaitlisted(), response.getSkippedDuplicates());
+        return response;
+    }
+
+    // The row already existed when the insert ran: a duplicate rather than a seat or waitlist place
+    private static void uncount(BulkEnrollmentResponse response, CourseSeats course, EnrollmentStatus status) {
+        if (status == EnrollmentStatus.PENDING) {
+            course.newlySeated--;
+            response.setEnrolled(response.getEnrolled() - 1);
+        } else {
+            response.setWaitlisted(response.getWaitlisted() - 1);
+        }
+        response.setSkippedDuplicates(response.getSkippedDuplicates() + 1);
+    }
+
+    private Map<Long, CourseSeats> lockCourses(Set<Long> courseIds) {
+        NamedParameterJdbcTemplate namedJdbc = new NamedParameterJdbcTemplate(jdbcTemplate);
+        Map<Long, CourseSeats> courses = new HashMap<>();
+        for (List<Long> chunk : chunks(courseIds)) {
+            namedJdbc.query("SELECT id, semester, academic_year, seat_capacity, seats_taken FROM courses " +
+                            "WHERE id IN (:ids) FOR UPDATE",
+                    Map.of("ids", chunk),
+                    rs -> {
+                        CourseSeats course = new CourseSeats();
+                        course.semester = rs.getString("semester");
+                        course.academicYear = rs.getString("academic_year");
+                        course.capacity = rs.getObject("seat_capacity", Integer.class);
+                        course.taken = rs.getInt("seats_taken");
+                        courses.put(rs.getLong("id"), course);
+                    });
+        }
+        return courses;
+    }
+
+    private static List<List<Long>> chunks(Collection<Long> ids) {
+        List<Long> list = new ArrayList<>(ids);
+        List<List<Long>> chunks = new ArrayList<>();
+        for (int i = 0; i < list.size(); i += IN_CLAUSE_CHUNK) {
+            chunks.add(list.subList(i, Math.min(list.size(), i + IN_CLAUSE_CHUNK)));
+        }
+        return chunks;
+    }
+
+    private Long currentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof UserDetailsImpl userDetails) {
+            return userDetails.getId();
+        }
+        return null;
+    }
+}
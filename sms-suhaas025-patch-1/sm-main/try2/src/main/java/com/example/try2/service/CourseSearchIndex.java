@@ -0,0 +1,362 @@
+package com.example.try2.service;
+
+import com.example.try2.entity.Course;
+import com.example.try2.payload.response.CourseSearchResponse;
+import com.example.try2.repository.CourseRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory inverted index over the course catalog for typeahead search.
+ * <p>
+ * Course codes, names, department names and descriptions are tokenized into a sorted
+ * term map, so a query token is answered by a prefix range scan; tokens with few prefix
+ * hits fall back to terms within one or two edits (typos, transpositions). Fuzzy candidates
+ * come from a bigram index over the terms rather than a scan of the term map. Every query
+ * token must match; courses are ranked by field weight and match quality.
+ * <p>
+ * {@link CourseService} pushes changes after commit; the whole index is rebuilt at
+ * startup and periodically to pick up changes made on other nodes.
+ */
+@Service
+public class CourseSearchIndex {
+    private static final Logger logger = LoggerFactory.getLogger(CourseSearchIndex.class);
+
+    private static final int WEIGHT_CODE = 8;
+    private static final int WEIGHT_NAME = 4;
+    private static final int WEIGHT_DEPARTMENT = 2;
+    private static final int WEIGHT_DESCRIPTION = 1;
+
+    private static final double EXACT = 3.0;
+    private static final double PREFIX = 2.0;
+
+    // Fuzzy matching only kicks in when prefix matching finds fewer courses than this
+    private static final int FUZZY_THRESHOLD = 5;
+    // One edit (a transposition at worst) changes at most this many of a token's bigrams
+    private static final int GRAMS_PER_EDIT = 3;
+    private static final int MAX_PAGE_SIZE = 100;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    public record Document(Long id, String courseCode, String courseName, String description,
+                           String departmentName, Integer credits, String semester, String academicYear) {
+
+        public static Document of(Course course) {
+            return new Document(course.getId(), course.getCourseCode(), course.getCourseName(), course.getDescription(),
+                    course.getDepartment() != null ? course.getDepartment().getName() : null,
+                    course.getCredits(), course.getSemester(), course.getAcademicYear());
+        }
+    }
+
+    private static class IndexState {
+        final Map<Long, Document> documents = new ConcurrentHashMap<>();
+        // term -> (course id -> best weight of the fields containing the term)
+        final ConcurrentSkipListMap<String, Map<Long, Integer>> postings = new ConcurrentSkipListMap<>();
+        // course id -> its terms, so a course can be removed without scanning the term map
+        final Map<Long, Set<String>> termsByCourse = new ConcurrentHashMap<>();
+        // bigram of "^" + term -> terms containing it, the candidate source for fuzzy matching
+        final Map<String, Set<String>> termsByGram = new ConcurrentHashMap<>();
+    }
+
+    private volatile IndexState state = new IndexState();
+    // A j.u.c. lock rather than a monitor: rebuild reads the database while holding it
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedRate = 900000, initialDelay = 900000)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        writeLock.lock();
+        try {
+            IndexState fresh = new IndexState();
+            for (Object[] row : courseRepository.findCatalogRows()) {
+                add(fresh, new Document((Long) row[0], (String) row[1], (String) row[2], (String) row[3],
+                        (String) row[4], (Integer) row[5], (String) row[6], (String) row[7]));
+            }
+            state = fresh;
+            logger.info("Course search index built: {} courses, {} terms in {} ms",
+                    fresh.documents.size(), fresh.postings.size(), System.currentTimeMillis() - start);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Indexes the course as it is now once the surrounding transaction commits.
+     */
+    public void indexAfterCommit(Course course) {
+        Document document = Document.of(course);
+        afterCommit(() -> withWriteLock(() -> {
+            remove(state, document.id());
+            add(state, document);
+        }));
+    }
+
+    public void removeAfterCommit(Long courseId) {
+        afterCommit(() -> withWriteLock(() -> remove(state, courseId)));
+    }
+
+    /**
+     * Ranked search. Fetches one result beyond the page to report {@code hasNext}; no total is counted.
+     */
+    public CourseSearchResponse search(String query, int page, int size) {
+        long start = System.nanoTime();
+        int pageSize = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        int pageNumber = Math.max(page, 0);
+        CourseSearchResponse response = new CourseSearchResponse();
+        response.setQuery(query);
+        response.setPage(pageNumber);
+        response.setSize(pageSize);
+
+        IndexState current = state;
+        Map<Long, Double> scores = null;
+        for (String token : new LinkedHashSet<>(split(query))) {
+            Map<Long, Double> tokenScores = matchToken(current, token);
+            if (scores == null) {
+                scores = tokenScores;
+            } else {
+                scores.keySet().retainAll(tokenScores.keySet());
+                scores.replaceAll((id, score) -> score + tokenScores.get(id));
+            }
+            if (scores.isEmpty()) {
+                break;
+            }
+        }
+
+        if (scores != null && !scores.isEmpty()) {
+            List<Map.Entry<Long, Double>> ranked = new ArrayList<>(scores.entrySet());
+            ranked.sort(Comparator.<Map.Entry<Long, Double>>comparingDouble(Map.Entry::getValue).reversed()
+                    .thenComparing(entry -> codeOf(current, entry.getKey())));
+            long from = (long) pageNumber * pageSize;
+            for (long i = from; i < Math.min(ranked.size(), from + pageSize); i++) {
+                Map.Entry<Long, Double> entry = ranked.get((int) i);
+                Document document = current.documents.get(entry.getKey());
+                if (document != null) {
+                    response.getResults().add(toHit(document, entry.getValue()));
+                }
+            }
+            response.setHasNext(ranked.size() > from + pageSize);
+        }
+        response.setTookMicros((System.nanoTime() - start) / 1000);
+        return response;
+    }
+
+    private Map<Long, Double> matchToken(IndexState current, String token) {
+        Map<Long, Double> result = new HashMap<>();
+        for (Map.Entry<String, Map<Long, Integer>> entry
+                : current.postings.subMap(token, true, token + Character.MAX_VALUE, true).entrySet()) {
+            double quality = entry.getKey().equals(token) ? EXACT : PREFIX;
+            entry.getValue().forEach((id, weight) -> result.merge(id, quality * weight, Math::max));
+        }
+        if (token.length() < 3 || result.size() >= FUZZY_THRESHOLD) {
+            return result;
+        }
+
+        int maxEdits = token.length() >= 7 ? 2 : 1;
+        // A term whose prefix is within maxEdits of the token keeps all but GRAMS_PER_EDIT bigrams per edit
+        Set<String> tokenGrams = grams(token);
+        int minShared = Math.max(1, tokenGrams.size() - GRAMS_PER_EDIT * maxEdits);
+        Map<String, Integer> shared = new HashMap<>();
+        for (String gram : tokenGrams) {
+            Set<String> terms = current.termsByGram.get(gram);
+            if (terms != null) {
+                terms.forEach(term -> shared.merge(term, 1, Integer::sum));
+            }
+        }
+        shared.forEach((term, count) -> {
+            if (count < minShared || term.startsWith(token)) {
+                return;
+            }
+            int distance = prefixDistance(token, term, maxEdits);
+            Map<Long, Integer> ids = current.postings.get(term);
+            if (distance <= maxEdits && ids != null) {
+                double quality = 1.0 / distance;
+                ids.forEach((id, weight) -> result.merge(id, quality * weight, Math::max));
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Distinct bigrams of the term with a start marker, so single-letter differences inside
+     * a short term still leave its leading bigram to match on.
+     */
+    static Set<String> grams(String term) {
+        String padded = "^" + term;
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + 2 <= padded.length(); i++) {
+            grams.add(padded.substring(i, i + 2));
+        }
+        return grams;
+    }
+
+    /**
+     * Smallest edit distance (insert, delete, substitute, adjacent transposition) between the query
+     * token and any prefix of the term, or {@code max + 1} once it is known to exceed {@code max}.
+     */
+    static int prefixDistance(String token, String term, int max) {
+        int n = token.length();
+        int m = Math.min(term.length(), n + max);
+        int[] previous2 = new int[m + 1];
+        int[] previous = new int[m + 1];
+        int[] current = new int[m + 1];
+        for (int j = 0; j <= m; j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= n; i++) {
+            current[0] = i;
+            int rowMin = i;
+            for (int j = 1; j <= m; j++) {
+                int cost = token.charAt(i - 1) == term.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && token.charAt(i - 1) == term.charAt(j - 2) && token.charAt(i - 2) == term.charAt(j - 1)) {
+                    value = Math.min(value, previous2[j - 2] + 1);
+                }
+                current[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+            int[] recycled = previous2;
+            previous2 = previous;
+            previous = current;
+            current = recycled;
+        }
+        int best = max + 1;
+        for (int j = 0; j <= m; j++) {
+            best = Math.min(best, previous[j]);
+        }
+        return best;
+    }
+
+    private static void add(IndexState target, Document document) {
+        Map<String, Integer> terms = new HashMap<>();
+        addTerms(terms, document.courseCode(), WEIGHT_CODE, 1);
+        if (document.courseCode() != null) {
+            // "CS-101" is also found as "cs101"
+            String compact = document.courseCode().toLowerCase(Locale.ROOT).replaceAll("[^\\p{L}\\p{N}]", "");
+            if (!compact.isEmpty()) {
+                terms.merge(compact, WEIGHT_CODE, Math::max);
+            }
+        }
+        addTerms(terms, document.courseName(), WEIGHT_NAME, 1);
+        addTerms(terms, document.departmentName(), WEIGHT_DEPARTMENT, 1);
+        addTerms(terms, document.description(), WEIGHT_DESCRIPTION, 2);
+
+        terms.forEach((term, weight) -> {
+            Map<Long, Integer> ids = target.postings.get(term);
+            if (ids == null) {
+                ids = new ConcurrentHashMap<>();
+                target.postings.put(term, ids);
+                for (String gram : grams(term)) {
+                    target.termsByGram.computeIfAbsent(gram, k -> ConcurrentHashMap.newKeySet()).add(term);
+                }
+            }
+            ids.put(document.id(), weight);
+        });
+        target.termsByCourse.put(document.id(), terms.keySet());
+        target.documents.put(document.id(), document);
+    }
+
+    private static void remove(IndexState target, Long courseId) {
+        Set<String> terms = target.termsByCourse.remove(courseId);
+        if (terms != null) {
+            for (String term : terms) {
+                target.postings.computeIfPresent(term, (k, ids) -> {
+                    ids.remove(courseId);
+                    return ids.isEmpty() ? null : ids;
+                });
+                if (!target.postings.containsKey(term)) {
+                    for (String gram : grams(term)) {
+                        target.termsByGram.computeIfPresent(gram, (k, grammed) -> {
+                            grammed.remove(term);
+                            return grammed.isEmpty() ? null : grammed;
+                        });
+                    }
+                }
+            }
+        }
+        target.documents.remove(courseId);
+    }
+
+    private static void addTerms(Map<String, Integer> terms, String text, int weight, int minLength) {
+        for (String token : split(text)) {
+            if (token.length() >= minLength) {
+                terms.merge(token, weight, Math::max);
+            }
+            // "cs101" is also found as "cs" and "101"
+            for (String part : token.split("(?<=\\p{L})(?=\\p{N})|(?<=\\p{N})(?=\\p{L})")) {
+                if (part.length() >= minLength && part.length() < token.length()) {
+                    terms.merge(part, weight, Math::max);
+                }
+            }
+        }
+    }
+
+    private static List<String> split(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        List<String> tokens = new ArrayList<>();
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private static String codeOf(IndexState current, Long id) {
+        Document document = current.documents.get(id);
+        return document != null && document.courseCode() != null ? document.courseCode() : "";
+    }
+
+    private static CourseSearchResponse.Hit toHit(Document document, double score) {
+        CourseSearchResponse.Hit hit = new CourseSearchResponse.Hit();
+        hit.setId(document.id());
+        hit.setCourseCode(document.courseCode());
+        hit.setCourseName(document.courseName());
+        hit.setDepartmentName(document.departmentName());
+        hit.setCredits(document.credits());
+        hit.setSemester(document.semester());
+        hit.setAcademicYear(document.academicYear());
+        hit.setScore(Math.round(score * 100.0) / 100.0);
+        return hit;
+    }
+
+    private void withWriteLock(Runnable action) {
+        writeLock.lock();
+        try {
+            action.run();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
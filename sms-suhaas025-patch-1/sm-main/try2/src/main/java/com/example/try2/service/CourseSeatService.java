@@ -0,0 +1,246 @@
+package com.example.try2.service;
+
+import com.example.try2.entity.Course;
+import com.example.try2.entity.Enrollment;
+import com.example.try2.entity.EnrollmentStatus;
+import com.example.try2.repository.CourseRepository;
+import com.example.try2.repository.EnrollmentRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Seat accounting for capacity-limited courses.
+ * <p>
+ * Each course has an in-memory counter of remaining seats so that, once a section is
+ * full, further registrations are turned into waitlist entries without touching
+ * {@code courses}. A seat is only granted when the conditional
+ * {@link CourseRepository#reserveSeat(Long)} update succeeds, so the database stays
+ * authoritative across nodes; counters are rebuilt from it on first use, when a
+ * reservation is refused and periodically. A counter at zero may be stale (another node
+ * freed a seat), so it is confirmed against the database at most once a second per course,
+ * and the periodic resync promotes anyone waitlisted while seats were in fact free.
+ * <p>
+ * All methods must run inside the caller's transaction.
+ */
+@Service
+@Transactional(propagation = Propagation.MANDATORY)
+public class CourseSeatService {
+    private static final Logger logger = LoggerFactory.getLogger(CourseSeatService.class);
+
+    private static final int UNLIMITED = Integer.MAX_VALUE;
+    private static final long ZERO_RECHECK_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private EnrollmentRepository enrollmentRepository;
+
+    private final Map<Long, Seats> remainingSeats = new ConcurrentHashMap<>();
+
+    /**
+     * Remaining seats as last known here, and when a zero count may next be checked with the database.
+     */
+    private static final class Seats {
+        final AtomicInteger remaining;
+        // Just loaded from the database, so no need to check again straight away
+        final AtomicLong nextZeroCheck = new AtomicLong(System.nanoTime() + ZERO_RECHECK_NANOS);
+
+        Seats(int remaining) {
+            this.remaining = new AtomicInteger(remaining);
+        }
+    }
+
+    /**
+     * Tries to take a seat in the course.
+     * @return true if a seat was reserved, false if the course is full
+     */
+    public boolean tryReserveSeat(Course course) {
+        Long courseId = course.getId();
+        Seats seats = remainingSeats.computeIfAbsent(courseId, this::loadRemainingSeats);
+        AtomicInteger remaining = seats.remaining;
+
+        // Fast path: a full section is rejected without a database round trip (bar a rare re-check)
+        int current;
+        do {
+            current = remaining.get();
+            if (current <= 0) {
+                return confirmFull(courseId, seats);
+            }
+        } while (current != UNLIMITED && !remaining.compareAndSet(current, current - 1));
+
+        if (courseRepository.reserveSeat(courseId) == 1) {
+            if (current != UNLIMITED) {
+                // Hand the seat back to the counter if the enrollment does not commit
+                afterCompletion(committed -> {
+                    if (!committed) {
+                        remaining.incrementAndGet();
+                    }
+                });
+            }
+            return true;
+        }
+
+        // Another node (or a stale counter) filled the course; resync on next use
+        logger.info("Course {} is full according to the database, resetting seat counter", courseId);
+        remainingSeats.remove(courseId, seats);
+        return false;
+    }
+
+    /**
+     * Frees the seat held by an enrollment that is withdrawn, rejected or deleted. If anyone is
+     * waitlisted for the course, the seat passes straight to the first of them instead.
+     * @return the promoted enrollment, or null if the seat went back to the pool
+     */
+    public Enrollment releaseSeat(Long courseId) {
+        Enrollment promoted = promoteNextWaitlisted(courseId);
+        if (promoted != null) {
+            return promoted;
+        }
+        if (courseRepository.releaseSeat(courseId) == 1) {
+            afterCompletion(committed -> {
+                Seats seats = remainingSeats.get(courseId);
+                if (committed && seats != null && seats.remaining.get() != UNLIMITED) {
+                    seats.remaining.incrementAndGet();
+                }
+            });
+        }
+        return null;
+    }
+
+    /**
+     * Re-reads the course's capacity after it was changed and fills any new seats from the waitlist.
+     * @return number of waitlisted enrollments promoted
+     */
+    public int onCapacityChanged(Long courseId) {
+        remainingSeats.remove(courseId);
+        int promoted = 0;
+        while (true) {
+            List<Enrollment> waitlist = enrollmentRepository.findTop5ByCourse_IdAndStatusOrderByIdAsc(
+                    courseId, EnrollmentStatus.WAITLISTED);
+            if (waitlist.isEmpty() || courseRepository.reserveSeat(courseId) == 0) {
+                break;
+            }
+            if (promoteFirst(waitlist) == null) {
+                // Every candidate was promoted concurrently; give the seat back and look again
+                courseRepository.releaseSeat(courseId);
+                continue;
+            }
+            promoted++;
+        }
+        if (promoted > 0) {
+            logger.info("Promoted {} waitlisted enrollments for course {} after capacity change", promoted, courseId);
+        }
+        return promoted;
+    }
+
+    /**
+     * Position (1-based) of a waitlisted enrollment within its course's waitlist.
+     */
+    @Transactional(readOnly = true)
+    public long getWaitlistPosition(Enrollment enrollment) {
+        return enrollmentRepository.countByCourse_IdAndStatusAndIdLessThan(
+                enrollment.getCourse().getId(), EnrollmentStatus.WAITLISTED, enrollment.getId()) + 1;
+    }
+
+    /**
+     * Drops the cached counter for a course (deleted course, manual data fixes).
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public void evict(Long courseId) {
+        remainingSeats.remove(courseId);
+    }
+
+    /**
+     * Counters drift when other nodes reserve or release seats; rebuild them from the database,
+     * and fill seats that are free while students are waitlisted (waitlisted on a stale counter).
+     */
+    @Scheduled(fixedRate = 60000)
+    @Transactional(propagation = Propagation.REQUIRED)
+    public void resyncCounters() {
+        remainingSeats.clear();
+        for (Long courseId : courseRepository.findIdsWithFreeSeatsAndWaitlist(EnrollmentStatus.WAITLISTED)) {
+            onCapacityChanged(courseId);
+        }
+    }
+
+    private Enrollment promoteNextWaitlisted(Long courseId) {
+        while (true) {
+            List<Enrollment> waitlist = enrollmentRepository.findTop5ByCourse_IdAndStatusOrderByIdAsc(
+                    courseId, EnrollmentStatus.WAITLISTED);
+            if (waitlist.isEmpty()) {
+                return null;
+            }
+            Enrollment promoted = promoteFirst(waitlist);
+            if (promoted != null) {
+                logger.info("Seat in course {} passed to waitlisted enrollment {}", courseId, promoted.getId());
+                return promoted;
+            }
+        }
+    }
+
+    private Enrollment promoteFirst(List<Enrollment> candidates) {
+        for (Enrollment candidate : candidates) {
+            if (enrollmentRepository.promoteFromWaitlist(candidate.getId(), EnrollmentStatus.PENDING) == 1) {
+                candidate.setStatus(EnrollmentStatus.PENDING);
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The counter says full; at most once a second, let the database decide instead.
+     * @return true if a seat was reserved after all
+     */
+    private boolean confirmFull(Long courseId, Seats seats) {
+        long now = System.nanoTime();
+        long next = seats.nextZeroCheck.get();
+        if (now - next < 0 || !seats.nextZeroCheck.compareAndSet(next, now + ZERO_RECHECK_NANOS)) {
+            return false;
+        }
+        if (courseRepository.reserveSeat(courseId) == 0) {
+            return false;
+        }
+        // The counter was stale; rebuild it on next use
+        logger.info("Course {} had a free seat despite a zero counter, resetting seat counter", courseId);
+        remainingSeats.remove(courseId, seats);
+        return true;
+    }
+
+    private Seats loadRemainingSeats(Long courseId) {
+        Integer remaining = courseRepository.findRemainingSeats(courseId);
+        return new Seats(remaining == null ? UNLIMITED : Math.max(0, remaining));
+    }
+
+    private interface CompletionCallback {
+        void run(boolean committed);
+    }
+
+    private void afterCompletion(CompletionCallback callback) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            callback.run(true);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                callback.run(status == STATUS_COMMITTED);
+            }
+        });
+    }
+}
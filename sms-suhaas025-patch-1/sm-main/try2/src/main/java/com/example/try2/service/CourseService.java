@@ -6,8 +6,10 @@ import com.example.try2.payload.request.UpdateCourseRequest;
 import com.example.try2.payload.response.CourseResponse;
 import com.example.try2.payload.response.UserResponse;
 import com.example.try2.repository.CourseRepository;
+import com.example.try2.repository.GradeRepository;
 import com.example.try2.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.slf4j.Logger;
@@ -21,7 +23,10 @@ import org.springframework.data.domain.Pageable;
 import com.example.try2.entity.Department;
 import com.example.try2.repository.DepartmentRepository;
 
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -40,6 +45,18 @@ public class CourseService {
     @Autowired
     private DepartmentRepository departmentRepository;
 
+    @Autowired
+    private CourseSeatService courseSeatService;
+
+    @Autowired
+    private GradeRepository gradeRepository;
+
+    @Autowired
+    private CourseSearchIndex courseSearchIndex;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     private User getCurrentUser() {
         UserDetailsImpl userDetails = (UserDetailsImpl) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
         return userRepository.findById(userDetails.getId()).orElseThrow(() -> new RuntimeException("User not found"));
@@ -67,6 +84,9 @@ public class CourseService {
         User currentUser = getCurrentUser();
         course.setCreatedBy(currentUser);
         course.setUpdatedBy(currentUser);
+        if (course.getId() == null) {
+            course.setSeatsTaken(0);
+        }
         
         // Set department if departmentId is present (for new course creation)
         if (course.getDepartment() == null && course instanceof com.example.try2.entity.Course) {
@@ -74,6 +94,7 @@ public class CourseService {
         }
         
         Course savedCourse = courseRepository.save(course);
+        courseSearchIndex.indexAfterCommit(savedCourse);
         logger.info("Saved course details: {}", savedCourse);
         logger.info("Saved course academic year: '{}'", savedCourse.getAcademicYear());
         
@@ -140,7 +161,9 @@ public class CourseService {
         if (updateCourseRequest.getDescription() != null) {
             course.setDescription(updateCourseRequest.getDescription());
         }
+        boolean creditsChanged = false;
         if (updateCourseRequest.getCredits() != null) {
+            creditsChanged = !Objects.equals(updateCourseRequest.getCredits(), course.getCredits());
             course.setCredits(updateCourseRequest.getCredits());
         }
         if (updateCourseRequest.getSemester() != null) {
@@ -169,10 +192,36 @@ public class CourseService {
             course.setTeacher(teacher);
         }
 
+        boolean capacityChanged = false;
+        if (updateCourseRequest.getSeatCapacity() != null) {
+            if (updateCourseRequest.getSeatCapacity() < 0) {
+                throw new RuntimeException("Seat capacity cannot be negative");
+            }
+            capacityChanged = !updateCourseRequest.getSeatCapacity().equals(course.getSeatCapacity());
+            course.setSeatCapacity(updateCourseRequest.getSeatCapacity());
+        }
+
         User currentUser = getCurrentUser();
         course.setUpdatedBy(currentUser);
 
-        Course updatedCourse = courseRepository.save(course);
+        Course updatedCourse = courseRepository.saveAndFlush(course);
+        courseSearchIndex.indexAfterCommit(updatedCourse);
+        if (capacityChanged) {
+            // New seats go to the waitlist first
+            courseSeatService.onCapacityChanged(id);
+        }
+        if (creditsChanged) {
+            // Credits weight the GPA of every student graded in this course
+            Set<GradeChangedEvent.Term> terms = new LinkedHashSet<>();
+            for (Object[] row : gradeRepository.findTermsByCourseId(id)) {
+                if (row[0] != null && row[1] != null && row[2] != null) {
+                    terms.add(new GradeChangedEvent.Term((Long) row[0], (String) row[1], (Integer) row[2]));
+                }
+            }
+            if (!terms.isEmpty()) {
+                eventPublisher.publishEvent(new GradeChangedEvent(terms));
+            }
+        }
         logger.info("Course updated successfully. New academicYear: {}", updatedCourse.getAcademicYear());
         return convertToCourseResponse(updatedCourse);
     }
@@ -181,6 +230,8 @@ public class CourseService {
         Course course = courseRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Course not found with ID: " + id));
         courseRepository.delete(course);
+        courseSeatService.evict(id);
+        courseSearchIndex.removeAfterCommit(id);
     }
 
     private CourseResponse convertToCourseResponse(Course course) {
@@ -193,6 +244,8 @@ public class CourseService {
         response.setSemester(course.getSemester());
         response.setAcademicYear(course.getAcademicYear());
         response.setDepartmentName(course.getDepartment() != null ? course.getDepartment().getName() : null);
+        response.setSeatCapacity(course.getSeatCapacity());
+        response.setSeatsTaken(course.getSeatsTaken());
 
         if (course.getTeacher() != null) {
             CourseResponse.TeacherResponse teacherResponse = new CourseResponse.TeacherResponse();
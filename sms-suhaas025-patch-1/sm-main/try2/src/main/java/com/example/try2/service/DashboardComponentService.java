@@ -2,15 +2,28 @@ package com.example.try2.service;
 
 import com.example.try2.entity.DashboardComponent;
 import com.example.try2.payload.request.DashboardComponentRequest;
+import com.example.try2.payload.response.DashboardComponentDetailResponse;
 import com.example.try2.payload.response.DashboardComponentResponse;
+import com.example.try2.payload.response.DashboardComponentSummaryResponse;
+import com.example.try2.payload.response.DashboardComponentTreeResponse;
 import com.example.try2.repository.DashboardComponentRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.DigestUtils;
 
+import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 
 @Service
@@ -18,6 +31,34 @@ public class DashboardComponentService {
     @Autowired
     private DashboardComponentRepository repository;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.dashboard.detail-cache.max-entries:512}")
+    private int maxDetailEntries;
+
+    @Value("${app.dashboard.tree-cache.max-entries:64}")
+    private int maxTreeEntries;
+
+    /**
+     * One component's JSON columns serialized as of {@code updatedAt}, with their ETag.
+     */
+    public record Detail(LocalDateTime updatedAt, byte[] json, String etag) {
+    }
+
+    // Keyed by id; an entry is only used while its updatedAt still matches the row
+    private final ReentrantLock detailLock = new ReentrantLock();
+    private final LinkedHashMap<Long, Detail> details = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Detail> eldest) {
+            return size() > maxDetailEntries;
+        }
+    };
+
+    // Assembled trees by role set; cleared after any write commits
+    private final Map<Set<String>, List<DashboardComponentTreeResponse>> trees = new ConcurrentHashMap<>();
+    private final AtomicLong treeGeneration = new AtomicLong();
+
     @Cacheable("dashboardComponents")
     public List<DashboardComponentResponse> getAll() {
         return repository.findAll().stream().map(this::toResponse).collect(Collectors.toList());
@@ -32,7 +73,9 @@ public class DashboardComponentService {
     public DashboardComponentResponse create(DashboardComponentRequest req) {
         DashboardComponent comp = new DashboardComponent();
         updateEntityFromRequest(comp, req);
-        return toResponse(repository.save(comp));
+        DashboardComponentResponse saved = toResponse(repository.save(comp));
+        invalidateTreesAfterCommit();
+        return saved;
     }
 
     @Transactional
@@ -40,13 +83,29 @@ public class DashboardComponentService {
     public DashboardComponentResponse update(Long id, DashboardComponentRequest req) {
         DashboardComponent comp = repository.findById(id).orElseThrow();
         updateEntityFromRequest(comp, req);
-        return toResponse(repository.save(comp));
+        DashboardComponentResponse saved = toResponse(repository.save(comp));
+        invalidateTreesAfterCommit();
+        return saved;
     }
 
     @Transactional
     @CacheEvict(value = "dashboardComponents", allEntries = true)
     public void delete(Long id) {
         repository.deleteById(id);
+        invalidateTreesAfterCommit();
+        detailLock.lock();
+        try {
+            details.remove(id);
+        } finally {
+            detailLock.unlock();
+        }
+    }
+
+    /**
+     * All components without their JSON columns, for the admin list.
+     */
+    public List<DashboardComponentSummaryResponse> getSummaries() {
+        return repository.findAllSummaries();
     }
 
     @Cacheable("dashboardComponentsForUser")
@@ -59,6 +118,71 @@ public class DashboardComponentService {
         return repository.findByParentId(parentId).stream().map(this::toResponse).collect(Collectors.toList());
     }
 
+    /**
+     * Visible components for the roles without their JSON columns; clients load those per
+     * component from the detail endpoint.
+     */
+    public List<DashboardComponentSummaryResponse> getSummariesForRoles(Set<String> roles) {
+        if (roles == null || roles.isEmpty()) {
+            return List.of();
+        }
+        return repository.findVisibleSummariesForRoles(roles);
+    }
+
+    public List<DashboardComponentSummaryResponse> getSummariesByParentId(Long parentId) {
+        return repository.findSummariesByParentId(parentId);
+    }
+
+    /**
+     * Whether the component is visible and allowed for at least one of the roles.
+     */
+    public boolean isVisibleToRoles(Long id, Set<String> roles) {
+        return roles != null && !roles.isEmpty() && repository.isVisibleToRoles(id, roles);
+    }
+
+    /**
+     * The component's JSON columns, or null if there is no such component.
+     * <p>
+     * Checking the cache costs a lookup of {@code updatedAt} alone; the LOBs are only read and
+     * serialized again when the component has changed since they were cached.
+     */
+    public Detail getDetail(Long id) {
+        LocalDateTime updatedAt = repository.findUpdatedAtById(id).orElse(null);
+        if (updatedAt != null) {
+            detailLock.lock();
+            try {
+                Detail cached = details.get(id);
+                if (cached != null && updatedAt.equals(cached.updatedAt())) {
+                    return cached;
+                }
+            } finally {
+                detailLock.unlock();
+            }
+        }
+
+        DashboardComponentDetailResponse detail = repository.findDetailById(id).orElse(null);
+        if (detail == null) {
+            return null;
+        }
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(detail);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize dashboard component " + id, e);
+        }
+        Detail fresh = new Detail(detail.getUpdatedAt(), json, "\"" + DigestUtils.md5DigestAsHex(json) + "\"");
+        // Rows written outside JPA may lack updatedAt; those are not cached
+        if (fresh.updatedAt() != null) {
+            detailLock.lock();
+            try {
+                details.put(id, fresh);
+            } finally {
+                detailLock.unlock();
+            }
+        }
+        return fresh;
+    }
+
     @Transactional
     @CacheEvict(value = "dashboardComponents", allEntries = true)
     public void reorder(List<Long> orderedIds) {
@@ -72,6 +196,75 @@ public class DashboardComponentService {
                 }
             }
         }
+        invalidateTreesAfterCommit();
+    }
+
+    /**
+     * The visible components for the roles as a forest, children nested under their parents.
+     * <p>
+     * One query fetches the flat visible set, which is assembled in memory and cached per role
+     * set. Components whose parent is not visible to these roles are left out with their subtree.
+     */
+    public List<DashboardComponentTreeResponse> getTreeForRoles(Set<String> roles) {
+        Set<String> key = roles == null ? Set.of()
+                : roles.stream().filter(Objects::nonNull).collect(Collectors.toUnmodifiableSet());
+        if (key.isEmpty()) {
+            return List.of();
+        }
+        List<DashboardComponentTreeResponse> cached = trees.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        long generation = treeGeneration.get();
+        List<DashboardComponentTreeResponse> tree = buildTree(repository.findVisibleSummariesForRoles(key));
+        if (trees.size() < maxTreeEntries) {
+            trees.put(key, tree);
+            // A write committed while this was built; don't keep the stale tree
+            if (treeGeneration.get() != generation) {
+                trees.remove(key, tree);
+            }
+        }
+        return tree;
+    }
+
+    private static List<DashboardComponentTreeResponse> buildTree(List<DashboardComponentSummaryResponse> flat) {
+        // Rows arrive in display order, so children are appended in order too
+        Map<Long, DashboardComponentTreeResponse> byId = new LinkedHashMap<>();
+        for (DashboardComponentSummaryResponse summary : flat) {
+            byId.put(summary.getId(), new DashboardComponentTreeResponse(summary));
+        }
+        List<DashboardComponentTreeResponse> roots = new ArrayList<>();
+        for (DashboardComponentTreeResponse node : byId.values()) {
+            if (node.getParentId() == null) {
+                roots.add(node);
+                continue;
+            }
+            // Nodes in a parent cycle are never reached from a root, so they drop out as well
+            DashboardComponentTreeResponse parent = byId.get(node.getParentId());
+            if (parent != null && parent != node) {
+                parent.getChildren().add(node);
+            }
+        }
+        return Collections.unmodifiableList(roots);
+    }
+
+    private void invalidateTreesAfterCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidateTrees();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                invalidateTrees();
+            }
+        });
+    }
+
+    private void invalidateTrees() {
+        treeGeneration.incrementAndGet();
+        trees.clear();
     }
 
     private DashboardComponentResponse toResponse(DashboardComponent comp) {
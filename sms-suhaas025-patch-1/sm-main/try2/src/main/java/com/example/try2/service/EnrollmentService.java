@@ -10,12 +10,17 @@ import com.example.try2.repository.UserRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 import com.example.try2.security.services.UserDetailsImpl;
@@ -33,6 +38,9 @@ public class EnrollmentService {
     @Autowired
     private CourseRepository courseRepository;
 
+    @Autowired
+    private CourseSeatService courseSeatService;
+
     @Transactional
     public EnrollmentResponse enrollInCourse(Long studentId, EnrollmentRequest request) {
         logger.info("Enrolling student {} in course {}", studentId, request.getCourseId());
@@ -73,12 +81,23 @@ public class EnrollmentService {
         String academicYear = request.getAcademicYear() != null ? 
                 request.getAcademicYear() : course.getAcademicYear();
         
-        // Create enrollment
+        // Create enrollment, or a waitlist entry if the course has no free seat
         Enrollment enrollment = new Enrollment(student, course, semester, academicYear);
+        if (!courseSeatService.tryReserveSeat(course)) {
+            enrollment.setStatus(EnrollmentStatus.WAITLISTED);
+        }
         
-        // Save enrollment
-        Enrollment savedEnrollment = enrollmentRepository.save(enrollment);
-        logger.info("Successfully enrolled student {} in course {}", studentId, request.getCourseId());
+        // Save enrollment; the unique (student, course) constraint catches concurrent duplicates
+        Enrollment savedEnrollment;
+        try {
+            savedEnrollment = enrollmentRepository.saveAndFlush(enrollment);
+        } catch (DataIntegrityViolationException e) {
+            logger.error("Student {} is already enrolled in course {}", studentId, request.getCourseId());
+            throw new RuntimeException("Student is already enrolled in this course");
+        }
+        logger.info("Successfully {} student {} in course {}",
+                savedEnrollment.getStatus() == EnrollmentStatus.WAITLISTED ? "waitlisted" : "enrolled",
+                studentId, request.getCourseId());
         
         return convertToResponse(savedEnrollment);
     }
@@ -95,6 +114,16 @@ public class EnrollmentService {
         
         try {
             EnrollmentStatus newStatus = request.getStatusEnum();
+            EnrollmentStatus oldStatus = enrollment.getStatus();
+            
+            // Keep the course's seat count in step with the status change
+            if (!holdsSeat(oldStatus) && holdsSeat(newStatus)) {
+                if (!courseSeatService.tryReserveSeat(enrollment.getCourse())) {
+                    throw new RuntimeException("Course is full; enrollment " + enrollmentId + " cannot leave the waitlist");
+                }
+            } else if (holdsSeat(oldStatus) && !holdsSeat(newStatus)) {
+                courseSeatService.releaseSeat(enrollment.getCourse().getId());
+            }
             enrollment.setStatus(newStatus);
             
             // Set notes if provided
@@ -114,55 +143,102 @@ public class EnrollmentService {
         }
     }
     
+    @Transactional(readOnly = true)
     public List<EnrollmentResponse> getStudentEnrollments(Long studentId) {
         logger.info("Retrieving all enrollments for student {}", studentId);
         
-        // Verify student exists
-        if (!userRepository.existsById(studentId)) {
-            logger.error("Student not found with ID: {}", studentId);
-            throw new RuntimeException("Student not found with ID: " + studentId);
+        List<EnrollmentResponse> enrollments = enrollmentRepository.findResponsesByStudentId(studentId);
+        if (enrollments.isEmpty()) {
+            verifyStudentExists(studentId);
         }
-        
-        List<Enrollment> enrollments = enrollmentRepository.findByStudent_Id(studentId);
         logger.info("Found {} enrollments for student {}", enrollments.size(), studentId);
         
-        return enrollments.stream()
-                .map(this::convertToResponse)
-                .collect(Collectors.toList());
+        return fillWaitlistPositions(enrollments);
     }
     
+    @Transactional(readOnly = true)
     public List<EnrollmentResponse> getStudentEnrollmentsByStatus(Long studentId, EnrollmentStatus status) {
         logger.info("Retrieving {} enrollments for student {}", status, studentId);
         
-        // Verify student exists
-        if (!userRepository.existsById(studentId)) {
-            logger.error("Student not found with ID: {}", studentId);
-            throw new RuntimeException("Student not found with ID: " + studentId);
+        List<EnrollmentResponse> enrollments = enrollmentRepository.findResponsesByStudentIdAndStatus(studentId, status);
+        if (enrollments.isEmpty()) {
+            verifyStudentExists(studentId);
         }
-        
-        List<Enrollment> enrollments = enrollmentRepository.findByStudent_IdAndStatus(studentId, status);
         logger.info("Found {} {} enrollments for student {}", enrollments.size(), status, studentId);
         
-        return enrollments.stream()
-                .map(this::convertToResponse)
-                .collect(Collectors.toList());
+        return fillWaitlistPositions(enrollments);
     }
     
+    @Transactional(readOnly = true)
     public List<EnrollmentResponse> getCourseEnrollments(Long courseId) {
         logger.info("Retrieving all enrollments for course {}", courseId);
         
-        // Verify course exists
+        List<EnrollmentResponse> enrollments = enrollmentRepository.findResponsesByCourseId(courseId);
+        if (enrollments.isEmpty()) {
+            verifyCourseExists(courseId);
+        }
+        logger.info("Found {} enrollments for course {}", enrollments.size(), courseId);
+        
+        // The roster holds the whole waitlist in id order, so positions are just a running count
+        long position = 0;
+        for (EnrollmentResponse enrollment : enrollments) {
+            if (enrollment.getStatus() == EnrollmentStatus.WAITLISTED) {
+                enrollment.setWaitlistPosition(++position);
+            }
+        }
+        return enrollments;
+    }
+    
+    @Transactional(readOnly = true)
+    public Page<EnrollmentResponse> getStudentEnrollmentsPage(Long studentId, Pageable pageable) {
+        Page<EnrollmentResponse> page = enrollmentRepository.findResponsesByStudentId(studentId, pageable);
+        if (page.getTotalElements() == 0) {
+            verifyStudentExists(studentId);
+        }
+        fillWaitlistPositions(page.getContent());
+        return page;
+    }
+    
+    @Transactional(readOnly = true)
+    public Page<EnrollmentResponse> getCourseEnrollmentsPage(Long courseId, Pageable pageable) {
+        Page<EnrollmentResponse> page = enrollmentRepository.findResponsesByCourseId(courseId, pageable);
+        if (page.getTotalElements() == 0) {
+            verifyCourseExists(courseId);
+        }
+        fillWaitlistPositions(page.getContent());
+        return page;
+    }
+    
+    // Existence is only checked when a listing comes back empty, to tell "none" from "unknown id"
+    private void verifyStudentExists(Long studentId) {
+        if (!userRepository.existsById(studentId)) {
+            logger.error("Student not found with ID: {}", studentId);
+            throw new RuntimeException("Student not found with ID: " + studentId);
+        }
+    }
+    
+    private void verifyCourseExists(Long courseId) {
         if (!courseRepository.existsById(courseId)) {
             logger.error("Course not found with ID: {}", courseId);
             throw new RuntimeException("Course not found with ID: " + courseId);
         }
-        
-        List<Enrollment> enrollments = enrollmentRepository.findByCourse_Id(courseId);
-        logger.info("Found {} enrollments for course {}", enrollments.size(), courseId);
-        
-        return enrollments.stream()
-                .map(this::convertToResponse)
-                .collect(Collectors.toList());
+    }
+    
+    // Positions of all waitlisted rows in one grouped count, and no query when there are none
+    private List<EnrollmentResponse> fillWaitlistPositions(List<EnrollmentResponse> enrollments) {
+        Map<Long, EnrollmentResponse> waitlisted = new HashMap<>();
+        for (EnrollmentResponse enrollment : enrollments) {
+            if (enrollment.getStatus() == EnrollmentStatus.WAITLISTED) {
+                waitlisted.put(enrollment.getId(), enrollment);
+            }
+        }
+        if (waitlisted.isEmpty()) {
+            return enrollments;
+        }
+        for (Object[] row : enrollmentRepository.findWaitlistPositions(waitlisted.keySet(), EnrollmentStatus.WAITLISTED)) {
+            waitlisted.get((Long) row[0]).setWaitlistPosition((Long) row[1]);
+        }
+        return enrollments;
     }
     
     public EnrollmentResponse getEnrollment(Long enrollmentId) {
@@ -181,15 +257,30 @@ public class EnrollmentService {
     public void deleteEnrollment(Long enrollmentId) {
         logger.info("Deleting enrollment with ID: {}", enrollmentId);
         
-        if (!enrollmentRepository.existsById(enrollmentId)) {
-            logger.error("Enrollment not found with ID: {}", enrollmentId);
-            throw new RuntimeException("Enrollment not found with ID: " + enrollmentId);
-        }
+        Enrollment enrollment = enrollmentRepository.findById(enrollmentId)
+                .orElseThrow(() -> {
+                    logger.error("Enrollment not found with ID: {}", enrollmentId);
+                    return new RuntimeException("Enrollment not found with ID: " + enrollmentId);
+                });
         
-        enrollmentRepository.deleteById(enrollmentId);
+        Long courseId = enrollment.getCourse().getId();
+        boolean heldSeat = holdsSeat(enrollment.getStatus());
+        enrollmentRepository.delete(enrollment);
+        if (heldSeat) {
+            courseSeatService.releaseSeat(courseId);
+        }
         logger.info("Successfully deleted enrollment with ID: {}", enrollmentId);
     }
     
+    /**
+     * Statuses that occupy one of the course's seats.
+     */
+    private static boolean holdsSeat(EnrollmentStatus status) {
+        return status == EnrollmentStatus.PENDING
+                || status == EnrollmentStatus.APPROVED
+                || status == EnrollmentStatus.COMPLETED;
+    }
+    
     private EnrollmentResponse convertToResponse(Enrollment enrollment) {
         EnrollmentResponse response = new EnrollmentResponse();
         response.setId(enrollment.getId());
@@ -211,6 +302,9 @@ public class EnrollmentService {
             response.setUpdatedById(enrollment.getUpdatedBy().getId());
             response.setUpdatedByUsername(enrollment.getUpdatedBy().getUsername());
         }
+        if (enrollment.getStatus() == EnrollmentStatus.WAITLISTED) {
+            response.setWaitlistPosition(courseSeatService.getWaitlistPosition(enrollment));
+        }
         return response;
     }
 
@@ -0,0 +1,239 @@
+package com.example.try2.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Server-Sent Events fan-out for announcements and grade status changes.
+ * <p>
+ * Open streams are async servlet requests and hold no thread while idle. Published events
+ * are appended to a replay ring and queued per matching subscriber; a subscriber's queue is
+ * drained by a short-lived virtual thread, so a slow client never blocks the publisher or
+ * other clients. Clients reconnecting with {@code Last-Event-ID} get the events they
+ * missed, or a {@code reset} event when the ring no longer reaches back that far.
+ */
+@Service
+public class EventBroadcaster {
+    private static final Logger logger = LoggerFactory.getLogger(EventBroadcaster.class);
+
+    public static final String TYPE_ANNOUNCEMENT = "announcement";
+    public static final String TYPE_GRADE_STATUS = "grade-status";
+
+    private static final int REPLAY_CAPACITY = 2048;
+    // A client this far behind is dropped and reconnects with Last-Event-ID
+    private static final int MAX_QUEUED_PER_SUBSCRIBER = 1000;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.events.stream-timeout-ms:1800000}")
+    private long streamTimeoutMs;
+
+    /**
+     * A published event and its audience. Null audience sets mean "no restriction";
+     * a user is reached if they match the roles, or are one of {@code userIds}, or
+     * (staff only) follow one of {@code courseIds}.
+     */
+    public record PushEvent(long id, String type, Set<String> roles, Set<Long> userIds, Set<Long> courseIds, String json) {
+    }
+
+    /**
+     * Who is listening: user id, granted roles (with and without the ROLE_ prefix, upper case)
+     * and the courses whose grade events they may see (null for all).
+     */
+    public record Audience(Long userId, Set<String> roles, Set<Long> courseIds) {
+    }
+
+    private static class Subscriber {
+        final SseEmitter emitter;
+        final Audience audience;
+        final Queue<SseEmitter.SseEventBuilder> queue = new ConcurrentLinkedQueue<>();
+        final AtomicInteger queued = new AtomicInteger();
+        final AtomicBoolean draining = new AtomicBoolean();
+
+        Subscriber(SseEmitter emitter, Audience audience) {
+            this.emitter = emitter;
+            this.audience = audience;
+        }
+    }
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicReferenceArray<PushEvent> replay = new AtomicReferenceArray<>(REPLAY_CAPACITY);
+    private final Map<SseEmitter, Subscriber> subscribers = new ConcurrentHashMap<>();
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+
+    @PreDestroy
+    public void shutdown() {
+        subscribers.keySet().forEach(SseEmitter::complete);
+        senders.shutdown();
+    }
+
+    /**
+     * Opens a stream, first replaying matching events newer than {@code lastEventId} (if given).
+     */
+    public SseEmitter subscribe(Audience audience, Long lastEventId) {
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+        Subscriber subscriber = new Subscriber(emitter, audience);
+        emitter.onCompletion(() -> subscribers.remove(emitter));
+        emitter.onTimeout(() -> subscribers.remove(emitter));
+        emitter.onError(e -> subscribers.remove(emitter));
+
+        // Under the publish lock, so no event falls between the replay and live delivery
+        synchronized (replay) {
+            long latest = sequence.get();
+            enqueue(subscriber, SseEmitter.event().name("ready").id(Long.toString(latest)).data("{}").reconnectTime(3000));
+            if (lastEventId != null && lastEventId < latest) {
+                long oldest = Math.max(1, latest - REPLAY_CAPACITY + 1);
+                if (lastEventId + 1 < oldest) {
+                    enqueue(subscriber, SseEmitter.event().name("reset").data("{}"));
+                } else {
+                    for (long id = lastEventId + 1; id <= latest; id++) {
+                        PushEvent event = replay.get((int) (id % REPLAY_CAPACITY));
+                        if (event != null && event.id() == id && matches(event, audience)) {
+                            enqueue(subscriber, toSse(event));
+                        }
+                    }
+                }
+            }
+            subscribers.put(emitter, subscriber);
+        }
+        logger.debug("SSE subscriber added for user {} ({} open)", audience.userId(), subscribers.size());
+        return emitter;
+    }
+
+    public void publish(String type, Set<String> roles, Set<Long> userIds, Set<Long> courseIds, Object payload) {
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            logger.error("Could not serialize {} event: {}", type, e.getMessage());
+            return;
+        }
+        // Enqueueing never blocks on I/O, so fan-out under the lock stays short and keeps id order
+        synchronized (replay) {
+            PushEvent event = new PushEvent(sequence.incrementAndGet(), type, roles, userIds, courseIds, json);
+            replay.set((int) (event.id() % REPLAY_CAPACITY), event);
+            for (Subscriber subscriber : subscribers.values()) {
+                if (matches(event, subscriber.audience)) {
+                    enqueue(subscriber, toSse(event));
+                }
+            }
+        }
+    }
+
+    /**
+     * Publishes once the current transaction commits, or immediately outside a transaction.
+     */
+    public void publishAfterCommit(String type, Set<String> roles, Set<Long> userIds, Set<Long> courseIds, Object payload) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            publish(type, roles, userIds, courseIds, payload);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                publish(type, roles, userIds, courseIds, payload);
+            }
+        });
+    }
+
+    /**
+     * Keeps idle connections open through proxies and detects clients that went away.
+     */
+    @Scheduled(fixedRate = 15000)
+    public void heartbeat() {
+        for (Subscriber subscriber : subscribers.values()) {
+            enqueue(subscriber, SseEmitter.event().comment("ping"));
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    private static boolean matches(PushEvent event, Audience audience) {
+        if (event.userIds() != null && event.userIds().contains(audience.userId())) {
+            return true;
+        }
+        boolean staff = audience.roles().contains("ADMIN") || audience.roles().contains("MODERATOR");
+        if (event.courseIds() != null) {
+            return staff && (audience.courseIds() == null
+                    || event.courseIds().stream().anyMatch(audience.courseIds()::contains));
+        }
+        if (event.userIds() != null) {
+            return false;
+        }
+        return event.roles() == null || event.roles().stream().anyMatch(audience.roles()::contains);
+    }
+
+    private static SseEmitter.SseEventBuilder toSse(PushEvent event) {
+        return SseEmitter.event().id(Long.toString(event.id())).name(event.type()).data(event.json());
+    }
+
+    private void enqueue(Subscriber subscriber, SseEmitter.SseEventBuilder event) {
+        if (subscriber.queued.incrementAndGet() > MAX_QUEUED_PER_SUBSCRIBER) {
+            logger.warn("Dropping SSE subscriber of user {}: {} events queued", subscriber.audience.userId(), MAX_QUEUED_PER_SUBSCRIBER);
+            close(subscriber);
+            return;
+        }
+        subscriber.queue.add(event);
+        if (subscriber.draining.compareAndSet(false, true)) {
+            senders.execute(() -> drain(subscriber));
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        while (true) {
+            SseEmitter.SseEventBuilder event;
+            while ((event = subscriber.queue.poll()) != null) {
+                subscriber.queued.decrementAndGet();
+                try {
+                    subscriber.emitter.send(event);
+                } catch (IOException | IllegalStateException e) {
+                    // Client disconnected or the stream already completed
+                    close(subscriber);
+                    return;
+                }
+            }
+            subscriber.draining.set(false);
+            // An event queued after the last poll but before the flag was cleared
+            if (subscriber.queue.isEmpty() || !subscriber.draining.compareAndSet(false, true)) {
+                return;
+            }
+        }
+    }
+
+    private void close(Subscriber subscriber) {
+        if (subscribers.remove(subscriber.emitter) != null) {
+            subscriber.queue.clear();
+            try {
+                subscriber.emitter.complete();
+            } catch (Exception ignored) {
+                // Already closed
+            }
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.try2.service;
+
+import lombok.Getter;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Published by {@link GradeService} whenever grades are created, changed or deleted.
+ * Carries every (student, term) whose grades changed, including the term a grade was
+ * moved away from, and the scores added to or removed from each course.
+ */
+@Getter
+public class GradeChangedEvent {
+
+    public record Term(Long studentId, String academicYear, Integer semester) {
+    }
+
+    /**
+     * A score entering ({@code delta = 1}) or leaving ({@code delta = -1}) a course's distribution.
+     */
+    public record ScoreChange(Long courseId, Integer score, String letter, int delta) {
+    }
+
+    private final Set<Term> terms;
+    private final List<ScoreChange> scoreChanges;
+
+    public GradeChangedEvent(Set<Term> terms) {
+        this(terms, List.of());
+    }
+
+    public GradeChangedEvent(Set<Term> terms, List<ScoreChange> scoreChanges) {
+        this.terms = terms;
+        this.scoreChanges = scoreChanges;
+    }
+}
@@ -11,6 +11,7 @@ import com.example.try2.repository.GradeRepository;
 import com.example.try2.repository.UserRepository;
 import com.example.try2.repository.CourseRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.slf4j.Logger;
@@ -31,6 +32,11 @@ import java.util.Optional;
 import java.util.stream.Collectors;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import com.example.try2.exception.AppException;
 import org.springframework.http.HttpStatus;
 import org.springframework.core.io.ByteArrayResource;
@@ -56,6 +62,12 @@ public class GradeService {
     @Autowired
     private ActivityLogService activityLogService;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private EventBroadcaster eventBroadcaster;
+
     private User getCurrentUser() {
         UserDetailsImpl userDetails = (UserDetailsImpl) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
         return userRepository.findById(userDetails.getId()).orElseThrow(() -> new RuntimeException("User not found"));
@@ -150,6 +162,7 @@ public class GradeService {
 
             Grade savedGrade = gradeRepository.save(grade);
             logger.info("Successfully saved grade with ID: {}", savedGrade.getId());
+            publishGradeChanged(List.of(scoreOf(savedGrade, 1)), termOf(savedGrade));
             // Log activity
             User currentUser = getCurrentUser();
             activityLogService.logAction(
@@ -245,6 +258,9 @@ public class GradeService {
             if (gradeDetails.getVersion() == null || !gradeDetails.getVersion().equals(grade.getVersion())) {
                 throw new OptimisticLockException("This grade was modified by someone else. Please refresh and try again.");
             }
+            GradeChangedEvent.Term previousTerm = termOf(grade);
+            GradeChangedEvent.ScoreChange previousScore = scoreOf(grade, -1);
+            String previousStatus = grade.getStatus();
 
             // Validate student
             if (gradeDetails.getStudent() != null && gradeDetails.getStudent().getId() != null) {
@@ -285,6 +301,10 @@ public class GradeService {
             }
             grade.setUpdatedBy(getCurrentUser());
             Grade updatedGrade = gradeRepository.save(grade);
+            publishGradeChanged(List.of(previousScore, scoreOf(updatedGrade, 1)), previousTerm, termOf(updatedGrade));
+            if (!Objects.equals(previousStatus, updatedGrade.getStatus())) {
+                pushStatusChange(updatedGrade);
+            }
             // Log activity
             User currentUser = getCurrentUser();
             activityLogService.logAction(
@@ -304,6 +324,7 @@ public class GradeService {
         Grade grade = gradeRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Grade not found with ID: " + id));
         gradeRepository.delete(grade);
+        publishGradeChanged(List.of(scoreOf(grade, -1)), termOf(grade));
         // Log activity
         User currentUser = getCurrentUser();
         activityLogService.logAction(
@@ -320,8 +341,12 @@ public class GradeService {
         List<Grade> grades = gradeRepository.findAll();
         User currentUser = getCurrentUser();
         for (Grade grade : grades) {
+            boolean changed = !"APPROVED".equals(grade.getStatus());
             grade.setStatus("APPROVED");
             gradeRepository.save(grade);
+            if (changed) {
+                pushStatusChange(grade);
+            }
             // Log activity for each grade approved
             activityLogService.logAction(
                 currentUser.getId(),
@@ -474,6 +499,46 @@ public class GradeService {
         return importedGrades;
     }
 
+    private static GradeChangedEvent.Term termOf(Grade grade) {
+        Long studentId = grade.getStudent() != null ? grade.getStudent().getId() : null;
+        return new GradeChangedEvent.Term(studentId, grade.getAcademicYear(), grade.getSemester());
+    }
+
+    /**
+     * Tells the student, and staff following the course, that a grade's status changed (after commit).
+     */
+    private void pushStatusChange(Grade grade) {
+        if (grade.getStudent() == null || grade.getCourse() == null) {
+            return;
+        }
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("gradeId", grade.getId());
+        payload.put("studentId", grade.getStudent().getId());
+        payload.put("courseId", grade.getCourse().getId());
+        payload.put("courseCode", grade.getCourse().getCourseCode());
+        payload.put("status", grade.getStatus());
+        eventBroadcaster.publishAfterCommit(EventBroadcaster.TYPE_GRADE_STATUS, null,
+                Set.of(grade.getStudent().getId()), Set.of(grade.getCourse().getId()), payload);
+    }
+
+    private static GradeChangedEvent.ScoreChange scoreOf(Grade grade, int delta) {
+        Long courseId = grade.getCourse() != null ? grade.getCourse().getId() : null;
+        return new GradeChangedEvent.ScoreChange(courseId, grade.getScore(), grade.getGrade(), delta);
+    }
+
+    /**
+     * Tells listeners (transcripts, course statistics) what changed; they act once the transaction commits.
+     */
+    private void publishGradeChanged(List<GradeChangedEvent.ScoreChange> scoreChanges, GradeChangedEvent.Term... terms) {
+        Set<GradeChangedEvent.Term> changed = new LinkedHashSet<>();
+        for (GradeChangedEvent.Term term : terms) {
+            if (term.studentId() != null && term.academicYear() != null && term.semester() != null) {
+                changed.add(term);
+            }
+        }
+        eventPublisher.publishEvent(new GradeChangedEvent(changed, scoreChanges));
+    }
+
     private GradeResponse convertToGradeResponse(Grade grade) {
         GradeResponse response = new GradeResponse();
         response.setId(grade.getId());
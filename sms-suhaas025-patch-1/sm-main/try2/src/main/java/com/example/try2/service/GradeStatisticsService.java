@@ -0,0 +1,227 @@
+package com.example.try2.service;
+
+import com.example.try2.exception.AppException;
+import com.example.try2.payload.response.CourseGradeRankingResponse;
+import com.example.try2.payload.response.GradeStatisticsResponse;
+import com.example.try2.repository.CourseRepository;
+import com.example.try2.repository.GradeRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-course grade statistics.
+ * <p>
+ * The database returns the score distribution (one row per distinct score, at most 101)
+ * and the letter-grade counts; mean, spread and percentiles are derived from those, so
+ * no individual grade leaves the database.
+ * <p>
+ * When {@code app.grade-stats.sketch.enabled} is set, each course queried without a
+ * semester/year slice also gets an in-memory score histogram that grade writes update
+ * after commit. It is served on request ({@code approximate=true}) and re-read from the
+ * database periodically to correct drift from other nodes.
+ */
+@Service
+public class GradeStatisticsService {
+    private static final Logger logger = LoggerFactory.getLogger(GradeStatisticsService.class);
+
+    private static final int MAX_SCORE = 100;
+    private static final int MAX_RANKING = 500;
+
+    @Autowired
+    private GradeRepository gradeRepository;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Value("${app.grade-stats.sketch.enabled:true}")
+    private boolean sketchEnabled;
+
+    private final Map<Long, CourseSketch> sketches = new ConcurrentHashMap<>();
+
+    private static class CourseSketch {
+        final AtomicLongArray scores = new AtomicLongArray(MAX_SCORE + 1);
+        final Map<String, LongAdder> letters = new ConcurrentHashMap<>();
+    }
+
+    @Transactional(readOnly = true)
+    public GradeStatisticsResponse getCourseStatistics(Long courseId, Integer semester, String academicYear,
+                                                       boolean approximate) {
+        boolean sliced = semester != null || (academicYear != null && !academicYear.isBlank());
+        String year = academicYear != null && !academicYear.isBlank() ? academicYear.trim() : null;
+
+        if (approximate && sketchEnabled && !sliced) {
+            CourseSketch sketch = sketches.computeIfAbsent(courseId, this::loadSketch);
+            long[] counts = new long[MAX_SCORE + 1];
+            for (int score = 0; score <= MAX_SCORE; score++) {
+                counts[score] = Math.max(0, sketch.scores.get(score));
+            }
+            GradeStatisticsResponse response = describe(courseId, null, null, counts);
+            response.setApproximate(true);
+            new TreeMap<>(sketch.letters).forEach((letter, count) -> {
+                if (count.sum() > 0) {
+                    response.getLetterHistogram().put(letter, count.sum());
+                }
+            });
+            return response;
+        }
+
+        List<Object[]> scoreRows = gradeRepository.countScoresByCourse(courseId, semester, year);
+        if (scoreRows.isEmpty() && !courseRepository.existsById(courseId)) {
+            throw new AppException("Course not found with ID: " + courseId, HttpStatus.NOT_FOUND, "RESOURCE_NOT_FOUND");
+        }
+        GradeStatisticsResponse response = describe(courseId, semester, year, toCounts(scoreRows));
+        for (Object[] row : gradeRepository.countLettersByCourse(courseId, semester, year)) {
+            response.getLetterHistogram().put((String) row[0], (Long) row[1]);
+        }
+        return response;
+    }
+
+    /**
+     * Courses ordered by mean score, best first, optionally within one semester or academic year.
+     */
+    @Transactional(readOnly = true)
+    public List<CourseGradeRankingResponse> rankCourses(Integer semester, String academicYear, int limit, long minGrades) {
+        String year = academicYear != null && !academicYear.isBlank() ? academicYear.trim() : null;
+        int size = Math.min(Math.max(limit, 1), MAX_RANKING);
+        List<CourseGradeRankingResponse> ranking = gradeRepository.rankCoursesByMeanScore(
+                semester, year, Math.max(minGrades, 1), PageRequest.of(0, size));
+        for (int i = 0; i < ranking.size(); i++) {
+            ranking.get(i).setRank(i + 1);
+        }
+        return ranking;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onGradeChanged(GradeChangedEvent event) {
+        for (GradeChangedEvent.ScoreChange change : event.getScoreChanges()) {
+            CourseSketch sketch = change.courseId() != null ? sketches.get(change.courseId()) : null;
+            if (sketch == null) {
+                // Not loaded yet; the first request reads the committed state
+                continue;
+            }
+            if (change.score() != null) {
+                sketch.scores.addAndGet(clamp(change.score()), change.delta());
+            }
+            if (change.letter() != null && !change.letter().isBlank()) {
+                sketch.letters.computeIfAbsent(change.letter().trim().toUpperCase(), k -> new LongAdder())
+                        .add(change.delta());
+            }
+        }
+    }
+
+    /**
+     * Sketches only see writes made through this node; drop them so they are re-read from the database.
+     */
+    @Scheduled(fixedRate = 600000)
+    public void resyncSketches() {
+        if (!sketches.isEmpty()) {
+            logger.debug("Dropping {} course grade sketches for resync", sketches.size());
+            sketches.clear();
+        }
+    }
+
+    private CourseSketch loadSketch(Long courseId) {
+        CourseSketch sketch = new CourseSketch();
+        long[] counts = toCounts(gradeRepository.countScoresByCourse(courseId, null, null));
+        for (int score = 0; score <= MAX_SCORE; score++) {
+            sketch.scores.set(score, counts[score]);
+        }
+        for (Object[] row : gradeRepository.countLettersByCourse(courseId, null, null)) {
+            LongAdder count = new LongAdder();
+            count.add((Long) row[1]);
+            sketch.letters.put((String) row[0], count);
+        }
+        return sketch;
+    }
+
+    private static long[] toCounts(List<Object[]> scoreRows) {
+        long[] counts = new long[MAX_SCORE + 1];
+        for (Object[] row : scoreRows) {
+            counts[clamp((Integer) row[0])] += (Long) row[1];
+        }
+        return counts;
+    }
+
+    private static int clamp(int score) {
+        return Math.min(Math.max(score, 0), MAX_SCORE);
+    }
+
+    private static GradeStatisticsResponse describe(Long courseId, Integer semester, String academicYear, long[] counts) {
+        GradeStatisticsResponse response = new GradeStatisticsResponse();
+        response.setCourseId(courseId);
+        response.setSemester(semester);
+        response.setAcademicYear(academicYear);
+
+        long n = 0;
+        double sum = 0, sumOfSquares = 0;
+        Integer min = null, max = null;
+        for (int score = 0; score <= MAX_SCORE; score++) {
+            long count = counts[score];
+            if (count == 0) {
+                continue;
+            }
+            if (min == null) {
+                min = score;
+            }
+            max = score;
+            n += count;
+            sum += (double) score * count;
+            sumOfSquares += (double) score * score * count;
+        }
+        response.setCount(n);
+        if (n == 0) {
+            return response;
+        }
+        double mean = sum / n;
+        response.setMean(round(mean));
+        response.setStdDev(round(Math.sqrt(Math.max(0, sumOfSquares / n - mean * mean))));
+        response.setMin(min);
+        response.setMax(max);
+        response.setMedian(percentile(counts, n, 0.5));
+        response.setP25(percentile(counts, n, 0.25));
+        response.setP75(percentile(counts, n, 0.75));
+        response.setP90(percentile(counts, n, 0.9));
+        return response;
+    }
+
+    /**
+     * Linear-interpolated percentile (same definition as SQL PERCENTILE_CONT).
+     */
+    private static double percentile(long[] counts, long n, double p) {
+        double position = p * (n - 1);
+        long lower = (long) Math.floor(position);
+        int lowerValue = valueAtRank(counts, lower);
+        int upperValue = valueAtRank(counts, Math.min(lower + 1, n - 1));
+        return round(lowerValue + (upperValue - lowerValue) * (position - lower));
+    }
+
+    private static int valueAtRank(long[] counts, long rank) {
+        long seen = 0;
+        for (int score = 0; score <= MAX_SCORE; score++) {
+            seen += counts[score];
+            if (seen > rank) {
+                return score;
+            }
+        }
+        return MAX_SCORE;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100.0) / 100.0;
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.try2.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.security.SecureRandom;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Reset tokens held in this instance only. Tokens sit in a heap ordered by expiry, so the
+ * sweep pops just the expired ones and, when {@code max-tokens} is reached, the token
+ * closest to expiring is dropped to make room.
+ */
+@Service
+@ConditionalOnProperty(name = "app.security.password-reset.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryPasswordResetTokenStore implements PasswordResetTokenStore {
+    private static final Logger logger = LoggerFactory.getLogger(InMemoryPasswordResetTokenStore.class);
+
+    @Value("${app.security.password-reset.ttl-minutes:15}")
+    private long ttlMinutes;
+
+    @Value("${app.security.password-reset.max-tokens:10000}")
+    private int maxTokens;
+
+    private record Entry(String hash, String username, long expiresAt) {
+    }
+
+    // Resets are rare; one lock keeps the three structures consistent
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, Entry> byHash = new HashMap<>();
+    private final Map<String, Entry> byUsername = new HashMap<>();
+    private final PriorityQueue<Entry> byExpiry = new PriorityQueue<>(Comparator.comparingLong(Entry::expiresAt));
+    private final SecureRandom random = new SecureRandom();
+
+    @Override
+    public String issue(String username) {
+        String token = PasswordResetTokenStore.newToken(random);
+        long now = System.currentTimeMillis();
+        Entry entry = new Entry(PasswordResetTokenStore.hash(token), username, now + ttlMinutes * 60_000);
+        lock.lock();
+        try {
+            removeExpired(now);
+            Entry previous = byUsername.get(username);
+            if (previous != null) {
+                remove(previous);
+            }
+            if (byHash.size() >= maxTokens) {
+                Entry evicted = byExpiry.peek();
+                logger.warn("Password reset token store full ({}); dropping the token closest to expiry", maxTokens);
+                remove(evicted);
+            }
+            byHash.put(entry.hash(), entry);
+            byUsername.put(username, entry);
+            byExpiry.add(entry);
+        } finally {
+            lock.unlock();
+        }
+        return token;
+    }
+
+    @Override
+    public boolean consume(String username, String token) {
+        if (username == null || token == null) {
+            return false;
+        }
+        String hash = PasswordResetTokenStore.hash(token);
+        long now = System.currentTimeMillis();
+        lock.lock();
+        try {
+            Entry entry = byHash.get(hash);
+            if (entry == null || !entry.username().equals(username)) {
+                return false;
+            }
+            remove(entry);
+            return entry.expiresAt() > now;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    @Scheduled(fixedRate = 60000)
+    public void sweep() {
+        lock.lock();
+        try {
+            removeExpired(System.currentTimeMillis());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void removeExpired(long now) {
+        while (!byExpiry.isEmpty() && byExpiry.peek().expiresAt() <= now) {
+            remove(byExpiry.peek());
+        }
+    }
+
+    private void remove(Entry entry) {
+        byExpiry.remove(entry);
+        byHash.remove(entry.hash());
+        byUsername.remove(entry.username(), entry);
+    }
+}
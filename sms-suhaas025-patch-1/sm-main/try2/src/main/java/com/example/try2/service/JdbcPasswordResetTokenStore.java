@@ -0,0 +1,79 @@
+package com.example.try2.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.security.SecureRandom;
+import java.sql.Timestamp;
+
+/**
+ * Reset tokens in the {@code password_reset_tokens} table, so a token issued by one node can
+ * be redeemed on any other. Redeeming is a single conditional DELETE, which is what makes a
+ * token single-use across nodes. Every node sweeps; the deletes are idempotent.
+ */
+@Service
+@ConditionalOnProperty(name = "app.security.password-reset.store", havingValue = "jdbc")
+public class JdbcPasswordResetTokenStore implements PasswordResetTokenStore {
+    private static final Logger logger = LoggerFactory.getLogger(JdbcPasswordResetTokenStore.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${app.security.password-reset.ttl-minutes:15}")
+    private long ttlMinutes;
+
+    @Value("${app.security.password-reset.max-tokens:10000}")
+    private int maxTokens;
+
+    private final SecureRandom random = new SecureRandom();
+
+    @Override
+    @Transactional
+    public String issue(String username) {
+        String token = PasswordResetTokenStore.newToken(random);
+        long now = System.currentTimeMillis();
+        jdbcTemplate.update("DELETE FROM password_reset_tokens WHERE username = ?", username);
+
+        Integer live = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM password_reset_tokens", Integer.class);
+        if (live != null && live >= maxTokens) {
+            jdbcTemplate.update("DELETE FROM password_reset_tokens WHERE expires_at <= ?", new Timestamp(now));
+            int evicted = jdbcTemplate.update(
+                    "DELETE FROM password_reset_tokens WHERE token_hash IN "
+                            + "(SELECT token_hash FROM password_reset_tokens ORDER BY expires_at LIMIT ?)",
+                    live - maxTokens + 1);
+            if (evicted > 0) {
+                logger.warn("Password reset token store full ({}); dropped {} tokens closest to expiry", maxTokens, evicted);
+            }
+        }
+        jdbcTemplate.update("INSERT INTO password_reset_tokens (token_hash, username, expires_at) VALUES (?, ?, ?)",
+                PasswordResetTokenStore.hash(token), username, new Timestamp(now + ttlMinutes * 60_000));
+        return token;
+    }
+
+    @Override
+    public boolean consume(String username, String token) {
+        if (username == null || token == null) {
+            return false;
+        }
+        return jdbcTemplate.update(
+                "DELETE FROM password_reset_tokens WHERE token_hash = ? AND username = ? AND expires_at > ?",
+                PasswordResetTokenStore.hash(token), username, new Timestamp(System.currentTimeMillis())) == 1;
+    }
+
+    @Override
+    @Scheduled(fixedRate = 60000)
+    public void sweep() {
+        int removed = jdbcTemplate.update("DELETE FROM password_reset_tokens WHERE expires_at <= ?",
+                new Timestamp(System.currentTimeMillis()));
+        if (removed > 0) {
+            logger.debug("Swept {} expired password reset tokens", removed);
+        }
+    }
+}
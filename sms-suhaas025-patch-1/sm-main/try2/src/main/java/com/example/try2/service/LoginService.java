@@ -0,0 +1,168 @@
+package com.example.try2.service;
+
+import com.example.try2.entity.EAccountStatus;
+import com.example.try2.entity.User;
+import com.example.try2.payload.request.LoginRequest;
+import com.example.try2.payload.response.JwtResponse;
+import com.example.try2.payload.response.MessageResponse;
+import com.example.try2.payload.response.MfaCheckResponse;
+import com.example.try2.repository.UserRepository;
+import com.example.try2.security.jwt.JwtUtils;
+import com.example.try2.security.services.LoginAttemptTracker;
+import com.example.try2.security.services.PasswordHasher;
+import com.example.try2.security.services.UserDetailsImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sign-in pipeline. Locked usernames and addresses are refused from memory first
+ * ({@link LoginAttemptTracker}). Otherwise the user and roles are read once, the password
+ * is checked against that row, and a success (last login, expiration, lock reset, current
+ * session token) is written with a single UPDATE; a failure writes nothing unless it locks
+ * the account. The audit entry is written off the request thread.
+ * <p>
+ * No transaction is held across the password check, so slow hashing never pins a
+ * pool connection. The check itself runs on the {@link PasswordHasher} bulkhead.
+ */
+@Service
+public class LoginService {
+    private static final Logger logger = LoggerFactory.getLogger(LoginService.class);
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordHasher passwordHasher;
+
+    @Autowired
+    private LoginAttemptTracker loginAttemptTracker;
+
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    @Autowired
+    private AccountManagementService accountManagementService;
+
+    @Autowired
+    private ActivityLogService activityLogService;
+
+    /**
+     * Result of a sign-in attempt: {@code ok} selects 200 or 400, {@code body} is the response payload.
+     */
+    public record Outcome(boolean ok, Object body) {
+        static Outcome rejected(String message) {
+            return new Outcome(false, new MessageResponse(message));
+        }
+    }
+
+    public Outcome signIn(LoginRequest request, String clientAddress) {
+        // Brute force is refused here, before any database read or password hash
+        LoginAttemptTracker.Lockout lockout = loginAttemptTracker.check(request.getUsername(), clientAddress);
+        if (lockout != null) {
+            return Outcome.rejected(lockout.byAddress()
+                    ? "Too many failed sign-in attempts from your network. Please try again in " + lockout.secondsLeft() + " seconds."
+                    : "Account is locked due to too many failed login attempts. Please try again in " + lockout.secondsLeft() + " seconds.");
+        }
+
+        boolean force = Boolean.TRUE.equals(request.getForce());
+        User user = userRepository.findForLoginByUsername(request.getUsername()).orElse(null);
+        if (user == null) {
+            // Pay for a hash anyway, as for a wrong password, so unknown usernames are not faster
+            passwordHasher.matchesDummy(request.getPassword());
+            loginAttemptTracker.recordAddressFailure(clientAddress);
+            return Outcome.rejected("Invalid username or password");
+        }
+        if (user.getAccountStatus() == EAccountStatus.BLOCKED) {
+            return Outcome.rejected("Your account is blocked. Please contact an administrator.");
+        }
+        if (user.getAccountStatus() == EAccountStatus.EXPIRED) {
+            return Outcome.rejected("Your account has expired due to inactivity. Please contact an administrator.");
+        }
+
+        // Pending changes, applied to the in-memory row and written once at the end
+        String currentJwt = user.getCurrentJwt();
+        if (currentJwt != null && !currentJwt.isEmpty()) {
+            boolean valid;
+            try {
+                valid = jwtUtils.validateJwtToken(currentJwt);
+            } catch (Exception e) {
+                valid = false;
+            }
+            if (valid && !force) {
+                return new Outcome(true, Map.of(
+                        "alreadyLoggedIn", true,
+                        "message", "You are already logged in elsewhere. If you continue, your old session will be terminated."));
+            }
+            if (!valid) {
+                currentJwt = null;
+            }
+        }
+
+        // A lock persisted by another node (or an admin) still applies
+        long now = System.currentTimeMillis();
+        if (user.getAccountLockedUntil() != null && now < user.getAccountLockedUntil()) {
+            long secondsLeft = (user.getAccountLockedUntil() - now) / 1000;
+            return Outcome.rejected("Account is locked due to too many failed login attempts. Please try again in "
+                    + secondsLeft + " seconds.");
+        }
+
+        if (user.getPassword() == null) {
+            passwordHasher.matchesDummy(request.getPassword());
+            return failed(user, clientAddress);
+        }
+        if (!passwordHasher.matches(request.getPassword(), user.getPassword())) {
+            return failed(user, clientAddress);
+        }
+        loginAttemptTracker.recordSuccess(user.getUsername());
+        passwordHasher.rehashIfNeeded(user.getId(), request.getPassword(), user.getPassword());
+
+        UserDetailsImpl userDetails = UserDetailsImpl.build(user);
+        Authentication authentication = new UsernamePasswordAuthenticationToken(
+                userDetails, null, userDetails.getAuthorities());
+        SecurityContextHolder.getContext().setAuthentication(authentication);
+
+        Object body;
+        if (user.isMfaEnabled()) {
+            // Session token is issued once the second factor is verified
+            body = new MfaCheckResponse(true, jwtUtils.generateMfaToken(userDetails.getUsername(), userDetails.getId()));
+        } else {
+            currentJwt = jwtUtils.generateJwtToken(authentication);
+            List<String> roles = userDetails.getAuthorities().stream()
+                    .map(GrantedAuthority::getAuthority)
+                    .toList();
+            body = new JwtResponse(currentJwt, userDetails.getId(), userDetails.getUsername(), userDetails.getEmail(),
+                    user.getAvatar(), roles);
+        }
+
+        LocalDateTime loginTime = LocalDateTime.now();
+        userRepository.recordSuccessfulLogin(user.getId(), loginTime,
+                accountManagementService.expirationAfterLogin(user, loginTime), currentJwt);
+        activityLogService.logActionAsync(user.getId(), user.getUsername(), "LOGIN", "User logged in");
+        logger.debug("User {} signed in{}", user.getUsername(), user.isMfaEnabled() ? " (MFA pending)" : "");
+        return new Outcome(true, body);
+    }
+
+    private Outcome failed(User user, String clientAddress) {
+        LoginAttemptTracker.Failure failure = loginAttemptTracker.recordFailure(user.getUsername(), clientAddress);
+        logger.warn("Failed login attempt {} for user {}", failure.recentFailures(), user.getUsername());
+        if (failure.lockedUntil() != null) {
+            // Persist the transition only, so the lock shows up for admins and other nodes
+            userRepository.lockAccount(user.getId(), failure.recentFailures(), failure.lockedUntil(), LocalDateTime.now());
+            long seconds = Math.max(1, (failure.lockedUntil() - System.currentTimeMillis() + 999) / 1000);
+            logger.warn("Account locked for user {} after {} failed attempts", user.getUsername(), failure.recentFailures());
+            return Outcome.rejected("Account locked after " + failure.recentFailures()
+                    + " failed login attempts. Please try again in " + seconds + " seconds.");
+        }
+        return Outcome.rejected("Invalid username or password");
+    }
+}
@@ -20,40 +20,53 @@ public class MenuFeatureService {
     private MenuFeatureRepository menuFeatureRepository;
     @Autowired
     private RoleRepository roleRepository;
+    @Autowired
+    private MenuSnapshot menuSnapshot;
 
     public List<MenuFeatureResponse> getAllMenuFeatures() {
-        return menuFeatureRepository.findAll().stream().map(this::toResponse).collect(Collectors.toList());
+        return menuFeatureRepository.findAll().stream().map(MenuFeatureService::toResponse).collect(Collectors.toList());
     }
 
     public MenuFeatureResponse getMenuFeature(Long id) {
-        return menuFeatureRepository.findById(id).map(this::toResponse).orElse(null);
+        return menuFeatureRepository.findById(id).map(MenuFeatureService::toResponse).orElse(null);
     }
 
     @Transactional
     public MenuFeatureResponse createMenuFeature(MenuFeatureRequest req) {
         MenuFeature feature = new MenuFeature();
         updateEntityFromRequest(feature, req);
-        return toResponse(menuFeatureRepository.save(feature));
+        MenuFeatureResponse saved = toResponse(menuFeatureRepository.save(feature));
+        menuSnapshot.reloadAfterCommit();
+        return saved;
     }
 
     @Transactional
     public MenuFeatureResponse updateMenuFeature(Long id, MenuFeatureRequest req) {
         MenuFeature feature = menuFeatureRepository.findById(id).orElseThrow();
         updateEntityFromRequest(feature, req);
-        return toResponse(menuFeatureRepository.save(feature));
+        MenuFeatureResponse saved = toResponse(menuFeatureRepository.save(feature));
+        menuSnapshot.reloadAfterCommit();
+        return saved;
     }
 
     @Transactional
     public void deleteMenuFeature(Long id) {
         menuFeatureRepository.deleteById(id);
+        menuSnapshot.reloadAfterCommit();
     }
 
     public List<MenuFeatureResponse> getMenuFeaturesForRoles(Set<String> roleNames) {
-        List<MenuFeature> features = menuFeatureRepository.findByAllowedRoles_NameInAndVisibleIsTrue(roleNames);
-        return features.stream().map(this::toResponse).collect(Collectors.toList());
+        return menuSnapshot.forRoles(roleNames).features();
+    }
+
+    /**
+     * The precomputed menu for the roles, including its serialized JSON and ETag.
+     */
+    public MenuSnapshot.Menu getMenuForRoles(Set<String> roleNames) {
+        return menuSnapshot.forRoles(roleNames);
     }
 
-    public MenuFeatureResponse toResponse(MenuFeature feature) {
+    public static MenuFeatureResponse toResponse(MenuFeature feature) {
         MenuFeatureResponse resp = new MenuFeatureResponse();
         resp.setId(feature.getId());
         resp.setName(feature.getName());
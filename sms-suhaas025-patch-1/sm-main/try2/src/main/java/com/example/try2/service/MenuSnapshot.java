@@ -0,0 +1,142 @@
+package com.example.try2.service;
+
+import com.example.try2.entity.ERole;
+import com.example.try2.entity.MenuFeature;
+import com.example.try2.payload.response.MenuFeatureResponse;
+import com.example.try2.repository.MenuFeatureRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.DigestUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Read model of the visible menu, precomputed for every combination of roles.
+ * <p>
+ * With four roles there are sixteen combinations, so each gets its menu list, JSON bytes and
+ * ETag up front, indexed by a role bit mask. A fetch is an array lookup. Writes through
+ * {@link MenuFeatureService} rebuild the whole table after they commit and swap it in with
+ * one volatile write; readers never see a half-built table. A periodic reload picks up
+ * writes made on other nodes.
+ */
+@Component
+public class MenuSnapshot {
+    private static final Logger logger = LoggerFactory.getLogger(MenuSnapshot.class);
+
+    private static final ERole[] ROLES = ERole.values();
+
+    @Autowired
+    private MenuFeatureRepository menuFeatureRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // Not synchronized: reload queries the database, which would pin a virtual thread's carrier
+    private final ReentrantLock reloadLock = new ReentrantLock();
+
+    // Index = bit mask of ERole ordinals
+    private volatile Menu[] menus = new Menu[0];
+
+    /**
+     * The menu for one role combination, its JSON form and its ETag.
+     */
+    public record Menu(List<MenuFeatureResponse> features, byte[] json, String etag) {
+    }
+
+    @PostConstruct
+    public void init() {
+        reload();
+    }
+
+    /**
+     * The menu for the given role names ({@code ROLE_ADMIN} or {@code ADMIN}); unknown names are ignored.
+     */
+    public Menu forRoles(Collection<String> roleNames) {
+        int mask = 0;
+        if (roleNames != null) {
+            for (String name : roleNames) {
+                ERole role = parse(name);
+                if (role != null) {
+                    mask |= 1 << role.ordinal();
+                }
+            }
+        }
+        Menu[] current = menus;
+        return mask < current.length ? current[mask] : build(List.of(), mask);
+    }
+
+    /**
+     * Rebuilds the snapshot once the current transaction commits.
+     */
+    public void reloadAfterCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            reload();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                reload();
+            }
+        });
+    }
+
+    @Scheduled(fixedRate = 300000, initialDelay = 300000)
+    public void reload() {
+        reloadLock.lock();
+        try {
+            List<MenuFeatureResponse> visible = new ArrayList<>();
+            for (MenuFeature feature : menuFeatureRepository.findVisibleWithRoles()) {
+                visible.add(MenuFeatureService.toResponse(feature));
+            }
+            visible.sort(Comparator.comparing(MenuFeatureResponse::getId));
+
+            Menu[] built = new Menu[1 << ROLES.length];
+            for (int mask = 0; mask < built.length; mask++) {
+                built[mask] = build(visible, mask);
+            }
+            menus = built;
+            logger.info("Menu snapshot rebuilt: {} visible features, {} role combinations", visible.size(), built.length);
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    private Menu build(List<MenuFeatureResponse> visible, int mask) {
+        List<MenuFeatureResponse> features = visible.stream()
+                .filter(f -> f.getAllowedRoles().stream().map(MenuSnapshot::parse)
+                        .anyMatch(role -> role != null && (mask & (1 << role.ordinal())) != 0))
+                .toList();
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(features);
+            return new Menu(features, json, "\"" + DigestUtils.md5DigestAsHex(json) + "\"");
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize menu", e);
+        }
+    }
+
+    private static ERole parse(String name) {
+        if (name == null) {
+            return null;
+        }
+        String normalized = name.trim().toUpperCase();
+        for (ERole role : ROLES) {
+            if (role.name().equals(normalized) || role.name().equals("ROLE_" + normalized)) {
+                return role;
+            }
+        }
+        return null;
+    }
+}
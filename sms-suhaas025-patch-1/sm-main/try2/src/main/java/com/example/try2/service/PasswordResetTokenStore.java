@@ -0,0 +1,51 @@
+package com.example.try2.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Single-use password reset tokens. Only a SHA-256 hash of each token is kept, a user has
+ * at most one live token (issuing another replaces it), and expired tokens are swept.
+ * <p>
+ * {@code app.security.password-reset.store} picks the backend: {@code memory} (one node)
+ * or {@code jdbc} (shared through the application database, so any node can redeem).
+ */
+public interface PasswordResetTokenStore {
+
+    /**
+     * Issues a new token for the user, replacing any earlier one.
+     *
+     * @return the token to hand to the user; it is not stored in this form
+     */
+    String issue(String username);
+
+    /**
+     * Redeems a token: true only if it was issued to this user, has not expired and has not
+     * been redeemed before. A redeemed token is gone, so concurrent attempts cannot both pass.
+     */
+    boolean consume(String username, String token);
+
+    /**
+     * Removes expired tokens.
+     */
+    void sweep();
+
+    static String newToken(SecureRandom random) {
+        byte[] bytes = new byte[32];
+        random.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    // Tokens carry 256 random bits, so an unsalted digest is enough to keep them unusable at rest
+    static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
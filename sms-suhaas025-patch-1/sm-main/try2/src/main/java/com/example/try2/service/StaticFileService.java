@@ -0,0 +1,293 @@
+package com.example.try2.service;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Serves files from disk with validators and caching headers.
+ * <p>
+ * Each file gets a strong ETag from the SHA-256 of its content, computed once and kept while
+ * size and modification time are unchanged; matching {@code If-None-Match} (or
+ * {@code If-Modified-Since}) gets 304. Immutable files, i.e. content-addressed names, are sent
+ * with a one-year {@code immutable} Cache-Control, others must revalidate. Single byte ranges
+ * are honoured.
+ * <p>
+ * Small files are kept in a bounded LRU and written from memory. Larger ones go through
+ * Tomcat's sendfile when the connector offers it, and otherwise are copied with
+ * {@link FileChannel#transferTo} rather than through a heap buffer.
+ */
+@Service
+public class StaticFileService {
+    private static final Logger logger = LoggerFactory.getLogger(StaticFileService.class);
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+    private static final Pattern RANGE = Pattern.compile("^bytes=(\\d*)-(\\d*)$");
+    private static final String IMMUTABLE = "public, max-age=31536000, immutable";
+    private static final String REVALIDATE = "no-cache";
+
+    @Value("${app.files.cache.max-entries:1024}")
+    private int maxEntries;
+
+    @Value("${app.files.cache.max-file-bytes:65536}")
+    private long maxCachedFileBytes;
+
+    @Value("${app.files.cache.max-total-bytes:16777216}")
+    private long maxTotalBytes;
+
+    /**
+     * What is known about one file at a given size and modification time; {@code content} only for small files.
+     */
+    private record Entry(long size, long lastModified, String etag, byte[] content) {
+    }
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<Path, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long cachedBytes;
+
+    /**
+     * Writes the file, or 304/206/416 as the request's validators and range ask for.
+     *
+     * @param immutable the name identifies the content, so it may be cached without revalidation
+     */
+    public void serve(Path file, String contentType, boolean immutable,
+                      HttpServletRequest request, HttpServletResponse response) throws IOException {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        Entry entry = entry(file, attributes);
+        // HTTP dates have second precision
+        long lastModified = entry.lastModified() / 1000 * 1000;
+
+        response.setHeader(HttpHeaders.ETAG, entry.etag());
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, immutable ? IMMUTABLE : REVALIDATE);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        if (notModified(request, entry.etag(), lastModified)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        long start = 0;
+        long end = entry.size() - 1;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        if (range != null && rangeApplies(request, entry.etag(), lastModified)) {
+            long[] bounds = parseRange(range, entry.size());
+            if (bounds == null) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + entry.size());
+                response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            start = bounds[0];
+            end = bounds[1];
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + entry.size());
+        }
+        long length = entry.size() == 0 ? 0 : end - start + 1;
+        response.setContentType(contentType);
+        response.setContentLengthLong(length);
+        if ("HEAD".equals(request.getMethod()) || length == 0) {
+            return;
+        }
+
+        if (entry.content() != null) {
+            response.getOutputStream().write(entry.content(), (int) start, (int) length);
+            return;
+        }
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // Tomcat sends the file itself once this request returns
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            OutputStream out = response.getOutputStream();
+            WritableByteChannel target = Channels.newChannel(out);
+            long position = start;
+            long remaining = length;
+            while (remaining > 0) {
+                long sent = channel.transferTo(position, remaining, target);
+                if (sent <= 0) {
+                    break;
+                }
+                position += sent;
+                remaining -= sent;
+            }
+        }
+    }
+
+    private Entry entry(Path file, BasicFileAttributes attributes) throws IOException {
+        long size = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        lock.lock();
+        try {
+            Entry cached = entries.get(file);
+            if (cached != null && cached.size() == size && cached.lastModified() == lastModified) {
+                return cached;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        // Hashed outside the lock; two requests racing here just compute the same entry
+        Entry fresh;
+        if (size <= maxCachedFileBytes) {
+            byte[] content = Files.readAllBytes(file);
+            fresh = new Entry(content.length, lastModified, etag(sha256(content)), content);
+        } else {
+            MessageDigest digest = sha256();
+            try (InputStream in = Files.newInputStream(file)) {
+                byte[] buffer = new byte[64 * 1024];
+                int read;
+                while ((read = in.read(buffer)) > 0) {
+                    digest.update(buffer, 0, read);
+                }
+            }
+            fresh = new Entry(size, lastModified, etag(digest.digest()), null);
+        }
+        put(file, fresh);
+        return fresh;
+    }
+
+    private void put(Path file, Entry entry) {
+        lock.lock();
+        try {
+            Entry previous = entries.put(file, entry);
+            if (previous != null && previous.content() != null) {
+                cachedBytes -= previous.content().length;
+            }
+            if (entry.content() != null) {
+                cachedBytes += entry.content().length;
+            }
+            var it = entries.entrySet().iterator();
+            while (it.hasNext() && (entries.size() > maxEntries || cachedBytes > maxTotalBytes)) {
+                Map.Entry<Path, Entry> eldest = it.next();
+                if (eldest.getValue() == entry) {
+                    continue;
+                }
+                it.remove();
+                if (eldest.getValue().content() != null) {
+                    cachedBytes -= eldest.getValue().content().length;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static boolean notModified(HttpServletRequest request, String etag, long lastModified) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            // If-None-Match wins over If-Modified-Since when both are sent
+            return matches(ifNoneMatch, etag);
+        }
+        long since = dateHeader(request, HttpHeaders.IF_MODIFIED_SINCE);
+        return since >= 0 && lastModified <= since;
+    }
+
+    private static boolean rangeApplies(HttpServletRequest request, String etag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(etag);
+        }
+        long date = dateHeader(request, HttpHeaders.IF_RANGE);
+        return date >= 0 && lastModified <= date;
+    }
+
+    private static boolean matches(String header, String etag) {
+        for (String candidate : header.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || tag.equals(etag) || tag.equals("W/" + etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Inclusive {start, end} of a single satisfiable range, or null. Multiple ranges are not supported.
+     */
+    private static long[] parseRange(String header, long size) {
+        Matcher m = RANGE.matcher(header.trim());
+        if (!m.matches() || size == 0) {
+            return null;
+        }
+        String first = m.group(1);
+        String last = m.group(2);
+        try {
+            if (first.isEmpty()) {
+                if (last.isEmpty()) {
+                    return null;
+                }
+                long suffix = Math.min(Long.parseLong(last), size);
+                return suffix == 0 ? null : new long[]{size - suffix, size - 1};
+            }
+            long start = Long.parseLong(first);
+            long end = last.isEmpty() ? size - 1 : Math.min(Long.parseLong(last), size - 1);
+            return start > end || start >= size ? null : new long[]{start, end};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static long dateHeader(HttpServletRequest request, String name) {
+        try {
+            return request.getDateHeader(name);
+        } catch (IllegalArgumentException e) {
+            logger.debug("Ignoring malformed {} header", name);
+            return -1;
+        }
+    }
+
+    private static String etag(byte[] digest) {
+        return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(digest) + "\"";
+    }
+
+    private static byte[] sha256(byte[] content) {
+        return sha256().digest(content);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
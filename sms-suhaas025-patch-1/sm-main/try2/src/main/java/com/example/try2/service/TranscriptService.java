@@ -0,0 +1,282 @@
+package com.example.try2.service;
+
+import com.example.try2.entity.TranscriptTerm;
+import com.example.try2.payload.response.TranscriptResponse;
+import com.example.try2.repository.TranscriptTermRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Transcript and GPA engine.
+ * <p>
+ * Credit-weighted GPA is kept per student and term in {@code transcript_terms}, so a
+ * transcript is a single indexed read. When a grade change commits, only the affected
+ * (student, term) rows are recomputed from {@code grades}; a full rebuild recomputes
+ * every student in parallel on a fork-join pool.
+ */
+@Service
+public class TranscriptService {
+    private static final Logger logger = LoggerFactory.getLogger(TranscriptService.class);
+
+    // Students handled by one fork-join leaf (one query, one transaction)
+    private static final int REBUILD_LEAF_SIZE = 200;
+
+    private static final String GRADE_ROWS_SQL = "SELECT g.user_id, g.academic_year, g.semester, g.grade, g.score, c.credits " +
+            "FROM grades g JOIN courses c ON c.id = g.course_id ";
+
+    private static final String INSERT_SQL = "INSERT INTO transcript_terms " +
+            "(student_id, academic_year, semester, course_count, credits, quality_points, gpa, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final Map<String, Double> LETTER_POINTS = Map.ofEntries(
+            Map.entry("A+", 4.0), Map.entry("A", 4.0), Map.entry("A-", 3.7),
+            Map.entry("B+", 3.3), Map.entry("B", 3.0), Map.entry("B-", 2.7),
+            Map.entry("C+", 2.3), Map.entry("C", 2.0), Map.entry("C-", 1.7),
+            Map.entry("D+", 1.3), Map.entry("D", 1.0), Map.entry("D-", 0.7),
+            Map.entry("F", 0.0));
+
+    @Autowired
+    private TranscriptTermRepository transcriptTermRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.transcript.rebuild-parallelism:4}")
+    private int rebuildParallelism;
+
+    private TransactionTemplate requiresNew;
+
+    private static class TermTotals {
+        int courseCount;
+        int credits;
+        double qualityPoints;
+    }
+
+    @PostConstruct
+    public void init() {
+        requiresNew = new TransactionTemplate(transactionManager);
+        requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @Transactional(readOnly = true)
+    public TranscriptResponse getTranscript(Long studentId) {
+        TranscriptResponse response = new TranscriptResponse();
+        response.setStudentId(studentId);
+        int credits = 0;
+        double qualityPoints = 0;
+        for (TranscriptTerm term : transcriptTermRepository.findByStudentIdOrderByAcademicYearAscSemesterAsc(studentId)) {
+            TranscriptResponse.Term item = new TranscriptResponse.Term();
+            item.setAcademicYear(term.getAcademicYear());
+            item.setSemester(term.getSemester());
+            item.setCourseCount(term.getCourseCount());
+            item.setCredits(term.getCredits());
+            item.setQualityPoints(term.getQualityPoints());
+            item.setGpa(term.getGpa());
+            response.getTerms().add(item);
+            response.setTotalCourses(response.getTotalCourses() + term.getCourseCount());
+            credits += term.getCredits();
+            qualityPoints += term.getQualityPoints();
+        }
+        response.setTotalCredits(credits);
+        response.setCumulativeGpa(gpa(credits, qualityPoints));
+        return response;
+    }
+
+    /**
+     * Recomputes the terms touched by a grade change once it has committed. Runs in its own
+     * transaction so a failure here never affects the grade write; a stale row is corrected
+     * by the next change to that term or by {@link #rebuildAll()}.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onGradeChanged(GradeChangedEvent event) {
+        for (GradeChangedEvent.Term term : event.getTerms()) {
+            try {
+                refreshTermWithRetry(term);
+            } catch (RuntimeException e) {
+                logger.error("Could not refresh transcript of student {} for {} semester {}: {}",
+                        term.studentId(), term.academicYear(), term.semester(), e.getMessage(), e);
+            }
+        }
+    }
+
+    private void refreshTermWithRetry(GradeChangedEvent.Term term) {
+        try {
+            requiresNew.executeWithoutResult(status -> refreshTerm(term));
+        } catch (DataIntegrityViolationException e) {
+            // Another refresh inserted the row first; the retry locks it and recomputes
+            requiresNew.executeWithoutResult(status -> refreshTerm(term));
+        }
+    }
+
+    private void refreshTerm(GradeChangedEvent.Term term) {
+        TranscriptTerm summary = transcriptTermRepository
+                .findForUpdate(term.studentId(), term.academicYear(), term.semester())
+                .orElse(null);
+
+        TermTotals totals = new TermTotals();
+        jdbcTemplate.query(GRADE_ROWS_SQL + "WHERE g.user_id = ? AND g.academic_year = ? AND g.semester = ?",
+                accumulateInto(key -> totals), term.studentId(), term.academicYear(), term.semester());
+
+        if (totals.courseCount == 0) {
+            if (summary != null) {
+                transcriptTermRepository.delete(summary);
+            }
+            return;
+        }
+        if (summary == null) {
+            summary = new TranscriptTerm();
+            summary.setStudentId(term.studentId());
+            summary.setAcademicYear(term.academicYear());
+            summary.setSemester(term.semester());
+        }
+        summary.setCourseCount(totals.courseCount);
+        summary.setCredits(totals.credits);
+        summary.setQualityPoints(totals.qualityPoints);
+        summary.setGpa(gpa(totals.credits, totals.qualityPoints));
+        transcriptTermRepository.save(summary);
+    }
+
+    /**
+     * Recomputes every transcript from {@code grades}. Students are split into fork-join
+     * leaves of {@value #REBUILD_LEAF_SIZE}; each leaf reads its grades in one query and
+     * replaces its students' rows in one transaction.
+     */
+    public Map<String, Object> rebuildAll() {
+        long start = System.currentTimeMillis();
+        List<Long> studentIds = jdbcTemplate.queryForList(
+                "SELECT DISTINCT user_id FROM grades WHERE user_id IS NOT NULL", Long.class);
+        AtomicInteger terms = new AtomicInteger();
+
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, rebuildParallelism));
+        try {
+            pool.invoke(new RebuildTask(studentIds, terms));
+        } finally {
+            pool.shutdown();
+        }
+
+        // Students whose last grade was deleted
+        int removed = jdbcTemplate.update("DELETE FROM transcript_terms WHERE student_id NOT IN " +
+                "(SELECT DISTINCT user_id FROM grades WHERE user_id IS NOT NULL)");
+
+        long elapsed = System.currentTimeMillis() - start;
+        logger.info("Rebuilt transcripts of {} students ({} terms) in {} ms", studentIds.size(), terms.get(), elapsed);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("students", studentIds.size());
+        result.put("terms", terms.get());
+        result.put("removedStudents", removed);
+        result.put("elapsedMs", elapsed);
+        return result;
+    }
+
+    private class RebuildTask extends RecursiveAction {
+        private final List<Long> studentIds;
+        private final AtomicInteger terms;
+
+        RebuildTask(List<Long> studentIds, AtomicInteger terms) {
+            this.studentIds = studentIds;
+            this.terms = terms;
+        }
+
+        @Override
+        protected void compute() {
+            if (studentIds.size() <= REBUILD_LEAF_SIZE) {
+                terms.addAndGet(rebuildStudents(studentIds));
+                return;
+            }
+            int middle = studentIds.size() / 2;
+            invokeAll(new RebuildTask(studentIds.subList(0, middle), terms),
+                    new RebuildTask(studentIds.subList(middle, studentIds.size()), terms));
+        }
+    }
+
+    private int rebuildStudents(List<Long> studentIds) {
+        if (studentIds.isEmpty()) {
+            return 0;
+        }
+        NamedParameterJdbcTemplate namedJdbc = new NamedParameterJdbcTemplate(jdbcTemplate);
+        Map<String, Object> params = Map.of("ids", studentIds);
+        Map<GradeChangedEvent.Term, TermTotals> totals = new LinkedHashMap<>();
+        namedJdbc.query(GRADE_ROWS_SQL + "WHERE g.user_id IN (:ids)", params,
+                accumulateInto(key -> totals.computeIfAbsent(key, k -> new TermTotals())));
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> rows = new ArrayList<>(totals.size());
+        totals.forEach((term, t) -> rows.add(new Object[]{
+                term.studentId(), term.academicYear(), term.semester(),
+                t.courseCount, t.credits, t.qualityPoints, gpa(t.credits, t.qualityPoints), now
+        }));
+
+        requiresNew.executeWithoutResult(status -> {
+            namedJdbc.update("DELETE FROM transcript_terms WHERE student_id IN (:ids)", params);
+            jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+        });
+        return rows.size();
+    }
+
+    private interface TotalsLookup {
+        TermTotals get(GradeChangedEvent.Term term);
+    }
+
+    private static RowCallbackHandler accumulateInto(TotalsLookup lookup) {
+        return rs -> {
+            String academicYear = rs.getString("academic_year");
+            Integer semester = rs.getObject("semester", Integer.class);
+            if (academicYear == null || semester == null) {
+                return;
+            }
+            TermTotals totals = lookup.get(new GradeChangedEvent.Term(rs.getLong("user_id"), academicYear, semester));
+            Integer credits = rs.getObject("credits", Integer.class);
+            int weight = credits != null && credits > 0 ? credits : 0;
+            totals.courseCount++;
+            totals.credits += weight;
+            totals.qualityPoints += weight * gradePoints(rs.getString("grade"), rs.getObject("score", Integer.class));
+        };
+    }
+
+    /**
+     * Grade points on the 4.0 scale: the letter grade when it is a standard one, otherwise the score band.
+     */
+    static double gradePoints(String letter, Integer score) {
+        if (letter != null) {
+            Double points = LETTER_POINTS.get(letter.trim().toUpperCase());
+            if (points != null) {
+                return points;
+            }
+        }
+        if (score == null) {
+            return 0.0;
+        }
+        if (score >= 90) return 4.0;
+        if (score >= 80) return 3.0;
+        if (score >= 70) return 2.0;
+        if (score >= 60) return 1.0;
+        return 0.0;
+    }
+
+    private static Double gpa(int credits, double qualityPoints) {
+        return credits > 0 ? Math.round(qualityPoints / credits * 100.0) / 100.0 : null;
+    }
+}
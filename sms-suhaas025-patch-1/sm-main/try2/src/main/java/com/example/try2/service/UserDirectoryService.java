@@ -0,0 +1,169 @@
+package com.example.try2.service;
+
+import com.example.try2.entity.ERole;
+import com.example.try2.entity.User;
+import com.example.try2.exception.AppException;
+import com.example.try2.payload.response.UserSearchResponse;
+import com.example.try2.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Admin user directory search without COUNT queries.
+ * <p>
+ * Usernames are matched by prefix on the indexed {@code users.username_lower} column,
+ * roles and departments are resolved to ids up front and filtered through
+ * {@code user_roles(role_id, user_id)} and {@code users(department_id)}. A page is
+ * selected as ids only, ordered by (username_lower, id) so that it can continue from a
+ * keyset cursor, and the page's users are then loaded with roles and department in one
+ * query.
+ */
+@Service
+public class UserDirectoryService {
+    private static final Logger logger = LoggerFactory.getLogger(UserDirectoryService.class);
+
+    private static final int MAX_PAGE_SIZE = 200;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserService userService;
+
+    private record Row(long id, String usernameLower) {
+    }
+
+    /**
+     * @param username username prefix, case-insensitive
+     * @param department department name (exact, case-insensitive) or code
+     * @param role role name, with or without the {@code ROLE_} prefix
+     * @param cursor {@code nextCursor} of the previous page; when set, {@code page} is ignored
+     */
+    @Transactional(readOnly = true)
+    public UserSearchResponse search(String username, String department, String role,
+                                     String cursor, int page, int size) {
+        long start = System.currentTimeMillis();
+        int pageSize = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        NamedParameterJdbcTemplate namedJdbc = new NamedParameterJdbcTemplate(jdbcTemplate);
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        StringBuilder sql = new StringBuilder("SELECT u.id, u.username_lower FROM users u WHERE 1 = 1");
+
+        UserSearchResponse response = new UserSearchResponse();
+        response.setSize(pageSize);
+
+        if (username != null && !username.isBlank()) {
+            sql.append(" AND u.username_lower LIKE :prefix ESCAPE '!'");
+            params.addValue("prefix", escapeLike(username.trim().toLowerCase(Locale.ROOT)) + "%");
+        }
+        if (department != null && !department.isBlank()) {
+            List<Long> departmentIds = namedJdbc.queryForList(
+                    "SELECT id FROM departments WHERE LOWER(name) = :department OR LOWER(code) = :department",
+                    Map.of("department", department.trim().toLowerCase(Locale.ROOT)), Long.class);
+            if (departmentIds.isEmpty()) {
+                return finish(response, start);
+            }
+            sql.append(" AND u.department_id IN (:departmentIds)");
+            params.addValue("departmentIds", departmentIds);
+        }
+        if (role != null && !role.isBlank()) {
+            Long roleId = findRoleId(namedJdbc, role);
+            if (roleId == null) {
+                return finish(response, start);
+            }
+            sql.append(" AND EXISTS (SELECT 1 FROM user_roles ur WHERE ur.role_id = :roleId AND ur.user_id = u.id)");
+            params.addValue("roleId", roleId);
+        }
+
+        Row after = decodeCursor(cursor);
+        if (after != null) {
+            sql.append(" AND (u.username_lower > :afterName OR (u.username_lower = :afterName AND u.id > :afterId))");
+            params.addValue("afterName", after.usernameLower());
+            params.addValue("afterId", after.id());
+        }
+        // One extra row tells whether there is a next page
+        sql.append(" ORDER BY u.username_lower, u.id LIMIT :limit");
+        params.addValue("limit", pageSize + 1);
+        if (after == null && page > 0) {
+            sql.append(" OFFSET :offset");
+            params.addValue("offset", (long) page * pageSize);
+        }
+
+        List<Row> rows = namedJdbc.query(sql.toString(), params,
+                (rs, rowNum) -> new Row(rs.getLong("id"), rs.getString("username_lower")));
+        if (rows.size() > pageSize) {
+            rows = rows.subList(0, pageSize);
+            response.setHasNext(true);
+            response.setNextCursor(encodeCursor(rows.get(rows.size() - 1)));
+        }
+
+        if (!rows.isEmpty()) {
+            List<Long> ids = rows.stream().map(Row::id).collect(Collectors.toList());
+            Map<Long, User> users = userRepository.findWithRolesByIdIn(ids).stream()
+                    .collect(Collectors.toMap(User::getId, Function.identity()));
+            for (Long id : ids) {
+                User user = users.get(id);
+                if (user != null) {
+                    response.getContent().add(userService.mapUserToResponse(user));
+                }
+            }
+        }
+        return finish(response, start);
+    }
+
+    private Long findRoleId(NamedParameterJdbcTemplate namedJdbc, String role) {
+        String name = role.trim().toUpperCase(Locale.ROOT);
+        if (!name.startsWith("ROLE_")) {
+            name = "ROLE_" + name;
+        }
+        try {
+            ERole.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            throw new AppException("Unknown role: " + role, HttpStatus.BAD_REQUEST, "INVALID_ROLE");
+        }
+        List<Long> ids = namedJdbc.queryForList("SELECT id FROM roles WHERE name = :name", Map.of("name", name), Long.class);
+        return ids.isEmpty() ? null : ids.get(0);
+    }
+
+    private UserSearchResponse finish(UserSearchResponse response, long start) {
+        response.setTookMs(System.currentTimeMillis() - start);
+        logger.debug("User directory search returned {} rows in {} ms", response.getContent().size(), response.getTookMs());
+        return response;
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("!", "!!").replace("%", "!%").replace("_", "!_");
+    }
+
+    private static String encodeCursor(Row row) {
+        String raw = row.id() + ":" + (row.usernameLower() != null ? row.usernameLower() : "");
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Row decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(':');
+            return new Row(Long.parseLong(raw.substring(0, separator)), raw.substring(separator + 1));
+        } catch (RuntimeException e) {
+            throw new AppException("Invalid cursor", HttpStatus.BAD_REQUEST, "INVALID_CURSOR");
+        }
+    }
+}
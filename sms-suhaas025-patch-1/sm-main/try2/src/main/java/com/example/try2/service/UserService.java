@@ -11,7 +11,7 @@ import com.example.try2.repository.RoleRepository;
 import com.example.try2.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import com.example.try2.security.services.PasswordHasher;
 import org.springframework.stereotype.Service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -57,7 +57,10 @@ public class UserService {
     private RoleRepository roleRepository;
 
     @Autowired
-    private PasswordEncoder passwordEncoder;
+    private PasswordHasher passwordHasher;
+
+    @Autowired
+    private AvatarService avatarService;
 
     @Autowired
     private AnnouncementRepository announcementRepository;
@@ -131,7 +134,7 @@ public class UserService {
 
         // Update password if provided
         if (updateUserRequest.getPassword() != null) {
-            user.setPassword(passwordEncoder.encode(updateUserRequest.getPassword()));
+            user.setPassword(passwordHasher.encode(updateUserRequest.getPassword()));
         }
 
         try {
@@ -422,12 +425,13 @@ public class UserService {
         return userRepository.findAll();
     }
 
-    private UserResponse mapUserToResponse(User user) {
+    UserResponse mapUserToResponse(User user) {
         UserResponse response = new UserResponse();
         response.setId(user.getId());
         response.setUsername(user.getUsername());
         response.setEmail(user.getEmail());
         response.setAvatar(user.getAvatar());
+        response.setAvatarThumbnail(avatarService.thumbnailUrl(user.getAvatar(), 64));
         // Always set department name if present
         response.setDepartmentName(user.getDepartment() != null ? user.getDepartment().getName() : null);
         
@@ -505,7 +509,7 @@ public class UserService {
 
         user.setUsername(userDetails.getUsername());
         user.setEmail(userDetails.getEmail());
-        user.setPassword(passwordEncoder.encode(userDetails.getPassword()));
+        user.setPassword(passwordHasher.encode(userDetails.getPassword()));
         user.setRoles(userDetails.getRoles());
         user.setModeratorType(userDetails.getModeratorType());
         user.setDepartment(userDetails.getDepartment());
@@ -534,43 +538,6 @@ public class UserService {
                 .collect(Collectors.toList());
     }
 
-    // --- Password Reset Token Service (In-Memory, for demo/dev) ---
-    public static class PasswordResetService {
-        private static final long EXPIRY_MILLIS = 15 * 60 * 1000; // 15 minutes
-        private static final java.util.Map<String, TokenRecord> tokenStore = new java.util.concurrent.ConcurrentHashMap<>();
-
-        private static class TokenRecord {
-            String username;
-            long expiry;
-            TokenRecord(String username, long expiry) {
-                this.username = username;
-                this.expiry = expiry;
-            }
-        }
-
-        public String createToken(String username) {
-            String token = java.util.UUID.randomUUID().toString();
-            long expiry = System.currentTimeMillis() + EXPIRY_MILLIS;
-            tokenStore.put(token, new TokenRecord(username, expiry));
-            return token;
-        }
-
-        public boolean validateToken(String username, String token) {
-            TokenRecord rec = tokenStore.get(token);
-            if (rec == null) return false;
-            if (!rec.username.equals(username)) return false;
-            if (System.currentTimeMillis() > rec.expiry) {
-                tokenStore.remove(token);
-                return false;
-            }
-            return true;
-        }
-
-        public void invalidateToken(String token) {
-            tokenStore.remove(token);
-        }
-    }
-
     /**
      * One-time migration: Encrypt all plain-text emails in the database using JDBC (bypassing JPA converters).
      * Call this method manually to fix existing data.
@@ -0,0 +1,49 @@
+package com.example.try2.storage;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Where uploaded and generated files live. Keys are relative, slash-separated names such as
+ * {@code avatars/<hash>-64.jpg}.
+ * <p>
+ * Writes are staged: callers fill a file in {@link #stagingDirectory()} and hand it to
+ * {@link #put}, which publishes it under the key in one step, so readers never see a
+ * partial file. {@code app.storage.type} selects the backend: {@code local} (default) or
+ * {@code s3} (any S3-compatible service).
+ */
+public interface FileStore {
+
+    /**
+     * Local directory for files about to be {@link #put}; on the same filesystem as the store where that matters.
+     */
+    Path stagingDirectory();
+
+    /**
+     * Publishes a staged file under the key, replacing any existing one. The staged file is consumed.
+     */
+    void put(String key, Path staged) throws IOException;
+
+    boolean exists(String key) throws IOException;
+
+    /**
+     * A local file with the key's content, for reading and zero-copy serving, or null if there is no such key.
+     * Remote backends download on first use; keys are expected to name immutable content.
+     */
+    Path localCopy(String key) throws IOException;
+
+    /**
+     * Marks the file as recently used, so age-based cleanup leaves it alone.
+     *
+     * @return false if there is no such key (it may have just been deleted)
+     */
+    boolean touch(String key) throws IOException;
+
+    void delete(String key) throws IOException;
+
+    /**
+     * Files directly under the prefix.
+     */
+    List<StoredObject> list(String prefix) throws IOException;
+}
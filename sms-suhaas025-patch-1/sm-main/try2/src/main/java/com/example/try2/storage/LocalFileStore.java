@@ -0,0 +1,128 @@
+package com.example.try2.storage;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Files under {@code app.storage.local.root}. Staging happens in a hidden directory inside
+ * the root, so publishing is an atomic rename on the same filesystem.
+ */
+@Component
+@ConditionalOnProperty(name = "app.storage.type", havingValue = "local", matchIfMissing = true)
+public class LocalFileStore implements FileStore {
+    private static final Logger logger = LoggerFactory.getLogger(LocalFileStore.class);
+
+    private static final String STAGING = ".staging";
+
+    @Value("${app.storage.local.root:uploads}")
+    private String rootDir;
+
+    private Path root;
+    private Path staging;
+
+    @PostConstruct
+    public void init() throws IOException {
+        root = Paths.get(rootDir).toAbsolutePath().normalize();
+        staging = root.resolve(STAGING);
+        Files.createDirectories(staging);
+        // Anything still staged is from a request that never finished
+        Instant cutoff = Instant.now().minusSeconds(3600);
+        try (DirectoryStream<Path> leftovers = Files.newDirectoryStream(staging)) {
+            for (Path file : leftovers) {
+                if (Files.getLastModifiedTime(file).toInstant().isBefore(cutoff)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+        logger.info("Local file store in {}", root);
+    }
+
+    @Override
+    public Path stagingDirectory() {
+        return staging;
+    }
+
+    @Override
+    public void put(String key, Path staged) throws IOException {
+        Path target = path(key);
+        Files.createDirectories(target.getParent());
+        try {
+            Files.move(staged, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(staged, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return Files.isRegularFile(path(key));
+    }
+
+    @Override
+    public Path localCopy(String key) {
+        Path path = path(key);
+        return Files.isRegularFile(path) ? path : null;
+    }
+
+    @Override
+    public boolean touch(String key) throws IOException {
+        try {
+            Files.setLastModifiedTime(path(key), FileTime.from(Instant.now()));
+            return true;
+        } catch (NoSuchFileException e) {
+            // Deleted meanwhile; nothing to protect
+            return false;
+        }
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        Files.deleteIfExists(path(key));
+    }
+
+    @Override
+    public List<StoredObject> list(String prefix) throws IOException {
+        Path dir = path(prefix);
+        List<StoredObject> objects = new ArrayList<>();
+        if (!Files.isDirectory(dir)) {
+            return objects;
+        }
+        String keyPrefix = prefix.endsWith("/") || prefix.isEmpty() ? prefix : prefix + "/";
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path file : files) {
+                BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                if (attributes.isRegularFile()) {
+                    objects.add(new StoredObject(keyPrefix + file.getFileName(), attributes.size(),
+                            attributes.lastModifiedTime().toInstant()));
+                }
+            }
+        }
+        return objects;
+    }
+
+    private Path path(String key) {
+        Path path = root.resolve(key).normalize();
+        if (!path.startsWith(root) || path.startsWith(staging)) {
+            throw new IllegalArgumentException("Invalid storage key: " + key);
+        }
+        return path;
+    }
+}
@@ -0,0 +1,452 @@
+package com.example.try2.storage;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Files in a bucket of an S3-compatible service (AWS S3, MinIO and the like), addressed
+ * path-style and signed with AWS Signature V4 over the JDK HTTP client.
+ * <p>
+ * A PUT of a complete object is atomic, which gives the same publish semantics as the
+ * local store's rename; staging is a local temporary directory. Reads go through a local
+ * cache directory so files can still be served with sendfile; keys are content-addressed,
+ * so a cached copy's content never changes. Whether a key exists is always asked of S3,
+ * since another node may have deleted it. The cache is bounded by
+ * {@code app.storage.s3.cache-max-bytes} and drops least recently used files first. For
+ * local development point {@code endpoint} at a MinIO container.
+ */
+@Component
+@ConditionalOnProperty(name = "app.storage.type", havingValue = "s3")
+public class S3FileStore implements FileStore {
+    private static final Logger logger = LoggerFactory.getLogger(S3FileStore.class);
+
+    private static final DateTimeFormatter AMZ_DATE = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC);
+    private static final DateTimeFormatter SCOPE_DATE = DateTimeFormatter.ofPattern("yyyyMMdd").withZone(ZoneOffset.UTC);
+    private static final String EMPTY_SHA256 = "e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855";
+
+    @Value("${app.storage.s3.endpoint:http://localhost:9000}")
+    private String endpoint;
+
+    @Value("${app.storage.s3.region:us-east-1}")
+    private String region;
+
+    @Value("${app.storage.s3.bucket:try2}")
+    private String bucket;
+
+    @Value("${app.storage.s3.access-key:}")
+    private String accessKey;
+
+    @Value("${app.storage.s3.secret-key:}")
+    private String secretKey;
+
+    @Value("${app.storage.s3.cache-dir:${java.io.tmpdir}/try2-s3-cache}")
+    private String cacheDir;
+
+    @Value("${app.storage.s3.cache-max-bytes:268435456}")
+    private long cacheMaxBytes;
+
+    private final HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    private URI base;
+    private Path cache;
+    private Path staging;
+
+    // Cached files and their sizes, least recently used first
+    private final ReentrantLock cacheLock = new ReentrantLock();
+    private final LinkedHashMap<Path, Long> cached = new LinkedHashMap<>(64, 0.75f, true);
+    private long cachedBytes;
+
+    @PostConstruct
+    public void init() throws IOException {
+        base = URI.create(endpoint.endsWith("/") ? endpoint : endpoint + "/");
+        cache = Paths.get(cacheDir).toAbsolutePath().normalize();
+        staging = cache.resolve(".staging");
+        Files.createDirectories(staging);
+        // Files left by an earlier run count against the limit, oldest first
+        try (Stream<Path> files = Files.walk(cache)) {
+            files.filter(path -> !path.startsWith(staging) && Files.isRegularFile(path))
+                    .sorted(Comparator.comparingLong(S3FileStore::lastModified))
+                    .forEach(path -> remember(path, size(path)));
+        }
+        trimCache(null);
+        logger.info("S3 file store: bucket {} at {}, {} bytes cached", bucket, base, cachedBytes);
+    }
+
+    @Override
+    public Path stagingDirectory() {
+        return staging;
+    }
+
+    @Override
+    public void put(String key, Path staged) throws IOException {
+        try {
+            HttpResponse<String> response = send("PUT", key, Map.of(), Map.of(), staged);
+            if (response.statusCode() / 100 != 2) {
+                throw new IOException("S3 PUT " + key + " failed: " + response.statusCode() + " " + response.body());
+            }
+        } finally {
+            Files.deleteIfExists(staged);
+        }
+    }
+
+    @Override
+    public boolean exists(String key) throws IOException {
+        int status = send("HEAD", key, Map.of(), Map.of(), null).statusCode();
+        if (status == 404) {
+            return false;
+        }
+        expectSuccess("HEAD", key, status);
+        return true;
+    }
+
+    @Override
+    public Path localCopy(String key) throws IOException {
+        Path cached = cachePath(key);
+        if (Files.isRegularFile(cached)) {
+            remember(cached, Files.size(cached));
+            return cached;
+        }
+        HttpRequest request = signed("GET", key, Map.of(), Map.of(), EMPTY_SHA256)
+                .GET().build();
+        HttpResponse<InputStream> response = execute(request, HttpResponse.BodyHandlers.ofInputStream());
+        try (InputStream body = response.body()) {
+            if (response.statusCode() == 404) {
+                return null;
+            }
+            expectSuccess("GET", key, response.statusCode());
+            Files.createDirectories(cached.getParent());
+            Path temp = Files.createTempFile(staging, "download-", ".tmp");
+            try {
+                Files.copy(body, temp, StandardCopyOption.REPLACE_EXISTING);
+                try {
+                    Files.move(temp, cached, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp, cached, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        }
+        remember(cached, Files.size(cached));
+        trimCache(cached);
+        return cached;
+    }
+
+    @Override
+    public boolean touch(String key) throws IOException {
+        // Copying an object onto itself with replaced metadata refreshes its LastModified
+        Map<String, String> headers = Map.of(
+                "x-amz-copy-source", "/" + bucket + "/" + encodePath(key),
+                "x-amz-metadata-directive", "REPLACE");
+        int status = send("PUT", key, Map.of(), headers, null).statusCode();
+        if (status == 404) {
+            return false;
+        }
+        expectSuccess("COPY", key, status);
+        return true;
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        evict(cachePath(key));
+        int status = send("DELETE", key, Map.of(), Map.of(), null).statusCode();
+        if (status != 404) {
+            expectSuccess("DELETE", key, status);
+        }
+    }
+
+    @Override
+    public List<StoredObject> list(String prefix) throws IOException {
+        List<StoredObject> objects = new ArrayList<>();
+        String token = null;
+        do {
+            Map<String, String> query = new TreeMap<>();
+            query.put("list-type", "2");
+            query.put("prefix", prefix);
+            query.put("delimiter", "/");
+            if (token != null) {
+                query.put("continuation-token", token);
+            }
+            HttpResponse<String> response = send("GET", "", query, Map.of(), null);
+            expectSuccess("LIST", prefix, response.statusCode());
+            Document xml = parse(response.body());
+            NodeList contents = xml.getElementsByTagName("Contents");
+            for (int i = 0; i < contents.getLength(); i++) {
+                Element item = (Element) contents.item(i);
+                objects.add(new StoredObject(text(item, "Key"), Long.parseLong(text(item, "Size")),
+                        Instant.parse(text(item, "LastModified"))));
+            }
+            token = "true".equals(text(xml.getDocumentElement(), "IsTruncated"))
+                    ? text(xml.getDocumentElement(), "NextContinuationToken") : null;
+        } while (token != null);
+        return objects;
+    }
+
+    private HttpResponse<String> send(String method, String key, Map<String, String> query,
+                                      Map<String, String> headers, Path body) throws IOException {
+        String payloadHash = body != null ? sha256Hex(body) : EMPTY_SHA256;
+        HttpRequest.Builder builder = signed(method, key, query, headers, payloadHash);
+        HttpRequest.BodyPublisher publisher = body != null
+                ? HttpRequest.BodyPublishers.ofFile(body) : HttpRequest.BodyPublishers.noBody();
+        builder.method(method, publisher);
+        return execute(builder.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private <T> HttpResponse<T> execute(HttpRequest request, HttpResponse.BodyHandler<T> handler) throws IOException {
+        try {
+            return http.send(request, handler);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while calling S3", e);
+        }
+    }
+
+    /**
+     * A request carrying an AWS Signature V4 Authorization header for the given method, key, query and extra headers.
+     */
+    private HttpRequest.Builder signed(String method, String key, Map<String, String> query,
+                                       Map<String, String> extraHeaders, String payloadHash) {
+        Instant now = Instant.now();
+        String amzDate = AMZ_DATE.format(now);
+        String scopeDate = SCOPE_DATE.format(now);
+        String path = "/" + bucket + (key.isEmpty() ? "/" : "/" + encodePath(key));
+
+        StringBuilder canonicalQuery = new StringBuilder();
+        for (Map.Entry<String, String> param : new TreeMap<>(query).entrySet()) {
+            if (canonicalQuery.length() > 0) {
+                canonicalQuery.append('&');
+            }
+            canonicalQuery.append(encode(param.getKey())).append('=').append(encode(param.getValue()));
+        }
+        URI uri = base.resolve(path.substring(1) + (canonicalQuery.length() > 0 ? "?" + canonicalQuery : ""));
+        String host = uri.getPort() == -1 ? uri.getHost() : uri.getHost() + ":" + uri.getPort();
+
+        TreeMap<String, String> headers = new TreeMap<>();
+        headers.put("host", host);
+        headers.put("x-amz-content-sha256", payloadHash);
+        headers.put("x-amz-date", amzDate);
+        extraHeaders.forEach((name, value) -> headers.put(name.toLowerCase(), value));
+
+        StringBuilder canonicalHeaders = new StringBuilder();
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            canonicalHeaders.append(header.getKey()).append(':').append(header.getValue().trim()).append('\n');
+        }
+        String signedHeaders = String.join(";", headers.keySet());
+        String canonicalRequest = method + "\n" + uri.getRawPath() + "\n" + canonicalQuery + "\n"
+                + canonicalHeaders + "\n" + signedHeaders + "\n" + payloadHash;
+
+        String scope = scopeDate + "/" + region + "/s3/aws4_request";
+        String stringToSign = "AWS4-HMAC-SHA256\n" + amzDate + "\n" + scope + "\n"
+                + HexFormat.of().formatHex(sha256(canonicalRequest.getBytes(StandardCharsets.UTF_8)));
+        byte[] signingKey = hmac(hmac(hmac(hmac(("AWS4" + secretKey).getBytes(StandardCharsets.UTF_8), scopeDate),
+                region), "s3"), "aws4_request");
+        String signature = HexFormat.of().formatHex(hmac(signingKey, stringToSign));
+
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(30));
+        headers.forEach((name, value) -> {
+            if (!name.equals("host")) {
+                builder.header(name, value);
+            }
+        });
+        builder.header("Authorization", "AWS4-HMAC-SHA256 Credential=" + accessKey + "/" + scope
+                + ", SignedHeaders=" + signedHeaders + ", Signature=" + signature);
+        return builder;
+    }
+
+    private void remember(Path path, long size) {
+        cacheLock.lock();
+        try {
+            Long previous = cached.put(path, size);
+            cachedBytes += size - (previous != null ? previous : 0);
+        } finally {
+            cacheLock.unlock();
+        }
+    }
+
+    private void evict(Path path) throws IOException {
+        cacheLock.lock();
+        try {
+            Long size = cached.remove(path);
+            if (size != null) {
+                cachedBytes -= size;
+            }
+        } finally {
+            cacheLock.unlock();
+        }
+        Files.deleteIfExists(path);
+    }
+
+    /**
+     * Deletes least recently used files until the cache fits its limit, keeping {@code keep}.
+     */
+    private void trimCache(Path keep) {
+        List<Path> victims = new ArrayList<>();
+        cacheLock.lock();
+        try {
+            Iterator<Map.Entry<Path, Long>> it = cached.entrySet().iterator();
+            while (cachedBytes > cacheMaxBytes && it.hasNext()) {
+                Map.Entry<Path, Long> eldest = it.next();
+                if (eldest.getKey().equals(keep)) {
+                    continue;
+                }
+                it.remove();
+                cachedBytes -= eldest.getValue();
+                victims.add(eldest.getKey());
+            }
+        } finally {
+            cacheLock.unlock();
+        }
+        for (Path victim : victims) {
+            try {
+                Files.deleteIfExists(victim);
+            } catch (IOException e) {
+                logger.warn("Could not remove cached file {}: {}", victim, e.getMessage());
+            }
+        }
+    }
+
+    private static long size(Path path) {
+        try {
+            return Files.size(path);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static long lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private Path cachePath(String key) {
+        Path path = cache.resolve(key).normalize();
+        if (!path.startsWith(cache) || path.startsWith(staging)) {
+            throw new IllegalArgumentException("Invalid storage key: " + key);
+        }
+        return path;
+    }
+
+    private static void expectSuccess(String operation, String key, int status) throws IOException {
+        if (status / 100 != 2) {
+            throw new IOException("S3 " + operation + " " + key + " failed with status " + status);
+        }
+    }
+
+    private static Document parse(String xml) throws IOException {
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            return factory.newDocumentBuilder()
+                    .parse(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+        } catch (Exception e) {
+            throw new IOException("Unreadable S3 listing", e);
+        }
+    }
+
+    private static String text(Element parent, String tag) {
+        NodeList nodes = parent.getElementsByTagName(tag);
+        return nodes.getLength() > 0 ? nodes.item(0).getTextContent() : null;
+    }
+
+    private static String encodePath(String key) {
+        StringBuilder encoded = new StringBuilder();
+        for (String segment : key.split("/", -1)) {
+            if (encoded.length() > 0) {
+                encoded.append('/');
+            }
+            encoded.append(encode(segment));
+        }
+        return encoded.toString();
+    }
+
+    // RFC 3986 unreserved characters stay, everything else is percent-encoded (as SigV4 requires)
+    private static String encode(String value) {
+        StringBuilder out = new StringBuilder();
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            char c = (char) (b & 0xff);
+            if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')
+                    || c == '-' || c == '_' || c == '.' || c == '~') {
+                out.append(c);
+            } else {
+                out.append('%').append(String.format("%02X", b & 0xff));
+            }
+        }
+        return out.toString();
+    }
+
+    private static String sha256Hex(Path file) throws IOException {
+        MessageDigest digest = sha256();
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static byte[] sha256(byte[] data) {
+        return sha256().digest(data);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static byte[] hmac(byte[] key, String data) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(key, "HmacSHA256"));
+            return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+}
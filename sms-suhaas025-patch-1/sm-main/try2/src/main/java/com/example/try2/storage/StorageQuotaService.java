@@ -0,0 +1,79 @@
+package com.example.try2.storage;
+
+import com.example.try2.entity.StoredFile;
+import com.example.try2.exception.AppException;
+import com.example.try2.repository.StoredFileRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Per-user storage quota ({@code app.storage.quota-bytes-per-user}) over the files recorded
+ * in {@code stored_files}. A file is recorded only once it has been stored. Updates for one
+ * user hold a row lock on the user ({@code SELECT ... FOR UPDATE}), so concurrent uploads,
+ * on any node, cannot both squeeze under the limit.
+ */
+@Service
+public class StorageQuotaService {
+    private static final Logger logger = LoggerFactory.getLogger(StorageQuotaService.class);
+
+    @Autowired
+    private StoredFileRepository storedFileRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${app.storage.quota-bytes-per-user:10485760}")
+    private long quotaBytes;
+
+    /**
+     * Cheap pre-check on the declared size, before anything is streamed.
+     *
+     * @throws AppException 413 when the file cannot fit
+     */
+    public void checkFits(Long userId, String purpose, long size) {
+        long used = storedFileRepository.sumSizeExcludingPurpose(userId, purpose);
+        if (used + size > quotaBytes) {
+            throw quotaExceeded();
+        }
+    }
+
+    /**
+     * Records the user's stored file for a purpose, replacing the previous one, if it fits the quota.
+     * Call after the file has been stored, so a failed upload never counts.
+     *
+     * @throws AppException 413 when it does not fit
+     */
+    @Transactional
+    public void replace(Long userId, String purpose, String key, long size) {
+        // Serialises this user's quota updates across nodes until the transaction ends
+        List<Long> locked = jdbcTemplate.queryForList("SELECT id FROM users WHERE id = ? FOR UPDATE", Long.class, userId);
+        if (locked.isEmpty()) {
+            throw new AppException("User not found with ID: " + userId, HttpStatus.NOT_FOUND, "RESOURCE_NOT_FOUND");
+        }
+        checkFits(userId, purpose, size);
+        storedFileRepository.deleteByUserIdAndPurpose(userId, purpose);
+        storedFileRepository.save(new StoredFile(null, userId, purpose, key, size, LocalDateTime.now()));
+    }
+
+    @Scheduled(fixedDelay = 3600000, initialDelay = 600000)
+    public void removeRecordsOfDeletedUsers() {
+        int removed = storedFileRepository.deleteForMissingUsers();
+        if (removed > 0) {
+            logger.info("Removed {} stored-file records of deleted users", removed);
+        }
+    }
+
+    private static AppException quotaExceeded() {
+        return new AppException("Storage quota exceeded", HttpStatus.PAYLOAD_TOO_LARGE, "QUOTA_EXCEEDED");
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.try2.storage;
+
+import java.time.Instant;
+
+/**
+ * One file in a {@link FileStore} listing.
+ */
+public record StoredObject(String key, long size, Instant lastModified) {
+}
@@ -0,0 +1,123 @@
+package com.example.try2.storage;
+
+import com.example.try2.exception.AppException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Set;
+
+/**
+ * Streams uploads into the store's staging directory, rejecting them as early as possible:
+ * the declared size before any byte is copied, the type from the first bytes, and the
+ * real size as soon as the copy passes the limit. The content hash is computed on the way.
+ */
+@Component
+public class UploadStager {
+
+    private static final int SNIFF_BYTES = 12;
+
+    @Autowired
+    private FileStore fileStore;
+
+    /**
+     * A staged file; closing it deletes the file unless it was handed to {@link FileStore#put}.
+     */
+    public record Staged(Path file, long size, String sha256, String mediaType) implements AutoCloseable {
+        @Override
+        public void close() throws IOException {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * @param allowedTypes media types accepted, as recognised from the content (not the client's claim)
+     * @throws AppException 413 when too large, 415 for other content
+     */
+    public Staged stage(MultipartFile upload, long maxBytes, Set<String> allowedTypes) throws IOException {
+        if (upload == null || upload.isEmpty()) {
+            throw new AppException("File is empty", HttpStatus.BAD_REQUEST, "EMPTY_FILE");
+        }
+        if (upload.getSize() > maxBytes) {
+            throw tooLarge(maxBytes);
+        }
+        MessageDigest digest = sha256();
+        Path temp = Files.createTempFile(fileStore.stagingDirectory(), "upload-", ".tmp");
+        try (InputStream in = upload.getInputStream(); OutputStream out = Files.newOutputStream(temp)) {
+            byte[] head = in.readNBytes(SNIFF_BYTES);
+            String mediaType = sniff(head);
+            if (mediaType == null || !allowedTypes.contains(mediaType)) {
+                throw new AppException("Unsupported file type", HttpStatus.UNSUPPORTED_MEDIA_TYPE, "UNSUPPORTED_TYPE");
+            }
+            digest.update(head);
+            out.write(head);
+            long total = head.length;
+            byte[] buffer = new byte[16 * 1024];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                total += read;
+                if (total > maxBytes) {
+                    throw tooLarge(maxBytes);
+                }
+                digest.update(buffer, 0, read);
+                out.write(buffer, 0, read);
+            }
+            return new Staged(temp, total, HexFormat.of().formatHex(digest.digest()), mediaType);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    /**
+     * Stages generated content (e.g. a thumbnail) for {@link FileStore#put}.
+     */
+    public Path stage(byte[] content) throws IOException {
+        Path temp = Files.createTempFile(fileStore.stagingDirectory(), "generated-", ".tmp");
+        try {
+            Files.write(temp, content);
+            return temp;
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    // Magic numbers of the formats we accept
+    private static String sniff(byte[] head) {
+        if (head.length >= 3 && (head[0] & 0xff) == 0xFF && (head[1] & 0xff) == 0xD8 && (head[2] & 0xff) == 0xFF) {
+            return "image/jpeg";
+        }
+        if (head.length >= 8 && (head[0] & 0xff) == 0x89 && head[1] == 'P' && head[2] == 'N' && head[3] == 'G'
+                && head[4] == 0x0D && head[5] == 0x0A && head[6] == 0x1A && head[7] == 0x0A) {
+            return "image/png";
+        }
+        if (head.length >= 12 && head[0] == 'R' && head[1] == 'I' && head[2] == 'F' && head[3] == 'F'
+                && head[8] == 'W' && head[9] == 'E' && head[10] == 'B' && head[11] == 'P') {
+            return "image/webp";
+        }
+        return null;
+    }
+
+    private static AppException tooLarge(long maxBytes) {
+        return new AppException("File size exceeds " + (maxBytes / (1024 * 1024)) + "MB limit",
+                HttpStatus.PAYLOAD_TOO_LARGE, "FILE_TOO_LARGE");
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
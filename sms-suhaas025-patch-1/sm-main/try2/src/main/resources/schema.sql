@@ -25,4 +25,34 @@ ALTER TABLE users ADD COLUMN IF NOT EXISTS account_status VARCHAR(50) DEFAULT 'A
 
 -- Set initial expiration date for all existing users (30 days from now)
 UPDATE users SET account_expiration_date = DATEADD('DAY', 30, CURRENT_TIMESTAMP())
-WHERE account_expiration_date IS NULL; 
\ No newline at end of file
+WHERE account_expiration_date IS NULL; 
+
+-- One enrollment per student and course; keep the earliest of any existing duplicates first
+DELETE FROM enrollments WHERE id NOT IN (
+    SELECT keep_id FROM (SELECT MIN(id) AS keep_id FROM enrollments GROUP BY student_id, course_id) k
+);
+ALTER TABLE enrollments ADD CONSTRAINT IF NOT EXISTS uk_enrollment_student_course UNIQUE (student_id, course_id);
+
+-- The enrollments status CHECK (generated name) is widened for WAITLISTED by
+-- EnrollmentStatusCheckMigration, which runs right after this script
+
+-- Seat capacity for course registration; backfill seats from existing seat-holding enrollments
+ALTER TABLE courses ADD COLUMN IF NOT EXISTS seat_capacity INT;
+ALTER TABLE courses ADD COLUMN IF NOT EXISTS seats_taken INT;
+UPDATE courses c SET seats_taken = (
+    SELECT COUNT(*) FROM enrollments e
+    WHERE e.course_id = c.id AND e.status IN ('PENDING', 'APPROVED', 'COMPLETED')
+) WHERE seats_taken IS NULL;
+
+-- Lower-cased username for indexed directory search
+ALTER TABLE users ADD COLUMN IF NOT EXISTS username_lower VARCHAR(20);
+UPDATE users SET username_lower = LOWER(username) WHERE username_lower IS NULL OR username_lower <> LOWER(username);
+
+-- Password reset tokens for the shared (jdbc) reset-token store; only token hashes are kept
+CREATE TABLE IF NOT EXISTS password_reset_tokens (
+    token_hash VARCHAR(64) PRIMARY KEY,
+    username VARCHAR(50) NOT NULL,
+    expires_at TIMESTAMP NOT NULL
+);
+CREATE INDEX IF NOT EXISTS idx_password_reset_tokens_username ON password_reset_tokens (username);
+CREATE INDEX IF NOT EXISTS idx_password_reset_tokens_expires_at ON password_reset_tokens (expires_at);
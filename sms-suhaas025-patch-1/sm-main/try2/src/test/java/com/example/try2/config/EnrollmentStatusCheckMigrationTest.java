@@ -0,0 +1,69 @@
+package com.example.try2.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Runs the migration against an enrollments table as Hibernate created it before WAITLISTED existed.
+ */
+class EnrollmentStatusCheckMigrationTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private EnrollmentStatusCheckMigration migration;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:h2:mem:old_enrollments;DB_CLOSE_DELAY=-1", "sa", ""));
+        jdbcTemplate.execute("create table enrollments (id bigint generated by default as identity, " +
+                "course_id bigint not null, student_id bigint not null, " +
+                "status varchar(255) check (status in ('PENDING','APPROVED','REJECTED','WITHDRAWN','COMPLETED')), " +
+                "primary key (id))");
+        migration = new EnrollmentStatusCheckMigration();
+        ReflectionTestUtils.setField(migration, "jdbcTemplate", jdbcTemplate);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("drop table enrollments");
+    }
+
+    @Test
+    void oldSchemaRejectsWaitlistedUntilMigrated() {
+        assertThrows(DataIntegrityViolationException.class, () -> insert(1, "WAITLISTED"));
+
+        migration.migrate();
+
+        insert(1, "WAITLISTED");
+        insert(2, "PENDING");
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM enrollments", Integer.class));
+    }
+
+    @Test
+    void migratedCheckStillRejectsUnknownValues() {
+        migration.migrate();
+        assertThrows(DataIntegrityViolationException.class, () -> insert(1, "BOGUS"));
+    }
+
+    @Test
+    void migrationIsIdempotent() {
+        migration.migrate();
+        migration.migrate();
+        insert(1, "WAITLISTED");
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLE_CONSTRAINTS " +
+                "WHERE TABLE_NAME = 'ENROLLMENTS' AND CONSTRAINT_TYPE = 'CHECK'", Integer.class));
+    }
+
+    private void insert(long studentId, String status) {
+        jdbcTemplate.update("INSERT INTO enrollments (course_id, student_id, status) VALUES (1, ?, ?)", studentId, status);
+    }
+}
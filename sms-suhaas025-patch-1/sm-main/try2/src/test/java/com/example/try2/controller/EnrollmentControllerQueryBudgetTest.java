@@ -0,0 +1,91 @@
+package com.example.try2.controller;
+
+import com.example.try2.entity.Course;
+import com.example.try2.entity.Enrollment;
+import com.example.try2.entity.User;
+import com.example.try2.monitoring.QueryBudget;
+import com.example.try2.repository.CourseRepository;
+import com.example.try2.repository.EnrollmentRepository;
+import com.example.try2.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Pins the number of JDBC statements the course roster endpoints issue, so a lazy
+ * association sneaking back into the response mapping fails here instead of in production.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class EnrollmentControllerQueryBudgetTest {
+
+    private static final int STUDENTS = 5;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private EnrollmentRepository enrollmentRepository;
+
+    private Course course;
+    private final List<User> students = new ArrayList<>();
+    private final List<Enrollment> enrollments = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        course = new Course();
+        course.setCourseCode("QB-101");
+        course.setCourseName("Query Budgets");
+        course.setCredits(3);
+        course = courseRepository.save(course);
+        for (int i = 0; i < STUDENTS; i++) {
+            User student = userRepository.save(new User("qb-student-" + i, "qb-student-" + i + "@example.com", "x"));
+            students.add(student);
+            enrollments.add(enrollmentRepository.save(new Enrollment(student, course, "Fall", "2026")));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        enrollmentRepository.deleteAll(enrollments);
+        courseRepository.delete(course);
+        userRepository.deleteAll(students);
+    }
+
+    @Test
+    void courseRosterIsOneQueryRegardlessOfSize() throws Exception {
+        QueryBudget.assertAtMost(1, () -> mockMvc.perform(get("/api/enrollments/course/" + course.getId())
+                        .with(user("admin").roles("ADMIN")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(STUDENTS)));
+    }
+
+    @Test
+    void courseRosterPageStaysWithinBudget() throws Exception {
+        // page content, count, waitlist positions
+        QueryBudget.assertAtMost(3, () -> mockMvc.perform(get("/api/enrollments/course/" + course.getId() + "/page")
+                        .with(user("admin").roles("ADMIN")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(STUDENTS)));
+    }
+}
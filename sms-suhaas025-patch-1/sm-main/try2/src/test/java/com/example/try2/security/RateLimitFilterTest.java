@@ -0,0 +1,116 @@
+package com.example.try2.security;
+
+import com.example.try2.config.RateLimitProperties;
+import com.example.try2.security.jwt.JwtUtils;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class RateLimitFilterTest {
+
+    private static final int CAPACITY = 3;
+
+    private RateLimitFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        RateLimitProperties.Rule rule = new RateLimitProperties.Rule();
+        rule.setName("auth");
+        rule.setPatterns(List.of("/api/auth/**"));
+        rule.setKey("ip");
+        rule.setCapacity(CAPACITY);
+        // One token per 100 s, so nothing refills while a test runs
+        rule.setRefillPerSecond(0.01);
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setRules(List.of(rule));
+
+        filter = new RateLimitFilter();
+        ReflectionTestUtils.setField(filter, "properties", properties);
+        ReflectionTestUtils.setField(filter, "jwtUtils", Mockito.mock(JwtUtils.class));
+        ReflectionTestUtils.setField(filter, "meterRegistry", new SimpleMeterRegistry());
+        filter.init();
+    }
+
+    @Test
+    void burstIsAllowedThenLimited() throws Exception {
+        for (int i = 0; i < CAPACITY; i++) {
+            MockHttpServletResponse response = send("/api/auth/signin", "10.0.0.1");
+            assertEquals(200, response.getStatus());
+            assertEquals(Integer.toString(CAPACITY - 1 - i), response.getHeader("RateLimit-Remaining"));
+        }
+        MockHttpServletResponse limited = send("/api/auth/signin", "10.0.0.1");
+        assertEquals(429, limited.getStatus());
+        assertNotNull(limited.getHeader(HttpHeaders.RETRY_AFTER));
+    }
+
+    @Test
+    void clientsHaveSeparateBuckets() throws Exception {
+        for (int i = 0; i < CAPACITY; i++) {
+            send("/api/auth/signin", "10.0.0.1");
+        }
+        assertEquals(429, send("/api/auth/signin", "10.0.0.1").getStatus());
+        assertEquals(200, send("/api/auth/signin", "10.0.0.2").getStatus());
+    }
+
+    @Test
+    void unmatchedPathsAreNotLimited() throws Exception {
+        for (int i = 0; i < CAPACITY + 2; i++) {
+            MockHttpServletResponse response = send("/api/courses", "10.0.0.1");
+            assertEquals(200, response.getStatus());
+            assertNull(response.getHeader("RateLimit-Limit"));
+        }
+    }
+
+    @Test
+    void concurrentRequestsNeverExceedTheBurst() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<Integer>> requests = new ArrayList<>();
+            for (int i = 0; i < 40; i++) {
+                requests.add(() -> send("/api/auth/signin", "10.0.0.9").getStatus());
+            }
+            int allowed = 0;
+            for (Future<Integer> status : executor.invokeAll(requests)) {
+                if (status.get() == 200) {
+                    allowed++;
+                }
+            }
+            assertEquals(CAPACITY, allowed);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void networkPrefixKeepsTheNetworkPart() {
+        assertEquals("net:192.168.1", RateLimitFilter.networkPrefix("192.168.1.77", false));
+        assertEquals("net:192.168", RateLimitFilter.networkPrefix("192.168.1.77", true));
+        assertEquals("net:2001:db8:abcd", RateLimitFilter.networkPrefix("2001:db8:abcd:12::1", false));
+        assertEquals("net:unknown", RateLimitFilter.networkPrefix(null, false));
+    }
+
+    private MockHttpServletResponse send(String path, String address) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", path);
+        request.setRemoteAddr(address);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.try2.security.services;
+
+import com.example.try2.entity.MfaBackupCode;
+import com.example.try2.exception.AppException;
+import com.example.try2.repository.MfaBackupCodeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atMost;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs against an in-memory stand-in for the backup code table whose delete is atomic, like the real one.
+ */
+class BackupCodeVerifierTest {
+
+    private static final Long USER_ID = 3L;
+
+    private BackupCodeVerifier verifier;
+    private MfaBackupCodeRepository repository;
+    // user id -> stored rows by digest
+    private final Map<Long, Map<String, MfaBackupCode>> table = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        repository = Mockito.mock(MfaBackupCodeRepository.class);
+        when(repository.saveAll(any(Iterable.class))).thenAnswer(invocation -> {
+            for (MfaBackupCode row : (Iterable<MfaBackupCode>) invocation.getArgument(0)) {
+                table.computeIfAbsent(row.getUserId(), id -> new ConcurrentHashMap<>()).put(row.getDigest(), row);
+            }
+            return invocation.getArgument(0);
+        });
+        when(repository.deleteAllByUserId(anyLong())).thenAnswer(invocation -> {
+            Map<String, MfaBackupCode> rows = table.remove(invocation.<Long>getArgument(0));
+            return rows != null ? rows.size() : 0;
+        });
+        when(repository.findFirstByUserId(anyLong())).thenAnswer(invocation ->
+                rowsOf(invocation.getArgument(0)).values().stream().findFirst());
+        when(repository.deleteByUserIdAndDigest(anyLong(), anyString())).thenAnswer(invocation ->
+                rowsOf(invocation.getArgument(0)).remove(invocation.<String>getArgument(1)) != null ? 1 : 0);
+
+        verifier = new BackupCodeVerifier();
+        ReflectionTestUtils.setField(verifier, "backupCodeRepository", repository);
+        ReflectionTestUtils.setField(verifier, "configuredKey", "");
+        ReflectionTestUtils.setField(verifier, "jwtSecret", "test-jwt-secret-test-jwt-secret-test-jwt-secret");
+        ReflectionTestUtils.setField(verifier, "maxFailures", 5);
+        ReflectionTestUtils.setField(verifier, "throttleSeconds", 900L);
+        verifier.init();
+        verifier.store(USER_ID, Set.of("12345678", "87654321"));
+    }
+
+    private Map<String, MfaBackupCode> rowsOf(Long userId) {
+        return table.computeIfAbsent(userId, id -> new ConcurrentHashMap<>());
+    }
+
+    @Test
+    void codeIsConsumedOnce() {
+        assertTrue(verifier.consume(USER_ID, "1234-5678"));
+        assertFalse(verifier.consume(USER_ID, "12345678"));
+        assertTrue(verifier.consume(USER_ID, "87654321"));
+    }
+
+    @Test
+    void codesAreBoundToTheirUser() {
+        verifier.store(USER_ID + 1, Set.of("99998888"));
+        assertFalse(verifier.consume(USER_ID + 1, "12345678"));
+        assertTrue(verifier.consume(USER_ID, "12345678"));
+    }
+
+    @Test
+    void storeReplacesEarlierCodes() {
+        verifier.store(USER_ID, Set.of("11112222"));
+        assertFalse(verifier.consume(USER_ID, "12345678"));
+        assertTrue(verifier.consume(USER_ID, "11112222"));
+    }
+
+    @Test
+    void wrongCodesThrottleTheUser() {
+        for (int i = 0; i < 5; i++) {
+            assertFalse(verifier.consume(USER_ID, "00000000"));
+        }
+        assertThrows(AppException.class, () -> verifier.consume(USER_ID, "12345678"));
+    }
+
+    @Test
+    void concurrentAttemptsWithOneCodeSucceedOnce() throws Exception {
+        ReflectionTestUtils.setField(verifier, "maxFailures", 100);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<Boolean>> attempts = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                attempts.add(() -> verifier.consume(USER_ID, "12345678"));
+            }
+            int accepted = 0;
+            for (Future<Boolean> result : executor.invokeAll(attempts)) {
+                if (result.get()) {
+                    accepted++;
+                }
+            }
+            assertEquals(1, accepted);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void concurrentWrongCodesCannotExceedTheLimit() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<Boolean>> attempts = new ArrayList<>();
+            for (int i = 0; i < 40; i++) {
+                String guess = String.format("%08d", i);
+                attempts.add(() -> verifier.consume(USER_ID, guess));
+            }
+            int checked = 0;
+            int throttled = 0;
+            for (Future<Boolean> result : executor.invokeAll(attempts)) {
+                try {
+                    assertFalse(result.get());
+                    checked++;
+                } catch (ExecutionException e) {
+                    assertTrue(e.getCause() instanceof AppException);
+                    throttled++;
+                }
+            }
+            assertEquals(5, checked);
+            assertEquals(35, throttled);
+        } finally {
+            executor.shutdownNow();
+        }
+        verify(repository, atMost(5)).deleteByUserIdAndDigest(eq(USER_ID), anyString());
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.try2.security.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LoginAttemptTrackerTest {
+
+    private LoginAttemptTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        tracker = new LoginAttemptTracker();
+        ReflectionTestUtils.setField(tracker, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(tracker, "usernameMaxFailures", 5);
+        ReflectionTestUtils.setField(tracker, "usernameLockSeconds", 60L);
+        ReflectionTestUtils.setField(tracker, "ipMaxFailures", 10);
+        ReflectionTestUtils.setField(tracker, "ipLockSeconds", 300L);
+        ReflectionTestUtils.setField(tracker, "windowSeconds", 300L);
+        tracker.init();
+    }
+
+    @Test
+    void usernameLocksAfterMaxFailures() {
+        for (int i = 1; i < 5; i++) {
+            assertNull(tracker.recordFailure("alice", "10.0.0." + i).lockedUntil());
+        }
+        assertNotNull(tracker.recordFailure("alice", "10.0.0.5").lockedUntil());
+
+        LoginAttemptTracker.Lockout lockout = tracker.check("Alice", "10.0.0.6");
+        assertNotNull(lockout);
+        assertFalse(lockout.byAddress());
+        assertTrue(lockout.secondsLeft() > 0);
+        assertNull(tracker.check("bob", "10.0.0.6"));
+    }
+
+    @Test
+    void successClearsTheUsername() {
+        for (int i = 0; i < 4; i++) {
+            tracker.recordFailure("alice", "10.0.0.1");
+        }
+        tracker.recordSuccess("alice");
+        LoginAttemptTracker.Failure failure = tracker.recordFailure("alice", "10.0.0.1");
+        assertEquals(1, failure.recentFailures());
+        assertNull(failure.lockedUntil());
+    }
+
+    @Test
+    void addressLocksOnUnknownUsernames() {
+        for (int i = 0; i < 10; i++) {
+            tracker.recordAddressFailure("10.0.0.1");
+        }
+        LoginAttemptTracker.Lockout lockout = tracker.check("anyone", "10.0.0.1");
+        assertNotNull(lockout);
+        assertTrue(lockout.byAddress());
+        assertNull(tracker.check("anyone", "10.0.0.2"));
+    }
+
+    @Test
+    void concurrentFailuresLockExactlyOnce() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<LoginAttemptTracker.Failure>> attempts = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                attempts.add(() -> tracker.recordFailure("carol", null));
+            }
+            int locks = 0;
+            for (Future<LoginAttemptTracker.Failure> failure : executor.invokeAll(attempts)) {
+                if (failure.get().lockedUntil() != null) {
+                    locks++;
+                }
+            }
+            assertEquals(1, locks);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertNotNull(tracker.check("carol", null));
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.try2.security.services;
+
+import com.example.try2.exception.AppException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TotpVerifierTest {
+
+    private static final String SECRET = "JBSWY3DPEHPK3PXP";
+    private static final Long USER_ID = 1L;
+
+    private TotpVerifier verifier;
+
+    @BeforeEach
+    void setUp() {
+        verifier = new TotpVerifier();
+        ReflectionTestUtils.setField(verifier, "skewSteps", 1);
+        ReflectionTestUtils.setField(verifier, "setupSkewSteps", 5);
+        ReflectionTestUtils.setField(verifier, "maxFailures", 5);
+        ReflectionTestUtils.setField(verifier, "throttleSeconds", 300L);
+    }
+
+    @Test
+    void codeIsAcceptedOnlyOnce() throws Exception {
+        String code = codeAt(currentStep());
+        assertTrue(verifier.verify(USER_ID, SECRET, code, false));
+        assertFalse(verifier.verify(USER_ID, SECRET, code, false));
+    }
+
+    @Test
+    void earlierStepIsRejectedAfterALaterOne() throws Exception {
+        long step = currentStep();
+        assertTrue(verifier.verify(USER_ID, SECRET, codeAt(step), false));
+        assertFalse(verifier.verify(USER_ID, SECRET, codeAt(step - 1), false));
+    }
+
+    @Test
+    void forgetAllowsTheStepAgain() throws Exception {
+        String code = codeAt(currentStep());
+        assertTrue(verifier.verify(USER_ID, SECRET, code, false));
+        verifier.forget(USER_ID);
+        assertTrue(verifier.verify(USER_ID, SECRET, code, false));
+    }
+
+    @Test
+    void wrongCodesThrottleTheUser() throws Exception {
+        String wrong = codeOutsideWindow();
+        for (int i = 0; i < 5; i++) {
+            assertFalse(verifier.verify(USER_ID, SECRET, wrong, false));
+        }
+        AppException e = assertThrows(AppException.class,
+                () -> verifier.verify(USER_ID, SECRET, codeAt(currentStep()), false));
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, e.getStatus());
+    }
+
+    @Test
+    void concurrentAttemptsWithOneCodeSucceedOnce() throws Exception {
+        ReflectionTestUtils.setField(verifier, "maxFailures", 100);
+        String code = codeAt(currentStep());
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<Boolean>> attempts = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                attempts.add(() -> verifier.verify(USER_ID, SECRET, code, false));
+            }
+            int accepted = 0;
+            for (Future<Boolean> result : executor.invokeAll(attempts)) {
+                if (result.get()) {
+                    accepted++;
+                }
+            }
+            assertEquals(1, accepted);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static long currentStep() {
+        return System.currentTimeMillis() / 1000 / 30;
+    }
+
+    private static String codeOutsideWindow() throws Exception {
+        long step = currentStep();
+        Set<String> valid = new HashSet<>();
+        for (long s = step - 2; s <= step + 2; s++) {
+            valid.add(codeAt(s));
+        }
+        for (int candidate = 0; ; candidate++) {
+            String code = String.format("%06d", candidate);
+            if (!valid.contains(code)) {
+                return code;
+            }
+        }
+    }
+
+    // RFC 6238 reference computation, independent of the verifier's cached windows
+    private static String codeAt(long step) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA1");
+        mac.init(new SecretKeySpec(MfaService.base32Decode(SECRET), "HmacSHA1"));
+        byte[] hash = mac.doFinal(ByteBuffer.allocate(8).putLong(step).array());
+        int offset = hash[hash.length - 1] & 0xf;
+        int binary = ((hash[offset] & 0x7f) << 24)
+                | ((hash[offset + 1] & 0xff) << 16)
+                | ((hash[offset + 2] & 0xff) << 8)
+                | (hash[offset + 3] & 0xff);
+        return String.format("%06d", binary % 1_000_000);
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.try2.service;
+
+import com.example.try2.entity.Course;
+import com.example.try2.entity.Enrollment;
+import com.example.try2.entity.EnrollmentStatus;
+import com.example.try2.repository.CourseRepository;
+import com.example.try2.repository.EnrollmentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Seat counter behaviour without a transaction: completion callbacks run immediately as committed.
+ */
+@ExtendWith(MockitoExtension.class)
+class CourseSeatServiceTest {
+
+    private static final Long COURSE_ID = 7L;
+
+    @Mock
+    private CourseRepository courseRepository;
+
+    @Mock
+    private EnrollmentRepository enrollmentRepository;
+
+    @InjectMocks
+    private CourseSeatService courseSeatService;
+
+    private Course course;
+
+    @BeforeEach
+    void setUp() {
+        course = new Course();
+        course.setId(COURSE_ID);
+    }
+
+    @Test
+    void fullCounterRejectsWithoutTouchingTheDatabase() {
+        when(courseRepository.findRemainingSeats(COURSE_ID)).thenReturn(2);
+        when(courseRepository.reserveSeat(COURSE_ID)).thenReturn(1);
+
+        assertTrue(courseSeatService.tryReserveSeat(course));
+        assertTrue(courseSeatService.tryReserveSeat(course));
+        assertFalse(courseSeatService.tryReserveSeat(course));
+        assertFalse(courseSeatService.tryReserveSeat(course));
+
+        verify(courseRepository, times(1)).findRemainingSeats(COURSE_ID);
+        verify(courseRepository, times(2)).reserveSeat(COURSE_ID);
+    }
+
+    @Test
+    void unlimitedCourseAlwaysReservesInTheDatabase() {
+        when(courseRepository.findRemainingSeats(COURSE_ID)).thenReturn(null);
+        when(courseRepository.reserveSeat(COURSE_ID)).thenReturn(1);
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(courseSeatService.tryReserveSeat(course));
+        }
+        verify(courseRepository, times(3)).reserveSeat(COURSE_ID);
+    }
+
+    @Test
+    void refusedReservationDropsTheCounter() {
+        when(courseRepository.findRemainingSeats(COURSE_ID)).thenReturn(5, 0);
+        when(courseRepository.reserveSeat(COURSE_ID)).thenReturn(0);
+
+        assertFalse(courseSeatService.tryReserveSeat(course));
+        // Reloaded from the database, which now says full
+        assertFalse(courseSeatService.tryReserveSeat(course));
+
+        verify(courseRepository, times(2)).findRemainingSeats(COURSE_ID);
+        verify(courseRepository, times(1)).reserveSeat(COURSE_ID);
+    }
+
+    @Test
+    void staleZeroCounterIsRecheckedAfterTheInterval() throws InterruptedException {
+        when(courseRepository.findRemainingSeats(COURSE_ID)).thenReturn(0);
+        when(courseRepository.reserveSeat(COURSE_ID)).thenReturn(1);
+
+        assertFalse(courseSeatService.tryReserveSeat(course));
+        verify(courseRepository, never()).reserveSeat(anyLong());
+
+        Thread.sleep(1100);
+        assertTrue(courseSeatService.tryReserveSeat(course));
+        verify(courseRepository, times(1)).reserveSeat(COURSE_ID);
+    }
+
+    @Test
+    void concurrentReservationsNeverExceedTheCounter() throws Exception {
+        int seats = 10;
+        when(courseRepository.findRemainingSeats(COURSE_ID)).thenReturn(seats);
+        when(courseRepository.reserveSeat(COURSE_ID)).thenReturn(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<Boolean>> attempts = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                attempts.add(() -> courseSeatService.tryReserveSeat(course));
+            }
+            int granted = 0;
+            for (Future<Boolean> result : executor.invokeAll(attempts)) {
+                if (result.get()) {
+                    granted++;
+                }
+            }
+            assertEquals(seats, granted);
+        } finally {
+            executor.shutdownNow();
+        }
+        verify(courseRepository, times(seats)).reserveSeat(COURSE_ID);
+    }
+
+    @Test
+    void releasedSeatPassesToTheFirstWaitlisted() {
+        Enrollment waitlisted = new Enrollment();
+        waitlisted.setId(42L);
+        waitlisted.setStatus(EnrollmentStatus.WAITLISTED);
+        when(enrollmentRepository.findTop5ByCourse_IdAndStatusOrderByIdAsc(COURSE_ID, EnrollmentStatus.WAITLISTED))
+                .thenReturn(List.of(waitlisted));
+        when(enrollmentRepository.promoteFromWaitlist(42L, EnrollmentStatus.PENDING)).thenReturn(1);
+
+        assertSame(waitlisted, courseSeatService.releaseSeat(COURSE_ID));
+        assertEquals(EnrollmentStatus.PENDING, waitlisted.getStatus());
+        verify(courseRepository, never()).releaseSeat(anyLong());
+    }
+
+    @Test
+    void releasedSeatGoesBackToThePoolWithoutAWaitlist() {
+        when(enrollmentRepository.findTop5ByCourse_IdAndStatusOrderByIdAsc(COURSE_ID, EnrollmentStatus.WAITLISTED))
+                .thenReturn(List.of());
+        when(courseRepository.releaseSeat(COURSE_ID)).thenReturn(1);
+
+        assertNull(courseSeatService.releaseSeat(COURSE_ID));
+        verify(courseRepository).releaseSeat(COURSE_ID);
+    }
+}